@@ -0,0 +1,94 @@
+package de.cne.ws25.pdfservice;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kaltstart: Anwendung starten und die erste Konvertierung (synchroner {@code /convert}
+ * mit einem PNG) abwarten. Jede Messung läuft in einer frischen JVM (eine Iteration pro
+ * Fork, kein Warm-up), gemessen wird also Kontextstart + erste Anfrage mit kalten Klassen.
+ * <p>
+ * Die Zeit ab JVM-Start bis zur ersten Konvertierung steht zusätzlich im Log
+ * ("Erste Konvertierung ... ms nach JVM-Start"), auch beim Start mit CDS-Archiv.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 5, jvmArgsAppend = {"-Xms512m", "-Xmx512m", "-Djava.awt.headless=true"})
+public class StartupBenchmark {
+
+    private static final String BOUNDARY = "startup-benchmark";
+
+    /** Codec-Warm-up beim Start ({@code app.startup.warmup}). */
+    @Param({"true", "false"})
+    boolean warmup;
+
+    private byte[] body;
+    private Path storageRoot;
+
+    @Setup
+    public void setup() throws Exception {
+        BufferedImage photo = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < photo.getHeight(); y++) {
+            for (int x = 0; x < photo.getWidth(); x++) {
+                photo.setRGB(x, y, (x % 256) << 16 | (y % 256) << 8 | (x * y) % 256);
+            }
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(photo, "png", png);
+
+        ByteArrayOutputStream multipart = new ByteArrayOutputStream();
+        multipart.write(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"photo.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        multipart.write(png.toByteArray());
+        multipart.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        body = multipart.toByteArray();
+        storageRoot = Files.createTempDirectory("startup-benchmark");
+    }
+
+    @Benchmark
+    public int firstConversion() throws Exception {
+        try (ConfigurableApplicationContext context = PdfserviceApplication.application().run(
+                "--server.port=0",
+                "--app.storage.backend=local",
+                "--app.storage.local.root=" + storageRoot,
+                "--app.startup.warmup=" + warmup)) {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/convert"))
+                    .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                    .build();
+            HttpResponse<byte[]> response = HttpClient.newHttpClient()
+                    .send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Konvertierung fehlgeschlagen: HTTP " + response.statusCode());
+            }
+            return response.body().length;
+        }
+    }
+}
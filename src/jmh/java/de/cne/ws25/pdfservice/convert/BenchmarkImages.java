@@ -0,0 +1,133 @@
+package de.cne.ws25.pdfservice.convert;
+
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fester Bild-Korpus für die Benchmarks. Wird deterministisch erzeugt (fester Seed),
+ * damit Ergebnisse über Versionen hinweg vergleichbar bleiben.
+ * <p>
+ * Schlüssel: {@code <format>-<variante>}, z.B. {@code png-huge}.
+ */
+final class BenchmarkImages {
+
+    private static final Map<String, byte[]> CACHE = new ConcurrentHashMap<>();
+
+    private BenchmarkImages() {
+    }
+
+    static byte[] bytes(String key) {
+        return CACHE.computeIfAbsent(key, BenchmarkImages::generate);
+    }
+
+    /**
+     * Service ohne Storage (Metriken nur im Speicher): die Benchmarks gehen nur über
+     * {@code createDocument}/{@code prepare}/{@code readScaled}.
+     */
+    static ImageToPdfService newService() {
+        PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+        return new ImageToPdfService(null, metrics, new MemoryBudget(metrics, 0, 60_000), 1, 1, 0, 16, "", 2048,
+                "balanced", 0.85f, 0.6f, 200, 500);
+    }
+
+    private static byte[] generate(String key) {
+        return switch (key) {
+            case "jpeg-small" -> encode(photo(800, 600, BufferedImage.TYPE_INT_RGB), "jpg");
+            case "jpeg-huge" -> encode(photo(6000, 4000, BufferedImage.TYPE_INT_RGB), "jpg");
+            case "png-small" -> encode(photo(800, 600, BufferedImage.TYPE_INT_RGB), "png");
+            case "png-huge" -> encode(photo(6000, 4000, BufferedImage.TYPE_INT_RGB), "png");
+            case "png-gray" -> encode(photo(3000, 2000, BufferedImage.TYPE_BYTE_GRAY), "png");
+            case "png-alpha" -> encode(photo(1200, 900, BufferedImage.TYPE_INT_ARGB), "png");
+            case "gif-small" -> encode(photo(800, 600, BufferedImage.TYPE_BYTE_INDEXED), "gif");
+            case "png-scan" -> encode(scan(1700, 2000), "png");
+            default -> throw new IllegalArgumentException("Unbekanntes Benchmark-Bild: " + key);
+        };
+    }
+
+    /**
+     * Verlauf plus Rauschen und ein paar Flächen: grob wie ein Foto/Scan,
+     * damit die Kompression nicht unrealistisch gut ist.
+     */
+    private static BufferedImage photo(int width, int height, int type) {
+        BufferedImage img = new BufferedImage(width, height, type);
+        Graphics2D g = img.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setPaint(new GradientPaint(0, 0, new Color(30, 60, 120), width, height, new Color(230, 200, 140)));
+            g.fillRect(0, 0, width, height);
+
+            Random random = new Random(42);
+            for (int i = 0; i < 40; i++) {
+                int alpha = type == BufferedImage.TYPE_INT_ARGB ? random.nextInt(256) : 255;
+                g.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256), alpha));
+                g.fillOval(random.nextInt(width), random.nextInt(height), width / 6, height / 6);
+            }
+
+            // leichtes Rauschen auf jedem 3. Pixel
+            for (int y = 0; y < height; y++) {
+                for (int x = y % 3; x < width; x += 3) {
+                    int rgb = img.getRGB(x, y);
+                    int noise = random.nextInt(17) - 8;
+                    img.setRGB(x, y, (rgb & 0xFF000000) | shift(rgb >> 16, noise) << 16
+                            | shift(rgb >> 8, noise) << 8 | shift(rgb, noise));
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        return img;
+    }
+
+    /**
+     * Schwarzweiß-Dokument: weiße Seite mit "Textzeilen" aus schwarzen Blöcken.
+     */
+    private static BufferedImage scan(int width, int height) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        Graphics2D g = img.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.setColor(Color.BLACK);
+            Random random = new Random(42);
+            for (int y = 100; y < height - 100; y += 40) {
+                for (int x = 100; x < width - 100; ) {
+                    int word = 20 + random.nextInt(80);
+                    g.fillRect(x, y, Math.min(word, width - 100 - x), 22);
+                    x += word + 15;
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        return img;
+    }
+
+    private static int shift(int channel, int delta) {
+        return Math.max(0, Math.min(255, (channel & 0xFF) + delta));
+    }
+
+    private static byte[] encode(BufferedImage img, String format) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (!ImageIO.write(img, format, out)) {
+                throw new IllegalStateException("Kein ImageIO-Writer für " + format);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package de.cne.ws25.pdfservice.convert;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seiten zusammensetzen ({@code createDocument}) und {@code PDDocument.save}
+ * je nach Seitenzahl. Eingaben sind ein Mix aus JPEG (Passthrough), PNG, PNG mit
+ * Alpha und GIF.
+ * <p>
+ * Den Speicherbedarf je Seitenzahl liefern {@code -prof gc} (Allokation pro Op)
+ * und {@link #footprint()} zusammen mit {@link PeakHeapProfiler} ({@code peak.live.heap}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-Djava.awt.headless=true"})
+public class DocumentBenchmark {
+
+    private static final String[] MIX = {"jpeg-small", "png-small", "png-alpha", "gif-small"};
+
+    @Param({"1", "5", "20"})
+    int pages;
+
+    private List<ImageInput> inputs;
+    private ImageToPdfService service;
+
+    @Setup
+    public void setup() {
+        inputs = new ArrayList<>(pages);
+        for (int i = 0; i < pages; i++) {
+            String key = MIX[i % MIX.length];
+            inputs.add(new ImageInput(key + "-" + i, BenchmarkImages.bytes(key)));
+        }
+        service = BenchmarkImages.newService();
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public int assemble() throws Exception {
+        try (PDDocument doc = service.createDocument(inputs)) {
+            return doc.getNumberOfPages();
+        }
+    }
+
+    @Benchmark
+    public int assembleAndSave() throws Exception {
+        try (PDDocument doc = service.createDocument(inputs)) {
+            doc.save(OutputStream.nullOutputStream());
+            return doc.getNumberOfPages();
+        }
+    }
+
+    @Benchmark
+    public void save(OpenDocument open) throws Exception {
+        open.doc.save(OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Heap-Bedarf eines offenen Dokuments: volle GC bei offenem Dokument, den
+     * Live-Heap danach meldet {@link PeakHeapProfiler}. Die Zeit ist hier nebensächlich.
+     * Über {@code app.convert.document-heap-mb} hinaus lagert PDFBox in Temp-Dateien aus.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public int footprint() throws Exception {
+        try (PDDocument doc = service.createDocument(inputs)) {
+            System.gc();
+            return doc.getNumberOfPages();
+        }
+    }
+
+    /**
+     * Fertig zusammengesetztes Dokument, damit {@code save} allein gemessen wird.
+     * Pro Aufruf neu, weil PDFBox ein gespeichertes Dokument nicht sauber ein zweites Mal schreibt.
+     */
+    @State(Scope.Thread)
+    public static class OpenDocument {
+
+        PDDocument doc;
+
+        @Setup(Level.Invocation)
+        public void open(DocumentBenchmark benchmark) throws Exception {
+            doc = benchmark.service.createDocument(benchmark.inputs);
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() throws Exception {
+            doc.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package de.cne.ws25.pdfservice.convert;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kodieren eines bereits dekodierten Bildes: eigene Flate-Kodierung
+ * ({@link PreparedImage#lossless}) gegen PDFBox' {@link LosslessFactory} und
+ * {@link JPEGFactory}, die profilabhängige Kodierung ({@code adaptive*}) und die
+ * komplette {@code prepare}-Stufe (bei JPEG der Passthrough ohne Dekodieren).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-Djava.awt.headless=true"})
+public class EncodeBenchmark {
+
+    @Param({"jpeg-small", "png-small", "png-gray", "png-alpha", "png-scan"})
+    String image;
+
+    private byte[] data;
+    private BufferedImage decoded;
+    private ImageToPdfService service;
+
+    @Setup
+    public void setup() throws Exception {
+        data = BenchmarkImages.bytes(image);
+        service = BenchmarkImages.newService();
+        decoded = service.readScaled(new ByteArrayInputStream(data),
+                service.targetWidth, service.targetHeight);
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public Object preparedLossless() throws Exception {
+        return PreparedImage.lossless(decoded);
+    }
+
+    @Benchmark
+    public PDImageXObject pdfboxLossless() throws Exception {
+        try (PDDocument doc = new PDDocument()) {
+            return LosslessFactory.createFromImage(doc, decoded);
+        }
+    }
+
+    @Benchmark
+    public PDImageXObject pdfboxJpeg() throws Exception {
+        try (PDDocument doc = new PDDocument()) {
+            return JPEGFactory.createFromImage(doc, decoded, 0.85f);
+        }
+    }
+
+    @Benchmark
+    public Object adaptiveBalanced() throws Exception {
+        return service.encode(decoded, EncodingProfile.BALANCED);
+    }
+
+    @Benchmark
+    public Object adaptiveSmall() throws Exception {
+        return service.encode(decoded, EncodingProfile.SMALL);
+    }
+
+    @Benchmark
+    public Object prepare() {
+        return service.prepare(ByteBuffer.wrap(data), image);
+    }
+}
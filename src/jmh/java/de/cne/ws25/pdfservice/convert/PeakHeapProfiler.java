@@ -0,0 +1,94 @@
+package de.cne.ws25.pdfservice.convert;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Peak des Live-Heaps (belegter Heap direkt nach einer vollen GC) pro Iteration.
+ * Anders als der rohe Peak enthält das keinen Müll, sondern nur, was die
+ * Benchmark tatsächlich festhält – z.B. ein offenes Dokument mit N Seiten
+ * (siehe {@link DocumentBenchmark#footprint()}). Nach Young-GCs liegt noch
+ * beförderter Müll in der Old Generation, die zählen deshalb nicht.
+ * Iterationen ganz ohne volle GC liefern keinen Wert.
+ * <p>
+ * Aktivieren mit {@code -prof de.cne.ws25.pdfservice.convert.PeakHeapProfiler}
+ * (im Profil {@code jmh} schon gesetzt).
+ */
+public class PeakHeapProfiler implements InternalProfiler {
+
+    private final Set<String> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .map(MemoryPoolMXBean::getName)
+            .collect(Collectors.toSet());
+
+    private final AtomicLong peakLiveBytes = new AtomicLong();
+
+    private final NotificationListener listener = (notification, handback) -> {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        if (!"end of major GC".equals(info.getGcAction())) {
+            return;
+        }
+        long used = 0;
+        for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+            if (heapPools.contains(pool.getKey())) {
+                used += pool.getValue().getUsed();
+            }
+        }
+        peakLiveBytes.accumulateAndGet(used, Math::max);
+    };
+
+    @Override
+    public String getDescription() {
+        return "Peak-Live-Heap (nach GC) pro Iteration";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        peakLiveBytes.set(0);
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) gc).addNotificationListener(listener, null, null);
+        }
+    }
+
+    @Override
+    public List<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                 IterationResult result) {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            try {
+                ((NotificationEmitter) gc).removeNotificationListener(listener);
+            } catch (Exception ignored) {
+                // war nicht registriert
+            }
+        }
+        long bytes = peakLiveBytes.get();
+        if (bytes == 0) {
+            return List.of();
+        }
+        double mb = bytes / (1024.0 * 1024.0);
+        return List.of(new ScalarResult("peak.live.heap", mb, "MB", AggregationPolicy.MAX));
+    }
+}
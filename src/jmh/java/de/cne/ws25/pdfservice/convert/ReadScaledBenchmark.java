@@ -0,0 +1,54 @@
+package de.cne.ws25.pdfservice.convert;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dekodieren inkl. Subsampling ({@code readScaled}) pro Eingabeformat.
+ * Die "huge"-Varianten liegen über der Zielgröße (A4 bei {@code app.convert.dpi}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-Djava.awt.headless=true"})
+public class ReadScaledBenchmark {
+
+    @Param({"jpeg-small", "jpeg-huge", "png-small", "png-huge", "png-gray", "gif-small"})
+    String image;
+
+    private byte[] data;
+    private ImageToPdfService service;
+
+    @Setup
+    public void setup() {
+        data = BenchmarkImages.bytes(image);
+        service = BenchmarkImages.newService();
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public BufferedImage readScaled() throws Exception {
+        return service.readScaled(new ByteArrayInputStream(data),
+                service.targetWidth, service.targetHeight);
+    }
+}
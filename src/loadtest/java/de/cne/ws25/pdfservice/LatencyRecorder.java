@@ -0,0 +1,53 @@
+package de.cne.ws25.pdfservice;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sammelt Latenzen (Nanosekunden) und rechnet am Ende exakte Perzentile aus.
+ * Für die Größenordnung eines Lasttests (einige zehntausend Werte) reicht ein Array.
+ */
+final class LatencyRecorder {
+
+    private long[] values = new long[1024];
+    private int count;
+
+    synchronized void record(long nanos) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, count * 2);
+        }
+        values[count++] = nanos;
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    /** count, mean, p50, p95, p99, max in Millisekunden. */
+    synchronized Map<String, Object> summary() {
+        long[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", count);
+        if (count == 0) {
+            return summary;
+        }
+        summary.put("meanMs", millis(Arrays.stream(sorted).sum() / count));
+        summary.put("p50Ms", millis(percentile(sorted, 0.50)));
+        summary.put("p95Ms", millis(percentile(sorted, 0.95)));
+        summary.put("p99Ms", millis(percentile(sorted, 0.99)));
+        summary.put("maxMs", millis(sorted[count - 1]));
+        return summary;
+    }
+
+    /** Nearest-Rank. */
+    private static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
@@ -0,0 +1,517 @@
+package de.cne.ws25.pdfservice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import de.cne.ws25.pdfservice.storage.InMemoryBlobStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ende-zu-Ende-Lasttest ohne Netz: startet die Anwendung im selben Prozess mit
+ * {@link InMemoryBlobStore} als Fake-GCS und {@code LocalPushPublisher} als Pub/Sub
+ * (Nachrichten gehen per HTTP an {@code /pubsub/push} dieser Instanz) und spielt einen
+ * {@link TrafficMix} mit offener Last ein: Jobs kommen mit fester Rate, egal wie schnell
+ * die vorherigen fertig werden.
+ * <p>
+ * Jeder Job ist ein {@code POST /convert?mode=async}, danach wird {@code /job/{id}/status}
+ * gepollt bis DONE/FAILED. Gemessen werden Durchsatz, Ende-zu-Ende-Latenz (Upload bis
+ * DONE, auch je Mix-Eintrag), Client-Latenz je Endpoint, serverseitig
+ * {@code http.server.requests} inkl. {@code /pubsub/push} sowie Heap, Allokation und GC
+ * im Messfenster. Jobs aus der Warm-up-Phase zählen nicht mit.
+ * <p>
+ * Einstellungen als System-Properties (siehe Profil {@code loadtest} in der pom.xml),
+ * zusätzliche Anwendungs-Properties über {@code load.app-args} bzw. Programmargumente.
+ * Das Log der Anwendung landet in {@code load.log}, der Bericht auf der Konsole und als
+ * JSON in {@code load.result} – so lassen sich Läufe vor und nach einer Änderung vergleichen.
+ * <p>
+ * Lastgenerator und Anwendung teilen sich die JVM; der Generator ist aber schlank
+ * (vorab erzeugte Bilder, ein virtueller Thread pro Job).
+ */
+public final class LoadTest {
+
+    private static final String BOUNDARY = "loadtest-boundary";
+    private static final String DEFAULT_MIX = "1*png@1200x900:50,3*jpeg@2000x1500:30,4*gif@800x600:10,10*tiff@2480x3508:10";
+
+    private final String mixSpec = System.getProperty("load.mix", DEFAULT_MIX);
+    private final double rate = Double.parseDouble(System.getProperty("load.rate", "2"));
+    private final String arrival = System.getProperty("load.arrival", "poisson");
+    private final long warmupS = Long.parseLong(System.getProperty("load.warmup-s", "10"));
+    private final long durationS = Long.parseLong(System.getProperty("load.duration-s", "60"));
+    private final long pollMs = Long.parseLong(System.getProperty("load.poll-ms", "100"));
+    private final long jobTimeoutS = Long.parseLong(System.getProperty("load.job-timeout-s", "300"));
+    private final String profile = System.getProperty("load.profile", "");
+    private final int clients = Integer.parseInt(System.getProperty("load.clients", "20"));
+    private final long seed = Long.parseLong(System.getProperty("load.seed", "42"));
+    private final Path result = Path.of(System.getProperty("load.result", "target/loadtest-result.json"));
+
+    private final ConfigurableApplicationContext context;
+    private final TrafficMix mix;
+    private final PrintStream console;
+    private final String baseUrl;
+    private final HttpClient http = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Messwerte, nur für Jobs aus dem Messfenster
+    private final LatencyRecorder endToEnd = new LatencyRecorder();
+    private final Map<String, LatencyRecorder> endToEndByEntry = new ConcurrentHashMap<>();
+    private final LatencyRecorder convertLatency = new LatencyRecorder();
+    private final LatencyRecorder statusLatency = new LatencyRecorder();
+    private final Map<Integer, AtomicInteger> convertStatus = new ConcurrentSkipListMap<>();
+    private final AtomicInteger submitted = new AtomicInteger();
+    private final AtomicInteger done = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger timedOut = new AtomicInteger();
+    private final AtomicLong pagesDone = new AtomicLong();
+    private final AtomicLong lastCompletion = new AtomicLong();
+
+    // laufende Jobs (Sequenznummer -> Startzeit), zum Aufräumen des Fake-GCS
+    private final ConcurrentSkipListMap<Long, Long> inFlight = new ConcurrentSkipListMap<>();
+
+    private LoadTest(ConfigurableApplicationContext context, TrafficMix mix, PrintStream console) {
+        this.context = context;
+        this.mix = mix;
+        this.console = console;
+        this.baseUrl = "http://localhost:" + context.getEnvironment().getRequiredProperty("local.server.port");
+    }
+
+    public static void main(String[] args) throws Exception {
+        PrintStream console = System.out;
+        TrafficMix mix = TrafficMix.parse(System.getProperty("load.mix", DEFAULT_MIX));
+
+        // jeder simulierte Client hat einen eigenen API-Key, also ein eigenes Rate-Limit
+        List<String> apiKeys = new ArrayList<>();
+        for (int i = 0; i < Integer.parseInt(System.getProperty("load.clients", "20")); i++) {
+            apiKeys.add(apiKey(i));
+        }
+        List<String> appArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--app.storage.backend=memory",
+                "--app.pubsub.backend=local",
+                "--app.worker.mode=push",
+                "--app.ratelimit.api-keys=" + String.join(",", apiKeys),
+                "--management.metrics.distribution.percentiles.http.server.requests=0.5,0.95,0.99"));
+        String extra = System.getProperty("load.app-args", "").trim();
+        if (!extra.isEmpty()) {
+            appArgs.addAll(List.of(extra.split("\\s+")));
+        }
+        appArgs.addAll(List.of(args));
+
+        // die Anwendung loggt per println, das gehört nicht in den Bericht
+        Path log = Path.of(System.getProperty("load.log", "target/loadtest-app.log"));
+        Files.createDirectories(log.toAbsolutePath().getParent());
+        try (PrintStream appLog = new PrintStream(new FileOutputStream(log.toFile()), true, StandardCharsets.UTF_8)) {
+            System.setOut(appLog);
+            try (ConfigurableApplicationContext context = PdfserviceApplication.application()
+                    .run(appArgs.toArray(String[]::new))) {
+                new LoadTest(context, mix, console).run();
+            } finally {
+                System.setOut(console);
+            }
+        }
+        console.println("Anwendungs-Log: " + log);
+    }
+
+    private void run() throws Exception {
+        Environment env = context.getEnvironment();
+        String inputBucket = env.getRequiredProperty("app.bucket.input");
+        String outputBucket = env.getRequiredProperty("app.bucket.output");
+        InMemoryBlobStore store = context.getBeanProvider(InMemoryBlobStore.class).getIfAvailable();
+
+        console.printf(Locale.ROOT, "Lasttest: %s, %.2f Jobs/s (%s) von %d Clients, %d s Warm-up, %d s Messung%n",
+                mixSpec, rate, arrival, clients, warmupS, durationS);
+
+        ScheduledExecutorService background = Executors.newScheduledThreadPool(2,
+                Thread.ofPlatform().daemon().name("loadtest-", 0).factory());
+        if (store != null) {
+            // alles, was vor dem ältesten laufenden Job geschrieben wurde, braucht keiner mehr
+            background.scheduleWithFixedDelay(() -> {
+                Map.Entry<Long, Long> oldest = inFlight.firstEntry();
+                long before = oldest == null ? System.currentTimeMillis() : oldest.getValue();
+                store.deleteCreatedBefore(inputBucket, before);
+                store.deleteCreatedBefore(outputBucket, before);
+            }, 1, 1, TimeUnit.SECONDS);
+        }
+
+        Random random = new Random(seed);
+        AtomicInteger recordedJobs = new AtomicInteger();
+        AtomicLong seq = new AtomicLong();
+
+        drive(random, warmupS, seq, null);
+
+        JvmSnapshot jvmStart = JvmSnapshot.take();
+        Map<String, double[]> serverStart = serverTimers();
+        HeapSampler heap = new HeapSampler();
+        background.scheduleAtFixedRate(heap, 0, 100, TimeUnit.MILLISECONDS);
+        long windowStart = System.nanoTime();
+        lastCompletion.set(windowStart);
+
+        drive(random, durationS, seq, recordedJobs);
+        long submitEnd = System.nanoTime();
+
+        // offene Jobs auslaufen lassen
+        long drainDeadline = submitEnd + TimeUnit.SECONDS.toNanos(jobTimeoutS + 30);
+        while (recordedJobs.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(50);
+        }
+        if (recordedJobs.get() > 0) {
+            console.println("Nicht alle Jobs sind fertig geworden");
+        }
+        JvmSnapshot jvmEnd = JvmSnapshot.take();
+        background.shutdownNow();
+
+        Map<String, Object> report = report(windowStart, submitEnd, jvmStart, jvmEnd, heap, serverStart);
+        Files.createDirectories(result.toAbsolutePath().getParent());
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(result.toFile(), report);
+        console.println("Ergebnis: " + result);
+    }
+
+    /** Jobs mit offener Last einspielen; {@code recorded == null} heißt Warm-up. */
+    private void drive(Random random, long seconds, AtomicLong seq, AtomicInteger recorded) {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long next = System.nanoTime();
+        while (next < end) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            TrafficMix.Entry entry = mix.pick(random);
+            String client = apiKey(random.nextInt(clients));
+            long jobSeq = seq.incrementAndGet();
+            if (recorded != null) {
+                recorded.incrementAndGet();
+            }
+            Thread.ofVirtual().name("loadtest-job-" + jobSeq).start(() -> {
+                try {
+                    runJob(entry, client, jobSeq, recorded != null);
+                } finally {
+                    if (recorded != null) {
+                        recorded.decrementAndGet();
+                    }
+                }
+            });
+            double gap = arrival.equals("constant")
+                    ? 1.0 / rate
+                    : -Math.log(1.0 - random.nextDouble()) / rate;
+            next += (long) (gap * 1e9);
+        }
+    }
+
+    private void runJob(TrafficMix.Entry entry, String client, long seq, boolean recorded) {
+        inFlight.put(seq, System.currentTimeMillis());
+        try {
+            if (recorded) {
+                submitted.incrementAndGet();
+            }
+            long start = System.nanoTime();
+            HttpResponse<Void> response = http.send(convertRequest(entry, client, seq), HttpResponse.BodyHandlers.discarding());
+            long convertDone = System.nanoTime();
+            if (recorded) {
+                convertLatency.record(convertDone - start);
+                convertStatus.computeIfAbsent(response.statusCode(), s -> new AtomicInteger()).incrementAndGet();
+            }
+            String location = response.headers().firstValue("Location").orElse(null);
+            if (response.statusCode() != 303 || location == null) {
+                return;
+            }
+            String jobId = location.substring(location.lastIndexOf('/') + 1);
+
+            long deadline = start + TimeUnit.SECONDS.toNanos(jobTimeoutS);
+            HttpRequest poll = HttpRequest.newBuilder(URI.create(baseUrl + "/job/" + jobId + "/status")).GET().build();
+            while (System.nanoTime() < deadline) {
+                long pollStart = System.nanoTime();
+                HttpResponse<byte[]> status = http.send(poll, HttpResponse.BodyHandlers.ofByteArray());
+                long now = System.nanoTime();
+                if (recorded) {
+                    statusLatency.record(now - pollStart);
+                }
+                if (status.statusCode() == 200) {
+                    JsonNode json = objectMapper.readTree(status.body());
+                    String state = json.path("state").asText();
+                    if (state.equals("DONE") || state.equals("FAILED")) {
+                        if (recorded) {
+                            complete(entry, state.equals("DONE"), json.path("pagesTotal").asInt(), now - start, now);
+                        }
+                        return;
+                    }
+                }
+                Thread.sleep(pollMs);
+            }
+            if (recorded) {
+                timedOut.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            if (recorded) {
+                convertStatus.computeIfAbsent(-1, s -> new AtomicInteger()).incrementAndGet();
+            }
+        } finally {
+            inFlight.remove(seq);
+        }
+    }
+
+    private void complete(TrafficMix.Entry entry, boolean ok, int pages, long latency, long now) {
+        if (!ok) {
+            failed.incrementAndGet();
+            return;
+        }
+        done.incrementAndGet();
+        pagesDone.addAndGet(pages);
+        endToEnd.record(latency);
+        endToEndByEntry.computeIfAbsent(entry.label(), l -> new LatencyRecorder()).record(latency);
+        lastCompletion.accumulateAndGet(now, Math::max);
+    }
+
+    private static String apiKey(int client) {
+        return "loadtest-" + client;
+    }
+
+    private HttpRequest convertRequest(TrafficMix.Entry entry, String client, long seq) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int i = 0;
+        for (byte[] file : TrafficMix.files(entry, seq)) {
+            body.write(("--" + BOUNDARY + "\r\n"
+                    + "Content-Disposition: form-data; name=\"file\"; filename=\"" + seq + "-" + i++ + "." + entry.format() + "\"\r\n"
+                    + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            body.write(file);
+            body.write("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+        body.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        String query = "?mode=async" + (profile.isEmpty() ? "" : "&profile=" + profile);
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/convert" + query))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .header("X-API-Key", client)
+                .timeout(Duration.ofMinutes(5))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    /** {@code http.server.requests} je Methode + URI: Anzahl und Gesamtzeit in ms. */
+    private Map<String, double[]> serverTimers() {
+        Map<String, double[]> timers = new TreeMap<>();
+        for (Timer timer : context.getBean(MeterRegistry.class).find("http.server.requests").timers()) {
+            String key = timer.getId().getTag("method") + " " + timer.getId().getTag("uri");
+            double[] sums = timers.computeIfAbsent(key, k -> new double[2]);
+            sums[0] += timer.count();
+            sums[1] += timer.totalTime(TimeUnit.MILLISECONDS);
+        }
+        return timers;
+    }
+
+    private Map<String, Object> report(long windowStart, long submitEnd, JvmSnapshot jvmStart, JvmSnapshot jvmEnd,
+                                       HeapSampler heap, Map<String, double[]> serverStart) {
+        double window = Math.max(1, lastCompletion.get() - windowStart) / 1e9;
+        double offered = (submitEnd - windowStart) / 1e9;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("mix", mixSpec);
+        report.put("rate", rate);
+        report.put("arrival", arrival);
+        report.put("durationS", durationS);
+        report.put("clients", clients);
+        report.put("submitted", submitted.get());
+        report.put("done", done.get());
+        report.put("failed", failed.get());
+        report.put("timedOut", timedOut.get());
+        Map<String, Integer> statusCodes = new LinkedHashMap<>();
+        convertStatus.forEach((code, n) -> statusCodes.put(String.valueOf(code), n.get()));
+        report.put("convertStatus", statusCodes);
+        report.put("offeredJobsPerS", round(submitted.get() / offered));
+        report.put("jobsPerS", round(done.get() / window));
+        report.put("pagesPerS", round(pagesDone.get() / window));
+        report.put("endToEnd", endToEnd.summary());
+        Map<String, Object> byEntry = new LinkedHashMap<>();
+        for (TrafficMix.Entry entry : mix.entries()) {
+            LatencyRecorder recorder = endToEndByEntry.get(entry.label());
+            byEntry.put(entry.label(), recorder == null ? Map.of("count", 0) : recorder.summary());
+        }
+        report.put("endToEndByMix", byEntry);
+
+        Map<String, Object> client = new LinkedHashMap<>();
+        client.put("POST /convert", convertLatency.summary());
+        client.put("GET /job/{jobId}/status", statusLatency.summary());
+        report.put("client", client);
+        report.put("server", serverReport(serverStart));
+        report.put("jvm", jvmReport(jvmStart, jvmEnd, heap));
+
+        printReport(report);
+        return report;
+    }
+
+    /**
+     * Anzahl und Mittelwert als Differenz zum Start des Messfensters; Perzentile und Max
+     * kommen aus dem gleitenden Fenster von Micrometer (letzte ~2 Minuten).
+     */
+    private Map<String, Object> serverReport(Map<String, double[]> serverStart) {
+        Map<String, double[]> serverEnd = serverTimers();
+        Map<String, Object> server = new LinkedHashMap<>();
+        for (Map.Entry<String, double[]> e : serverEnd.entrySet()) {
+            double[] start = serverStart.getOrDefault(e.getKey(), new double[2]);
+            double count = e.getValue()[0] - start[0];
+            if (count <= 0) {
+                continue;
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", (long) count);
+            stats.put("meanMs", round((e.getValue()[1] - start[1]) / count));
+            server.put(e.getKey(), stats);
+        }
+        for (Timer timer : context.getBean(MeterRegistry.class).find("http.server.requests").timers()) {
+            String key = timer.getId().getTag("method") + " " + timer.getId().getTag("uri");
+            @SuppressWarnings("unchecked")
+            Map<String, Object> stats = (Map<String, Object>) server.get(key);
+            if (stats == null || stats.containsKey("p50Ms")) {
+                // mehrere Status-Tags pro URI: Perzentile nur vom häufigsten wären irreführend
+                continue;
+            }
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            for (ValueAtPercentile p : snapshot.percentileValues()) {
+                stats.put("p" + Math.round(p.percentile() * 100) + "Ms", round(p.value(TimeUnit.MILLISECONDS)));
+            }
+            stats.put("maxMs", round(snapshot.max(TimeUnit.MILLISECONDS)));
+        }
+        return server;
+    }
+
+    private Map<String, Object> jvmReport(JvmSnapshot start, JvmSnapshot end, HeapSampler heap) {
+        double seconds = (end.nanos - start.nanos) / 1e9;
+        Map<String, Object> jvm = new LinkedHashMap<>();
+        jvm.put("heapMaxMb", mb(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax()));
+        jvm.put("heapUsedPeakMb", mb(heap.peak));
+        jvm.put("heapUsedMeanMb", mb(heap.samples == 0 ? 0 : heap.sum / heap.samples));
+        jvm.put("heapCommittedPeakMb", mb(heap.committedPeak));
+        jvm.put("allocatedMb", mb(end.allocated - start.allocated));
+        jvm.put("allocationMbPerS", round(mb(end.allocated - start.allocated) / seconds));
+        Map<String, Object> gc = new LinkedHashMap<>();
+        long pauseMs = 0;
+        for (Map.Entry<String, long[]> e : end.gc.entrySet()) {
+            long[] before = start.gc.getOrDefault(e.getKey(), new long[2]);
+            long count = e.getValue()[0] - before[0];
+            long timeMs = e.getValue()[1] - before[1];
+            gc.put(e.getKey(), Map.of("count", count, "timeMs", timeMs));
+            // "Concurrent"-Collector laufen neben der Anwendung, das sind keine Pausen
+            if (!e.getKey().contains("Concurrent")) {
+                pauseMs += timeMs;
+            }
+        }
+        jvm.put("gc", gc);
+        jvm.put("gcPauseShare", round(pauseMs / 1000.0 / seconds));
+        return jvm;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void printReport(Map<String, Object> report) {
+        console.println();
+        console.printf(Locale.ROOT, "Jobs: %d angeboten (%.2f/s), %d fertig, %d fehlgeschlagen, %d Timeout, /convert-Status %s%n",
+                report.get("submitted"), report.get("offeredJobsPerS"), report.get("done"), report.get("failed"),
+                report.get("timedOut"), report.get("convertStatus"));
+        console.printf(Locale.ROOT, "Durchsatz: %.2f Jobs/s, %.2f Seiten/s%n",
+                report.get("jobsPerS"), report.get("pagesPerS"));
+        console.printf("%-36s %7s %9s %9s %9s %9s %9s%n", "", "n", "mean", "p50", "p95", "p99", "max");
+        printLatency("Ende-zu-Ende", (Map<String, Object>) report.get("endToEnd"));
+        ((Map<String, Object>) report.get("endToEndByMix")).forEach((label, stats) ->
+                printLatency("  " + label, (Map<String, Object>) stats));
+        ((Map<String, Object>) report.get("client")).forEach((endpoint, stats) ->
+                printLatency("Client " + endpoint, (Map<String, Object>) stats));
+        ((Map<String, Object>) report.get("server")).forEach((endpoint, stats) ->
+                printLatency("Server " + endpoint, (Map<String, Object>) stats));
+
+        Map<String, Object> jvm = (Map<String, Object>) report.get("jvm");
+        console.printf(Locale.ROOT, "Heap: Peak %.0f MB, Mittel %.0f MB (max. %.0f MB), Allokation %.0f MB/s%n",
+                jvm.get("heapUsedPeakMb"), jvm.get("heapUsedMeanMb"), jvm.get("heapMaxMb"), jvm.get("allocationMbPerS"));
+        console.printf(Locale.ROOT, "GC: %s, Pausenanteil %.2f %%%n",
+                jvm.get("gc"), (double) jvm.get("gcPauseShare") * 100);
+    }
+
+    private void printLatency(String label, Map<String, Object> stats) {
+        console.printf(Locale.ROOT, "%-36s %7s %9s %9s %9s %9s %9s%n", label, stats.get("count"),
+                format(stats.get("meanMs")), format(stats.get("p50Ms")), format(stats.get("p95Ms")),
+                format(stats.get("p99Ms")), format(stats.get("maxMs")));
+    }
+
+    private static String format(Object millis) {
+        return millis == null ? "-" : String.format(Locale.ROOT, "%.1f", (Double) millis);
+    }
+
+    private static double mb(long bytes) {
+        return round(bytes / (1024.0 * 1024.0));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    /** GC-Zähler (Anzahl, Zeit in ms) und allokierte Bytes zu einem Zeitpunkt. */
+    private record JvmSnapshot(long nanos, long allocated, Map<String, long[]> gc) {
+
+        static JvmSnapshot take() {
+            Map<String, long[]> gc = new LinkedHashMap<>();
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                gc.put(bean.getName(), new long[]{bean.getCollectionCount(), bean.getCollectionTime()});
+            }
+            long allocated = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                    ? threads.getTotalThreadAllocatedBytes()
+                    : 0;
+            return new JvmSnapshot(System.nanoTime(), allocated, gc);
+        }
+    }
+
+    /** Heap-Belegung alle 100 ms. */
+    private static final class HeapSampler implements Runnable {
+
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        volatile long peak;
+        volatile long committedPeak;
+        volatile long sum;
+        volatile long samples;
+
+        @Override
+        public void run() {
+            long used = memory.getHeapMemoryUsage().getUsed();
+            long committed = memory.getHeapMemoryUsage().getCommitted();
+            peak = Math.max(peak, used);
+            committedPeak = Math.max(committedPeak, committed);
+            sum += used;
+            samples++;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package de.cne.ws25.pdfservice;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Verkehrsmix für den Lasttest, z.B. {@code 1*png@1200x900:50,10*tiff@2480x3508:10}:
+ * pro Eintrag Bilder pro Job, Format ({@code png}, {@code jpeg}, {@code gif}, {@code tiff})
+ * und Pixelgröße, nach dem Doppelpunkt das relative Gewicht.
+ * <p>
+ * PNG/JPEG sind fotoähnlich, GIF eine Grafik mit wenigen Farben, TIFF ein 1-Bit-Scan.
+ * Jedes Bild wird einmal erzeugt; {@link #files} hängt pro Job ein paar Bytes hinter das
+ * Dateiende, damit der Ergebnis-Cache nicht jeden Folgejob als Duplikat erkennt (die
+ * Reader ignorieren alles nach dem Bildende).
+ */
+final class TrafficMix {
+
+    record Entry(String label, int images, String format, int width, int height, int weight, byte[] image) {}
+
+    private final List<Entry> entries;
+    private final int totalWeight;
+
+    private TrafficMix(List<Entry> entries) {
+        this.entries = entries;
+        this.totalWeight = entries.stream().mapToInt(Entry::weight).sum();
+    }
+
+    static TrafficMix parse(String spec) {
+        List<Entry> entries = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String item = part.trim();
+            if (item.isEmpty()) {
+                continue;
+            }
+            try {
+                String[] weighted = item.split(":");
+                String[] counted = weighted[0].split("\\*");
+                String[] sized = counted[1].split("@");
+                String[] dims = sized[1].split("x");
+                int images = Integer.parseInt(counted[0]);
+                String format = sized[0].toLowerCase();
+                int width = Integer.parseInt(dims[0]);
+                int height = Integer.parseInt(dims[1]);
+                int weight = weighted.length > 1 ? Integer.parseInt(weighted[1]) : 1;
+                if (images < 1 || width < 1 || height < 1 || weight < 1) {
+                    throw new IllegalArgumentException("Werte müssen positiv sein");
+                }
+                entries.add(new Entry(weighted[0], images, format, width, height, weight,
+                        render(format, width, height)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Ungültiger Mix-Eintrag '" + item
+                        + "', erwartet <bilder>*<format>@<breite>x<höhe>:<gewicht>", e);
+            }
+        }
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("Leerer Verkehrsmix");
+        }
+        return new TrafficMix(entries);
+    }
+
+    List<Entry> entries() {
+        return entries;
+    }
+
+    Entry pick(Random random) {
+        int r = random.nextInt(totalWeight);
+        for (Entry entry : entries) {
+            r -= entry.weight();
+            if (r < 0) {
+                return entry;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /** Die Bilder eines Jobs, eindeutig gemacht über {@code seq}. */
+    static List<byte[]> files(Entry entry, long seq) {
+        List<byte[]> files = new ArrayList<>(entry.images());
+        for (int i = 0; i < entry.images(); i++) {
+            byte[] image = entry.image();
+            byte[] file = new byte[image.length + 16];
+            System.arraycopy(image, 0, file, 0, image.length);
+            writeLong(file, image.length, seq);
+            writeLong(file, image.length + 8, i);
+            files.add(file);
+        }
+        return files;
+    }
+
+    private static void writeLong(byte[] target, int offset, long value) {
+        for (int i = 0; i < 8; i++) {
+            target[offset + i] = (byte) (value >>> (56 - 8 * i));
+        }
+    }
+
+    private static byte[] render(String format, int width, int height) {
+        BufferedImage image = switch (format) {
+            case "png", "jpeg", "jpg" -> photo(width, height);
+            case "gif" -> graphic(width, height);
+            case "tiff", "tif" -> scan(width, height);
+            default -> throw new IllegalArgumentException("Unbekanntes Format " + format);
+        };
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            if (!ImageIO.write(image, format.startsWith("tif") ? "tiff" : format, bytes)) {
+                throw new IllegalArgumentException("Kein ImageIO-Writer für " + format);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Weiche Verläufe mit etwas Rauschen, komprimiert ungefähr wie ein Foto. */
+    private static BufferedImage photo(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random noise = new Random(width * 31L + height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int n = noise.nextInt(16);
+                int r = (x * 255 / width + n) & 0xFF;
+                int g = (y * 255 / height + n) & 0xFF;
+                int b = ((x + y) * 127 / (width + height) + 64 + n) & 0xFF;
+                image.setRGB(x, y, r << 16 | g << 8 | b);
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage graphic(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        Color[] palette = {Color.RED, Color.BLUE, Color.ORANGE, Color.DARK_GRAY};
+        for (int i = 0; i < 12; i++) {
+            g.setColor(palette[i % palette.length]);
+            g.fillRect(i * width / 14, height / 10 + (i % 3) * height / 4, width / 16, height / 5);
+        }
+        g.dispose();
+        return image;
+    }
+
+    /** Textzeilen auf weißem Grund, wie eine eingescannte Seite. */
+    private static BufferedImage scan(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.BLACK);
+        g.setStroke(new BasicStroke(Math.max(1, height / 400f)));
+        Random words = new Random(width * 17L + height);
+        int lineHeight = Math.max(4, height / 60);
+        for (int y = height / 12; y < height * 11 / 12; y += lineHeight) {
+            int x = width / 10;
+            while (x < width * 9 / 10) {
+                int word = lineHeight + words.nextInt(lineHeight * 3);
+                g.fillRect(x, y, Math.min(word, width * 9 / 10 - x), lineHeight / 2);
+                x += word + lineHeight / 2;
+            }
+        }
+        g.dispose();
+        return image;
+    }
+}
@@ -1,45 +1,155 @@
 package de.cne.ws25.pdfservice;
 
-import com.google.cloud.storage.Blob;
-import com.google.cloud.storage.BlobId;
-import com.google.cloud.storage.Storage;
-import com.google.cloud.storage.StorageOptions;
+import de.cne.ws25.pdfservice.admission.AdmissionControl;
+import de.cne.ws25.pdfservice.convert.EncodingProfile;
+import de.cne.ws25.pdfservice.convert.ImageInput;
+import de.cne.ws25.pdfservice.convert.ImageToPdfService;
+import de.cne.ws25.pdfservice.convert.MemoryBudgetExceededException;
+import de.cne.ws25.pdfservice.jobs.JobStatus;
+import de.cne.ws25.pdfservice.jobs.JobStatusRegistry;
+import de.cne.ws25.pdfservice.jobs.PdfJobHandler;
 import de.cne.ws25.pdfservice.jobs.PdfJobMessage;
 import de.cne.ws25.pdfservice.jobs.PdfJobPublisher;
-import de.cne.ws25.pdfservice.storage.GcsStorageService;
+import de.cne.ws25.pdfservice.jobs.ResultCache;
+import de.cne.ws25.pdfservice.metrics.CountingOutputStream;
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import de.cne.ws25.pdfservice.storage.BlobStore;
 import de.cne.ws25.pdfservice.storage.StoredFile;
+import de.cne.ws25.pdfservice.storage.UploadStorageService;
+import de.cne.ws25.pdfservice.tracing.JobTracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Scope;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 
 @RestController
 public class ConvertController {
 
-    private final GcsStorageService storageService;
+    private static final Logger log = LoggerFactory.getLogger(ConvertController.class);
+
+    private static final String JOB_TYPE = "IMAGE_TO_PDF";
+
+    // Interceptor am Async-Request, der den Sync-Slot auch ohne gelaufenen Body zurückgibt
+    private static final String SYNC_SLOT = ConvertController.class.getName() + ".syncSlot";
+
+    // Job-IDs sind UUIDs (siehe convert); alles andere ist 404, bevor es in Objektnamen oder HTML landet
+    private static final Pattern JOB_ID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    private final UploadStorageService storageService;
+    private final BlobStore blobStore;
     private final PdfJobPublisher jobPublisher;
+    private final JobStatusRegistry jobStatusRegistry;
+    private final ImageToPdfService imageToPdfService;
+    private final ResultCache resultCache;
+    private final AdmissionControl admissionControl;
+    private final JobTracing tracing;
+    private final PipelineMetrics metrics;
     private final String outputBucket;
-    private final Storage storage;
+    private final long sseTimeoutMs;
+    private final int maxPages;
+    private final long backlogRetryAfterS;
+
+    // synchroner Pfad: nur kleine Jobs, begrenzte Anzahl gleichzeitig
+    private final int syncMaxFiles;
+    private final long syncMaxTotalBytes;
+    private final Semaphore syncPermits;
 
     public ConvertController(
-            GcsStorageService storageService,
+            UploadStorageService storageService,
+            BlobStore blobStore,
             PdfJobPublisher jobPublisher,
-            @Value("${app.bucket.output}") String outputBucket
+            JobStatusRegistry jobStatusRegistry,
+            ImageToPdfService imageToPdfService,
+            ResultCache resultCache,
+            AdmissionControl admissionControl,
+            JobTracing tracing,
+            PipelineMetrics metrics,
+            @Value("${app.bucket.output}") String outputBucket,
+            @Value("${app.jobs.sse-timeout-ms:300000}") long sseTimeoutMs,
+            @Value("${app.jobs.max-pages:500}") int maxPages,
+            @Value("${app.admission.retry-after-s:10}") long backlogRetryAfterS,
+            @Value("${app.sync.max-files:3}") int syncMaxFiles,
+            @Value("${app.sync.max-total-kb:2048}") long syncMaxTotalKb,
+            @Value("${app.sync.max-concurrent:2}") int syncMaxConcurrent
     ) {
         this.storageService = storageService;
+        this.blobStore = blobStore;
         this.jobPublisher = jobPublisher;
+        this.jobStatusRegistry = jobStatusRegistry;
+        this.imageToPdfService = imageToPdfService;
+        this.resultCache = resultCache;
+        this.admissionControl = admissionControl;
+        this.tracing = tracing;
+        this.metrics = metrics;
         this.outputBucket = outputBucket;
-        this.storage = StorageOptions.getDefaultInstance().getService();
+        this.sseTimeoutMs = sseTimeoutMs;
+        this.maxPages = maxPages;
+        this.backlogRetryAfterS = backlogRetryAfterS;
+        this.syncMaxFiles = syncMaxFiles;
+        this.syncMaxTotalBytes = syncMaxTotalKb * 1024;
+        this.syncPermits = new Semaphore(Math.max(0, syncMaxConcurrent));
     }
 
+    /**
+     * mode=async: immer über Bucket + Pub/Sub (303 auf /job/{id}).
+     * mode=sync oder ohne mode: kleine Uploads direkt als application/pdf beantworten,
+     * sofern ein Sync-Slot frei ist; sonst ebenfalls asynchron.
+     * profile=archive|balanced|small wählt die Kodierung (ohne Angabe {@code app.convert.profile}).
+     * <p>
+     * Der Rückgabetyp muss StreamingResponseBody nennen, sonst greift Spring nicht
+     * zum Streaming-Handler (Redirects/Fehler haben einfach keinen Body).
+     */
     @PostMapping(value = "/convert", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Void> uploadAndEnqueue(@RequestParam("file") MultipartFile[] files) {
-        System.out.println("### ConvertController LIVE VERSION (multi-image) ###");
+    public ResponseEntity<StreamingResponseBody> uploadAndEnqueue(
+            @RequestParam("file") MultipartFile[] files,
+            @RequestParam(value = "mode", required = false) String mode,
+            @RequestParam(value = "profile", required = false) String profileName,
+            @RequestHeader(value = "traceparent", required = false) String traceparent,
+            HttpServletRequest request
+    ) {
+        // Wurzel des Job-Traces, reist über die Pub/Sub-Attribute bis in den Worker
+        Span span = tracing.startUpload(traceparent);
+        try (Scope ignored = span.makeCurrent()) {
+            ResponseEntity<StreamingResponseBody> response = convert(files, mode, profileName, request);
+            span.setAttribute("http.response.status_code", response.getStatusCode().value());
+            return response;
+        } finally {
+            span.end();
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> convert(MultipartFile[] files, String mode, String profileName,
+                                                          HttpServletRequest request) {
         try {
             if (files == null || files.length == 0) {
                 return ResponseEntity.badRequest().build();
@@ -47,24 +157,69 @@ public class ConvertController {
 
             // 1. Job-ID erzeugen (brauchen wir für Status /job/{id}, nicht fürs Uploaden)
             String jobId = UUID.randomUUID().toString();
+            Span.current().setAttribute("pdf.job.id", jobId);
 
-            // 2. Alle Dateien ins Input-Bucket laden
-            List<String> objectNames = new java.util.ArrayList<>();
-            String inputBucket = null;
+            // 2. Alle Dateien parallel ins Input-Bucket streamen
+            List<MultipartFile> nonEmpty = Arrays.stream(files)
+                    .filter(file -> !file.isEmpty())
+                    .toList();
 
-            for (MultipartFile file : files) {
-                if (file.isEmpty()) continue;
+            if (nonEmpty.isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+            if (nonEmpty.size() > maxPages) {
+                throw new IllegalArgumentException("Zu viele Bilder (max. " + maxPages + ")");
+            }
+            // mehrseitige TIFFs/GIFs: jeder Frame wird eine Seite
+            List<Integer> filePages = countPages(nonEmpty);
+            int pages = filePages.stream().mapToInt(Integer::intValue).sum();
+            if (pages > maxPages) {
+                throw new IllegalArgumentException("Zu viele Seiten (max. " + maxPages + ")");
+            }
 
-                StoredFile stored = storageService.store(file);
-                objectNames.add(stored.objectName());
-                if (inputBucket == null) {
-                    inputBucket = stored.bucket();
-                }
+            EncodingProfile profile = imageToPdfService.profile(profileName);
+
+            if (!"async".equalsIgnoreCase(mode) && isSmall(nonEmpty, pages) && syncPermits.tryAcquire()) {
+                return convertSync(nonEmpty, profile, request);
             }
 
-            if (objectNames.isEmpty()) {
-                return ResponseEntity.badRequest().build();
+            // Platz im Rückstand reservieren; ist er voll, lieber jetzt 429 als das PDF in ein paar Minuten
+            if (!admissionControl.tryAccept(jobId, pages)) {
+                log.info("Job mit {} Seiten abgewiesen: Rückstand zu groß", pages);
+                metrics.rejected("backlog");
+                return ResponseEntity.status(429)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(backlogRetryAfterS))
+                        .build();
+            }
+
+            List<StoredFile> stored;
+            try {
+                stored = storageService.storeAll(nonEmpty);
+            } catch (Exception e) {
+                admissionControl.release(jobId);
+                throw e;
+            }
+
+            // gleiche Bilder in gleicher Reihenfolge -> vorhandenen oder laufenden Job wiederverwenden.
+            // Die Hashes entstehen beim Hochladen (kein zweiter Durchlauf über alle Dateien), ein
+            // Treffer kostet dafür einen Upload, der gleich wieder gelöscht wird
+            List<String> hashes = stored.stream().map(StoredFile::sha256).toList();
+            // anderes Profil, andere DPI oder JPEG-Qualität = anderes PDF
+            String cacheKey = ResultCache.jobKey(hashes, JOB_TYPE + ":" + imageToPdfService.settingsId(profile));
+            String existingJobId = resultCache.claim(cacheKey, jobId);
+            if (existingJobId != null) {
+                log.info("Cache-Treffer, verwende Job {}", existingJobId);
+                admissionControl.release(jobId);
+                storageService.deleteAll(stored);
+                return ResponseEntity
+                        .status(303)
+                        .header(HttpHeaders.LOCATION, "/job/" + existingJobId)
+                        .build();
             }
+            List<String> objectNames = stored.stream()
+                    .map(StoredFile::objectName)
+                    .toList();
+            String inputBucket = stored.get(0).bucket();
 
             // 3. Job für Worker bauen: Bucket + Liste von Objekten
             PdfJobMessage job = new PdfJobMessage(
@@ -72,10 +227,30 @@ public class ConvertController {
                     inputBucket,
                     objectNames,     // alle Bilder
                     outputBucket,
-                    "IMAGE_TO_PDF"
+                    JOB_TYPE,
+                    profile.id(),
+                    pages,
+                    filePages,       // Seiten je Bild, Shards können so auch mitten in einem TIFF beginnen
+                    null
             );
 
-            jobPublisher.publish(job);
+            // vor dem Publish vormerken, damit der Status nie hinter dem des Workers liegt
+            jobStatusRegistry.registerQueued(jobId, pages);
+
+            // je nach Durability auf die Bestätigung von Pub/Sub warten oder direkt antworten
+            // große Jobs gehen als mehrere Shards raus, die Eingabegröße bestimmt mit die Lane
+            long inputBytes = stored.stream().mapToLong(StoredFile::size).sum();
+            // ASYNC: gibt die Outbox später auf, wird genauso aufgeräumt wie hier bei ACKED
+            CompletableFuture<Void> published = jobPublisher.publishSharded(job, inputBytes,
+                    () -> abandon(jobId, cacheKey, pages, stored));
+            if (jobPublisher.requiresAck()) {
+                try {
+                    published.get();
+                } catch (Exception e) {
+                    abandon(jobId, cacheKey, pages, stored);
+                    throw e;
+                }
+            }
 
             // 4. Redirect auf /job/{jobId}
             String statusUrl = "/job/" + jobId;
@@ -84,23 +259,143 @@ public class ConvertController {
                     .header(HttpHeaders.LOCATION, statusUrl)
                     .build();
 
+        } catch (MemoryBudgetExceededException e) {
+            // synchroner Pfad, Instanz gerade ausgelastet
+            log.info("Konvertierung zurückgewiesen: {}", e.getMessage());
+            metrics.failure("convert", e);
+            return ResponseEntity.status(503)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        } catch (IllegalArgumentException e) {
+            // ungültiges Format / zu groß
+            log.info("Upload abgelehnt: {}", e.getMessage());
+            metrics.failure("convert", e);
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
-            e.printStackTrace();
+            if (PdfJobHandler.isPermanent(e)) {
+                // kaputtes/abgeschnittenes Bild (Decoder-Fehler), gleiche Regel wie im Worker
+                log.info("Upload abgelehnt: {}", e.getMessage());
+                metrics.failure("convert", e);
+                return ResponseEntity.badRequest().build();
+            }
+            log.error("Upload fehlgeschlagen", e);
+            Span.current().recordException(e);
+            metrics.failure("convert", e);
             return ResponseEntity.internalServerError().build();
         }
     }
 
 
+    /**
+     * Job, der nie bei einem Worker ankommt: Reservierungen freigeben, Eingaben löschen, als FAILED markieren.
+     */
+    private void abandon(String jobId, String cacheKey, int pages, List<StoredFile> stored) {
+        resultCache.release(cacheKey, jobId);
+        admissionControl.release(jobId);
+        // wer die ID über einen gleichzeitigen Cache-Treffer kennt, soll nicht ewig warten
+        jobStatusRegistry.update(JobStatus.failed(jobId, 0, pages, "Job konnte nicht eingereiht werden"));
+        storageService.deleteAll(stored);
+    }
+
+    private List<Integer> countPages(List<MultipartFile> files) throws IOException {
+        List<Integer> pages = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            try (InputStream in = file.getInputStream()) {
+                pages.add(imageToPdfService.countPages(in));
+            }
+        }
+        return pages;
+    }
+
+    private boolean isSmall(List<MultipartFile> files, int pages) {
+        if (pages > syncMaxFiles) {
+            return false;
+        }
+        long total = 0;
+        for (MultipartFile file : files) {
+            total += file.getSize();
+        }
+        return total <= syncMaxTotalBytes;
+    }
+
+    /**
+     * Direkt im Request konvertieren, ohne Buckets und Queue. Der Sync-Slot
+     * wird erst freigegeben, wenn das PDF vollständig geschrieben ist – oder wenn der
+     * Async-Request endet, ohne dass der Body je lief (Client weg, Timeout, Dispatch-Fehler).
+     */
+    private ResponseEntity<StreamingResponseBody> convertSync(List<MultipartFile> files, EncodingProfile profile,
+                                                              HttpServletRequest request) throws Exception {
+        PDDocument doc;
+        try {
+            List<ImageInput> images = new ArrayList<>(files.size());
+            for (MultipartFile file : files) {
+                images.add(new ImageInput(file.getOriginalFilename(), file.getBytes()));
+                metrics.bytesIn("sync", file.getSize());
+            }
+            doc = imageToPdfService.createDocument(images, profile);
+        } catch (Exception e) {
+            syncPermits.release();
+            throw e;
+        }
+
+        // genau einmal: vom Body oder beim Abschluss des Async-Requests, was zuerst kommt
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                try {
+                    doc.close();
+                } catch (IOException e) {
+                    log.warn("Dokument nicht geschlossen: {}", e.getMessage());
+                } finally {
+                    syncPermits.release();
+                }
+            }
+        };
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(SYNC_SLOT,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        release.run();
+                    }
+                });
+
+        StreamingResponseBody body = out -> {
+            CountingOutputStream counting = new CountingOutputStream(out);
+            long start = System.nanoTime();
+            try {
+                doc.save(counting);
+                metrics.stage(PipelineMetrics.Stage.SAVE, start);
+                metrics.bytesOut("sync", counting.getCount());
+            } finally {
+                release.run();
+            }
+        };
+
+        return ResponseEntity
+                .ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"output.pdf\"")
+                .body(body);
+    }
+
     @GetMapping("/job/{jobId}")
     public ResponseEntity<String> jobStatus(@PathVariable String jobId) {
+        if (!isJobId(jobId)) {
+            return ResponseEntity.notFound().build();
+        }
         try {
             String outputObject = "jobs/" + jobId + "/output.pdf";
 
-            BlobId blobId = BlobId.of(outputBucket, outputObject);
-            Blob blob = storage.get(blobId);
-            boolean exists = (blob != null && blob.exists());
+            JobStatus status = jobStatusRegistry.lookup(jobId);
+
+            if (status.state() == JobStatus.State.FAILED) {
+                return ResponseEntity
+                        .ok()
+                        .contentType(MediaType.TEXT_HTML)
+                        .body(failedHtml(jobId, status.error()));
+            }
 
-            if (!exists) {
+            if (status.state() != JobStatus.State.DONE) {
                 // Warten-Ansicht
                 String html = """
                         <!doctype html>
@@ -111,8 +406,8 @@ public class ConvertController {
                           <link rel="stylesheet" href="/css/style.css">
                           <link rel="stylesheet" href="https://fonts.googleapis.com/css?family=Roboto:300,400,500">
                           <link rel="stylesheet" href="https://fonts.googleapis.com/icon?family=Material+Icons">
-                          <!-- alle 3 Sekunden neu laden -->
-                          <meta http-equiv="refresh" content="3">
+                          <!-- ohne JavaScript: alle 3 Sekunden neu laden -->
+                          <noscript><meta http-equiv="refresh" content="3"></noscript>
                         </head>
                         <body>
                           <div class="page-wrapper">
@@ -127,6 +422,7 @@ public class ConvertController {
                                 <p>Dein Bild wurde hochgeladen und wird nun im Hintergrund in ein PDF konvertiert.</p>
                                 <p>Diese Seite aktualisiert sich automatisch, sobald das PDF fertig ist.</p>
                                 <div class="spinner"></div>
+                                <p id="progress">%s</p>
                                 <div class="links">
                                   <a class="btn-link" href="/job/%s">Manuell neu laden</a>
                                   ·
@@ -135,9 +431,24 @@ public class ConvertController {
                               </div>
                             </main>
                           </div>
+                          <script>
+                            // Server-Sent Events: neu laden, sobald der Job fertig ist
+                            const source = new EventSource('/job/%s/events');
+                            source.addEventListener('status', e => {
+                              const s = JSON.parse(e.data);
+                              if (s.pagesTotal > 0) {
+                                document.getElementById('progress').textContent =
+                                    s.pagesDone + ' / ' + s.pagesTotal + ' Seiten';
+                              }
+                              if (s.state === 'DONE' || s.state === 'FAILED') {
+                                source.close();
+                                location.reload();
+                              }
+                            });
+                          </script>
                         </body>
                         </html>
-                        """.formatted(jobId, jobId);
+                        """.formatted(HtmlUtils.htmlEscape(jobId), progressText(status), jobId, jobId);
 
                 return ResponseEntity
                         .ok()
@@ -146,11 +457,11 @@ public class ConvertController {
             }
 
             // Fertig-Ansicht
-            String pdfUrl = String.format(
-                    "https://storage.googleapis.com/%s/%s",
-                    outputBucket,
-                    outputObject
-            );
+            // GCS: direkt aus dem Bucket, sonst über /job/{id}/output.pdf
+            String pdfUrl = blobStore.publicUrl(outputBucket, outputObject);
+            if (pdfUrl == null) {
+                pdfUrl = "/job/" + jobId + "/output.pdf";
+            }
 
             String html = """
                     <!doctype html>
@@ -187,7 +498,7 @@ public class ConvertController {
                       </div>
                     </body>
                     </html>
-                    """.formatted(jobId, pdfUrl);
+                    """.formatted(HtmlUtils.htmlEscape(jobId), HtmlUtils.htmlEscape(pdfUrl));
 
             return ResponseEntity
                     .ok()
@@ -195,10 +506,117 @@ public class ConvertController {
                     .body(html);
 
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Job-Status für {} nicht lesbar", jobId, e);
             return ResponseEntity.internalServerError()
                     .contentType(MediaType.TEXT_PLAIN)
                     .body("Fehler beim Lesen des Job-Status: " + e.getMessage());
         }
     }
+
+    /**
+     * Fertiges PDF über die Anwendung ausliefern (für Backends ohne öffentliche URL).
+     * Lokal geht das per transferTo ohne Umweg über den Heap.
+     */
+    @GetMapping("/job/{jobId}/output.pdf")
+    public ResponseEntity<StreamingResponseBody> jobOutput(@PathVariable String jobId) {
+        if (!isJobId(jobId)) {
+            return ResponseEntity.notFound().build();
+        }
+        String outputObject = "jobs/" + jobId + "/output.pdf";
+        if (blobStore.stat(outputBucket, outputObject) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        StreamingResponseBody body = out -> blobStore.transferTo(outputBucket, outputObject, Channels.newChannel(out));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + jobId + ".pdf\"")
+                .body(body);
+    }
+
+    /**
+     * Aktueller Status als JSON (aus dem Cache, kein GCS-Zugriff pro Aufruf).
+     */
+    @GetMapping("/job/{jobId}/status")
+    public ResponseEntity<JobStatus> jobStatusJson(@PathVariable String jobId) {
+        if (!isJobId(jobId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(jobStatusRegistry.lookup(jobId));
+    }
+
+    /**
+     * Server-Sent Events mit jedem Statuswechsel; endet, sobald der Job DONE/FAILED ist.
+     */
+    @GetMapping(value = "/job/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter jobEvents(@PathVariable String jobId) {
+        if (!isJobId(jobId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+
+        Runnable unsubscribe = jobStatusRegistry.subscribe(jobId, status -> sendStatus(emitter, status));
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+
+        // erst nach dem Abonnieren lesen, damit kein Wechsel verloren geht
+        sendStatus(emitter, jobStatusRegistry.lookup(jobId));
+        return emitter;
+    }
+
+    private void sendStatus(SseEmitter emitter, JobStatus status) {
+        try {
+            emitter.send(SseEmitter.event().name("status").data(status));
+            if (status.isTerminal()) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client weg oder Emitter schon beendet
+            emitter.completeWithError(e);
+        }
+    }
+
+    private static boolean isJobId(String jobId) {
+        return jobId != null && JOB_ID.matcher(jobId).matches();
+    }
+
+    private static String progressText(JobStatus status) {
+        if (status.pagesTotal() <= 0) {
+            return "";
+        }
+        return status.pagesDone() + " / " + status.pagesTotal() + " Seiten";
+    }
+
+    private static String failedHtml(String jobId, String error) {
+        return """
+                <!doctype html>
+                <html lang="de">
+                <head>
+                  <meta charset="UTF-8">
+                  <title>CNSE Convert – Fehler</title>
+                  <link rel="stylesheet" href="/css/style.css">
+                  <link rel="stylesheet" href="https://fonts.googleapis.com/css?family=Roboto:300,400,500">
+                </head>
+                <body>
+                  <div class="page-wrapper">
+                    <header class="page-header">
+                      <div class="brand">CNSE Convert</div>
+                      <div class="subtitle">Conversion failed.</div>
+                    </header>
+
+                    <main>
+                      <div class="card center">
+                        <div class="job-id">Job-ID: %s</div>
+                        <p>Dein PDF konnte leider nicht erstellt werden.</p>
+                        <p>%s</p>
+                        <div class="links">
+                          <a class="btn-link" href="/">Neues Bild hochladen</a>
+                        </div>
+                      </div>
+                    </main>
+                  </div>
+                </body>
+                </html>
+                """.formatted(HtmlUtils.htmlEscape(jobId), HtmlUtils.htmlEscape(error == null ? "" : error));
+    }
 }
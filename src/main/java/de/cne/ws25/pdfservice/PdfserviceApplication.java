@@ -1,5 +1,6 @@
 package de.cne.ws25.pdfservice;
 
+import de.cne.ws25.pdfservice.config.StartupWarmup;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -7,7 +8,17 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class PdfserviceApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(PdfserviceApplication.class, args);
+		application().run(args);
+	}
+
+	/**
+	 * Anwendung wie in Produktion, auch für den Startup-Benchmark.
+	 */
+	static SpringApplication application() {
+		SpringApplication application = new SpringApplication(PdfserviceApplication.class);
+		// Codecs parallel zum Kontext aufwärmen (Kaltstart)
+		application.addListeners(new StartupWarmup());
+		return application;
 	}
 
 }
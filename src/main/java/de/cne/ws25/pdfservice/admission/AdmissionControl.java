@@ -0,0 +1,134 @@
+package de.cne.ws25.pdfservice.admission;
+
+import de.cne.ws25.pdfservice.jobs.JobStatusRegistry;
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Globale Grenze für asynchrone Jobs: wie viele Jobs/Seiten diese Instanz angenommen
+ * hat, die noch nicht fertig sind (wartend in Pub/Sub oder laufend im Worker). Ist der
+ * Rückstand zu groß, werden neue Uploads mit 429 abgewiesen statt Minuten später
+ * bedient zu werden.
+ * <p>
+ * Fertig wird ein Job über den {@link JobStatusRegistry} (lokale Worker-Updates sofort
+ * im Cache, sonst {@code status.json}), abgeglichen alle {@code reconcile-interval-ms}.
+ * Jobs, die nach {@code app.cache.pending-timeout-ms} noch offen sind, gelten als
+ * verloren und zählen nicht mehr.
+ */
+@Component
+public class AdmissionControl {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControl.class);
+
+    private record Outstanding(int pages, long acceptedAt) {}
+
+    private final JobStatusRegistry jobStatusRegistry;
+    private final int maxJobs;
+    private final long maxPages;
+    private final long timeoutMs;
+    private final long reconcileIntervalMs;
+
+    private final Map<String, Outstanding> outstanding = new ConcurrentHashMap<>();
+    private final AtomicInteger outstandingJobs = new AtomicInteger();
+    private final AtomicLong outstandingPages = new AtomicLong();
+
+    private final ScheduledExecutorService reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "admission-reconcile");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public AdmissionControl(
+            JobStatusRegistry jobStatusRegistry,
+            PipelineMetrics metrics,
+            @Value("${app.admission.max-jobs:200}") int maxJobs,
+            @Value("${app.admission.max-pages:10000}") long maxPages,
+            @Value("${app.admission.reconcile-interval-ms:5000}") long reconcileIntervalMs,
+            @Value("${app.cache.pending-timeout-ms:600000}") long timeoutMs
+    ) {
+        this.jobStatusRegistry = jobStatusRegistry;
+        this.maxJobs = maxJobs;
+        this.maxPages = maxPages;
+        this.timeoutMs = timeoutMs;
+        this.reconcileIntervalMs = reconcileIntervalMs;
+
+        metrics.gauge("pdf.admission.outstanding.jobs", "Angenommene, noch nicht fertige Jobs",
+                outstandingJobs, AtomicInteger::get);
+        metrics.gauge("pdf.admission.outstanding.pages", "Seiten angenommener, noch nicht fertiger Jobs",
+                outstandingPages, AtomicLong::get);
+    }
+
+    /** Abgleich erst nach dem Konstruktor starten, sonst läuft er auf einem halb fertigen Objekt. */
+    @PostConstruct
+    void start() {
+        reconciler.scheduleWithFixedDelay(this::reconcile, reconcileIntervalMs, reconcileIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        reconciler.shutdownNow();
+    }
+
+    /** Ist noch Platz für einen weiteren Job? Billige Vorprüfung vor dem Lesen des Uploads. */
+    public boolean hasCapacity() {
+        return outstandingJobs.get() < maxJobs && outstandingPages.get() < maxPages;
+    }
+
+    /**
+     * Platz für einen Job mit {@code pages} Seiten reservieren; {@code false}, wenn der
+     * Rückstand voll ist. Zählt ab jetzt mit, bis der Job fertig ist oder
+     * {@link #release} ihn zurückgibt (z.B. weil das Veröffentlichen scheiterte).
+     */
+    public boolean tryAccept(String jobId, int pages) {
+        // erst zählen, dann prüfen: parallele Uploads können so nicht gemeinsam durchrutschen
+        if (outstandingJobs.incrementAndGet() > maxJobs) {
+            outstandingJobs.decrementAndGet();
+            return false;
+        }
+        long total = outstandingPages.addAndGet(pages);
+        // ein einzelner großer Job darf bei leerer Queue immer rein
+        if (total > maxPages && total != pages) {
+            outstandingPages.addAndGet(-pages);
+            outstandingJobs.decrementAndGet();
+            return false;
+        }
+        outstanding.put(jobId, new Outstanding(pages, System.currentTimeMillis()));
+        return true;
+    }
+
+    public void release(String jobId) {
+        Outstanding job = outstanding.remove(jobId);
+        if (job != null) {
+            outstandingJobs.decrementAndGet();
+            outstandingPages.addAndGet(-job.pages());
+        }
+    }
+
+    void reconcile() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Outstanding> e : outstanding.entrySet()) {
+            try {
+                if (now - e.getValue().acceptedAt() > timeoutMs
+                        || jobStatusRegistry.lookup(e.getKey()).isTerminal()) {
+                    release(e.getKey());
+                }
+            } catch (Exception ex) {
+                log.warn("Status für Job {} nicht abgleichbar: {}", e.getKey(), ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package de.cne.ws25.pdfservice.admission;
+
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Zugangskontrolle vor {@code POST /convert}, noch bevor Spring den Multipart-Body
+ * liest: erst der Token-Bucket des Clients ({@link ClientRateLimiter}), dann der
+ * globale Rückstand ({@link AdmissionControl}). Abgewiesen wird mit 429 und
+ * {@code Retry-After}.
+ * <p>
+ * Client = API-Key aus {@code app.ratelimit.api-key-header}, aber nur für Keys aus
+ * {@code app.ratelimit.api-keys} (sonst könnte jeder mit einem neuen Key ein frisches
+ * Kontingent holen), ansonsten die IP. Hinter einem Load Balancer (Cloud Run) mit
+ * {@code app.ratelimit.trust-forwarded=true} der letzte Eintrag aus X-Forwarded-For.
+ */
+@Component
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionFilter.class);
+
+    private final ClientRateLimiter rateLimiter;
+    private final AdmissionControl admissionControl;
+    private final PipelineMetrics metrics;
+    private final boolean rateLimitEnabled;
+    private final String apiKeyHeader;
+    private final Set<String> apiKeys;
+    private final boolean trustForwarded;
+    private final long backlogRetryAfterS;
+
+    public AdmissionFilter(
+            ClientRateLimiter rateLimiter,
+            AdmissionControl admissionControl,
+            PipelineMetrics metrics,
+            @Value("${app.ratelimit.enabled:true}") boolean rateLimitEnabled,
+            @Value("${app.ratelimit.api-key-header:X-API-Key}") String apiKeyHeader,
+            @Value("${app.ratelimit.api-keys:}") String apiKeys,
+            @Value("${app.ratelimit.trust-forwarded:false}") boolean trustForwarded,
+            @Value("${app.admission.retry-after-s:10}") long backlogRetryAfterS
+    ) {
+        this.rateLimiter = rateLimiter;
+        this.admissionControl = admissionControl;
+        this.metrics = metrics;
+        this.rateLimitEnabled = rateLimitEnabled;
+        this.apiKeyHeader = apiKeyHeader;
+        this.apiKeys = Arrays.stream(apiKeys.split(","))
+                .map(String::trim)
+                .filter(key -> !key.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.trustForwarded = trustForwarded;
+        this.backlogRetryAfterS = backlogRetryAfterS;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !("POST".equals(request.getMethod()) && "/convert".equals(request.getServletPath()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (rateLimitEnabled) {
+            long waitNanos = rateLimiter.tryAcquire(clientKey(request));
+            if (waitNanos > 0) {
+                metrics.rejected("client");
+                reject(response, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)));
+                return;
+            }
+        }
+        if (!admissionControl.hasCapacity()) {
+            log.debug("Upload abgewiesen: zu viele offene Jobs");
+            metrics.rejected("backlog");
+            reject(response, backlogRetryAfterS);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        String apiKey = request.getHeader(apiKeyHeader);
+        if (apiKey != null && apiKeys.contains(apiKey)) {
+            return "key:" + apiKey;
+        }
+        if (trustForwarded) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isBlank()) {
+                // den letzten Eintrag hat der Load Balancer selbst angehängt, davor kann der Client alles schreiben
+                return "ip:" + forwarded.substring(forwarded.lastIndexOf(',') + 1).trim();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private static void reject(HttpServletResponse response, long retryAfterS) throws IOException {
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterS));
+        // der Body bleibt ungelesen, Tomcat schließt die Verbindung danach – das dem Client auch sagen,
+        // sonst nimmt er sie für den nächsten Request wieder aus dem Pool
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("Zu viele Anfragen, bitte in " + retryAfterS + " s erneut versuchen");
+    }
+}
@@ -0,0 +1,115 @@
+package de.cne.ws25.pdfservice.admission;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-Bucket pro Client (API-Key oder IP), lock-frei: pro Client nur ein
+ * {@link AtomicLong} mit dem Zeitpunkt, ab dem der Bucket wieder voll ist (GCRA).
+ * Ein Request ist ein CAS, die Map ist in sich gestreift.
+ * <p>
+ * Ein voller Bucket trägt keine Information – solche Einträge (Client lange nicht
+ * gesehen) können jederzeit verworfen werden. Das passiert, sobald mehr als
+ * {@code maxClients} Einträge in der Map liegen; der Speicher bleibt so begrenzt.
+ * Reicht das nicht, gehen die aktiven Buckets mit der geringsten Schuld, gedrosselte
+ * Clients werden also nicht durch viele neue zurückgesetzt.
+ */
+@Component
+public class ClientRateLimiter {
+
+    private final long intervalNanos;       // Abstand zwischen zwei Tokens
+    private final long burstNanos;          // so weit darf der Bucket "vorauslaufen"
+    private final int maxClients;
+    private final LongSupplier clock;
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    @Autowired
+    public ClientRateLimiter(
+            @Value("${app.ratelimit.requests-per-minute:30}") double requestsPerMinute,
+            @Value("${app.ratelimit.burst:10}") int burst,
+            @Value("${app.ratelimit.max-clients:10000}") int maxClients
+    ) {
+        this(requestsPerMinute, burst, maxClients, System::nanoTime);
+    }
+
+    ClientRateLimiter(double requestsPerMinute, int burst, int maxClients, LongSupplier clock) {
+        if (requestsPerMinute <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate und Burst müssen positiv sein");
+        }
+        this.intervalNanos = (long) (TimeUnit.MINUTES.toNanos(1) / requestsPerMinute);
+        this.burstNanos = intervalNanos * burst;
+        this.maxClients = maxClients;
+        this.clock = clock;
+    }
+
+    /**
+     * Ein Token für {@code client} nehmen. Liefert 0, wenn der Request durch darf,
+     * sonst die Wartezeit in Nanosekunden bis zum nächsten Token.
+     */
+    public long tryAcquire(String client) {
+        long now = clock.getAsLong();
+        AtomicLong bucket = buckets.get(client);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(client, c -> new AtomicLong(now));
+            if (buckets.size() > maxClients) {
+                evictIdle(now, client);
+            }
+        }
+        while (true) {
+            long full = bucket.get();                       // ab hier wäre der Bucket voll
+            long next = Math.max(full, now) + intervalNanos;
+            if (next - now > burstNanos) {
+                return next - now - burstNanos;
+            }
+            if (bucket.compareAndSet(full, next)) {
+                return 0;
+            }
+        }
+    }
+
+    int clients() {
+        return buckets.size();
+    }
+
+    private void evictIdle(long now, String keep) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // strikt kleiner: gerade angelegte Buckets (Wert == now) bleiben stehen
+            buckets.values().removeIf(bucket -> bucket.get() - now < 0);
+            if (buckets.size() <= maxClients) {
+                return;
+            }
+            // alle aktiv: zuerst die, deren Bucket am frühesten wieder voll ist (am längsten
+            // nicht oder kaum benutzt) – wer gerade gedrosselt wird, behält seinen Stand.
+            // Gleich 10 % Luft schaffen, damit nicht jeder neue Client wieder sortiert.
+            int target = maxClients - maxClients / 10;
+            List<Map.Entry<String, Long>> active = new ArrayList<>(buckets.size());
+            buckets.forEach((client, bucket) -> active.add(Map.entry(client, bucket.get())));
+            active.sort(Map.Entry.comparingByValue());
+            for (Map.Entry<String, Long> e : active) {
+                if (buckets.size() <= target) {
+                    break;
+                }
+                if (!e.getKey().equals(keep)) {
+                    buckets.remove(e.getKey());
+                }
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
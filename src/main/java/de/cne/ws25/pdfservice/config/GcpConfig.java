@@ -2,13 +2,20 @@ package de.cne.ws25.pdfservice.config;
 
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageOptions;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 @Configuration
 public class GcpConfig {
 
+    // nur für das GCS-Backend; mit app.storage.backend=local wird kein Client gebaut.
+    // Lazy: Credentials/Projekt-ID (Metadatenserver) werden nicht beim Start aufgelöst,
+    // sondern beim ersten Zugriff bzw. im Hintergrund nach dem Start (GcsBlobStore)
     @Bean
+    @Lazy
+    @ConditionalOnProperty(name = "app.storage.backend", havingValue = "gcs", matchIfMissing = true)
     public Storage googleStorage() {
         return StorageOptions.getDefaultInstance().getService();
     }
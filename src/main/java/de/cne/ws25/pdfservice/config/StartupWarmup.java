@@ -0,0 +1,74 @@
+package de.cne.ws25.pdfservice.config;
+
+import de.cne.ws25.pdfservice.convert.CodecWarmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.SpringApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kaltstart bei Scale-from-Zero: {@link CodecWarmup} läuft in einem eigenen Thread,
+ * während der Spring-Kontext hochfährt, und wird abgewartet, sobald alle Beans stehen –
+ * also bevor der Webserver Anfragen annimmt.
+ * <p>
+ * Wird in {@code main} registriert, damit der Thread so früh wie möglich startet. Weil
+ * das Warten vor dem Lifecycle-Start liegt, landen die Codec-Klassen auch im
+ * CDS-Trainingslauf ({@code -Dspring.context.exit=onRefresh}) im Archiv.
+ * {@code app.startup.warmup=false} schaltet es ab.
+ */
+public class StartupWarmup implements ApplicationListener<SpringApplicationEvent>, SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    private Thread thread;
+    private long timeoutMs;
+
+    @Override
+    public void onApplicationEvent(SpringApplicationEvent event) {
+        if (event instanceof ApplicationEnvironmentPreparedEvent prepared && thread == null) {
+            ConfigurableEnvironment env = prepared.getEnvironment();
+            if (!env.getProperty("app.startup.warmup", Boolean.class, true)) {
+                return;
+            }
+            timeoutMs = env.getProperty("app.startup.warmup-timeout-ms", Long.class, 10000L);
+            thread = Thread.ofPlatform().daemon().name("startup-warmup").start(StartupWarmup::warmUp);
+        } else if (event instanceof ApplicationPreparedEvent prepared && thread != null
+                && prepared.getApplicationContext() instanceof GenericApplicationContext context) {
+            // als Bean eintragen, damit afterSingletonsInstantiated aufgerufen wird
+            context.registerBean(StartupWarmup.class, () -> this);
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (thread == null) {
+            return;
+        }
+        try {
+            if (!thread.join(Duration.ofMillis(timeoutMs))) {
+                log.warn("Warm-up nach {} ms nicht fertig, starte trotzdem", timeoutMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void warmUp() {
+        long start = System.nanoTime();
+        try {
+            CodecWarmup.run();
+            log.info("Codec-Warm-up fertig nach {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            // nur Optimierung, Start nicht blockieren
+            log.warn("Codec-Warm-up fehlgeschlagen: {}", e.toString());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package de.cne.ws25.pdfservice.config;
+
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Locale;
+
+@Configuration
+public class TracingConfig {
+
+    // W3C-Trace-Context über HTTP-Header und Pub/Sub-Attribute. Gesampelt wird am Anfang
+    // des Traces (/convert), Worker und Stufen übernehmen die Entscheidung aus dem traceparent.
+    // Export im Hintergrund (BatchSpanProcessor): logging = ins Anwendungs-Log,
+    // otlp = OTLP/HTTP an einen Collector, none = Spans nur für Sampling und Log-Korrelation
+    @Bean(destroyMethod = "close")
+    public OpenTelemetrySdk openTelemetry(
+            @Value("${spring.application.name:pdfservice}") String serviceName,
+            @Value("${app.tracing.sample-ratio:0.1}") double sampleRatio,
+            @Value("${app.tracing.exporter:logging}") String exporter,
+            @Value("${app.tracing.otlp.endpoint:http://localhost:4318/v1/traces}") String otlpEndpoint
+    ) {
+        if (sampleRatio < 0 || sampleRatio > 1) {
+            throw new IllegalArgumentException("app.tracing.sample-ratio muss zwischen 0 und 1 liegen");
+        }
+        SdkTracerProviderBuilder tracerProvider = SdkTracerProvider.builder()
+                .setResource(Resource.getDefault().toBuilder().put("service.name", serviceName).build())
+                .setSampler(Sampler.parentBased(Sampler.traceIdRatioBased(sampleRatio)));
+
+        switch (exporter.trim().toLowerCase(Locale.ROOT)) {
+            case "logging" -> tracerProvider.addSpanProcessor(
+                    BatchSpanProcessor.builder(LoggingSpanExporter.create()).build());
+            case "otlp" -> tracerProvider.addSpanProcessor(
+                    BatchSpanProcessor.builder(OtlpHttpSpanExporter.builder().setEndpoint(otlpEndpoint).build()).build());
+            case "none" -> { }
+            default -> throw new IllegalArgumentException("Unbekannter app.tracing.exporter: " + exporter
+                    + " (logging, otlp, none)");
+        }
+
+        return OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider.build())
+                .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+                .build();
+    }
+}
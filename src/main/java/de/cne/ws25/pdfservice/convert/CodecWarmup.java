@@ -0,0 +1,82 @@
+package de.cne.ws25.pdfservice.convert;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Einmal alle Codecs durchlaufen, die eine Konvertierung braucht: ImageIO-Registry und
+ * Reader für PNG/GIF/BMP/TIFF/JPEG, Subsampling + {@link Resampler}, Klassifizierung,
+ * JPEG-Writer, CCITT, Flate und {@code PDDocument.save}. So tragen Klassenladen und
+ * Initialisierung nicht die erste echte Anfrage einer frisch gestarteten Instanz.
+ * <p>
+ * Braucht keine Beans und schreibt keine Metriken, kann also schon vor dem Spring-Kontext laufen.
+ */
+public final class CodecWarmup {
+
+    private static final List<String> FORMATS = List.of("png", "gif", "bmp", "tiff", "jpeg");
+
+    private CodecWarmup() {
+    }
+
+    public static void run() throws Exception {
+        BufferedImage photo = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < photo.getHeight(); y++) {
+            for (int x = 0; x < photo.getWidth(); x++) {
+                photo.setRGB(x, y, (x * 4) << 16 | (y * 5) << 8 | (x + y) * 2);
+            }
+        }
+        BufferedImage scan = new BufferedImage(64, 48, BufferedImage.TYPE_BYTE_BINARY);
+        Graphics2D g = scan.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 64, 48);
+        g.setColor(Color.BLACK);
+        g.fillRect(8, 8, 24, 16);
+        g.dispose();
+
+        byte[] jpeg = null;
+        for (String format : FORMATS) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ImageIO.write(format.equals("gif") ? scan : photo, format, bytes);
+            if (format.equals("jpeg")) {
+                jpeg = bytes.toByteArray();
+            }
+            // kleiner als das Bild lesen, damit auch Subsampling und Resampler laufen
+            try (FrameSource source = FrameSource.open(new ByteArrayInputStream(bytes.toByteArray()))) {
+                if (source != null) {
+                    ImageClassifier.classify(source.read(0, 20, 20, b -> { }));
+                }
+            }
+        }
+
+        try (PDDocument doc = new PDDocument()) {
+            addPage(doc, PreparedImage.jpeg(photo, 0.85f, false, false));
+            addPage(doc, PreparedImage.lossless(photo));
+            addPage(doc, PreparedImage.ccitt(scan));
+            ByteBuffer jpegBytes = ByteBuffer.wrap(jpeg);
+            JpegHeader header = JpegHeader.parse(jpegBytes);
+            if (header != null) {
+                addPage(doc, PreparedImage.jpegPassthrough(jpegBytes, header));
+            }
+            doc.save(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static void addPage(PDDocument doc, PreparedImage image) throws Exception {
+        PDPage page = new PDPage(ImageToPdfService.PAGE);
+        doc.addPage(page);
+        try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+            cs.drawImage(image.toXObject(doc), 0, 0, 100, 75);
+        }
+    }
+}
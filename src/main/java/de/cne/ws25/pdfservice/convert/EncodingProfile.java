@@ -0,0 +1,35 @@
+package de.cne.ws25.pdfservice.convert;
+
+import java.util.Locale;
+
+/**
+ * Wie dekodierte Bilder ins PDF kodiert werden (JPEGs innerhalb der Limits werden
+ * immer unverändert übernommen).
+ * <ul>
+ *     <li>{@code archive}: nur verlustfrei – Schwarzweiß als CCITT G4, sonst Flate (Gray/RGB)</li>
+ *     <li>{@code balanced}: Fotos als JPEG, Grafiken mit wenigen Farben verlustfrei</li>
+ *     <li>{@code small}: wie balanced mit niedrigerer JPEG-Qualität; fast reine Schwarzweiß-Scans
+ *     werden auf 1 Bit reduziert</li>
+ * </ul>
+ */
+public enum EncodingProfile {
+    ARCHIVE, BALANCED, SMALL;
+
+    /**
+     * Profil aus Request/Nachricht; {@code null} oder leer liefert {@code fallback}.
+     */
+    public static EncodingProfile parse(String name, EncodingProfile fallback) {
+        if (name == null || name.isBlank()) {
+            return fallback;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unbekanntes Profil: " + name + " (archive, balanced, small)");
+        }
+    }
+
+    public String id() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,268 @@
+package de.cne.ws25.pdfservice.convert;
+
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.function.LongConsumer;
+
+/**
+ * Geöffnetes Eingabebild. Mehrseitige Formate (TIFF, animiertes GIF) liefern einen
+ * Frame pro Seite. Der Reader bleibt offen und die Frames werden einzeln per Index
+ * dekodiert, damit unabhängig von der Frame-Anzahl nur der aktuelle im Speicher liegt.
+ * <p>
+ * GIF-Frames sind oft nur geänderte Ausschnitte; sie werden deshalb wie im Browser
+ * nacheinander auf die logische Bildfläche gelegt (Position + Disposal).
+ */
+final class FrameSource implements AutoCloseable {
+
+    private static final String GIF_STREAM_METADATA = "javax_imageio_gif_stream_1.0";
+    private static final String GIF_IMAGE_METADATA = "javax_imageio_gif_image_1.0";
+
+    private final ImageInputStream iis;
+    private final ImageReader reader;
+    private final boolean gif;
+    private final int frames;
+    private boolean closed;
+
+    // GIF: aktueller Stand der Bildfläche und was vor dem nächsten Frame zurückgesetzt wird
+    private BufferedImage canvas;
+    private int nextGifFrame;
+    private String pendingDisposal;
+    private int[] pendingArea;
+    private BufferedImage savedArea;
+
+    private FrameSource(ImageInputStream iis, ImageReader reader, boolean gif, int frames) {
+        this.iis = iis;
+        this.reader = reader;
+        this.gif = gif;
+        this.frames = frames;
+    }
+
+    /**
+     * Liefert {@code null}, wenn ImageIO das Format nicht lesen kann.
+     */
+    static FrameSource open(InputStream in) throws IOException {
+        ImageInputStream iis = ImageIO.createImageInputStream(in);
+        if (iis == null) {
+            return null;
+        }
+        ImageReader reader = null;
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                iis.close();
+                return null;
+            }
+            reader = readers.next();
+            String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+            boolean gif = format.equals("gif");
+            boolean multiFrame = gif || format.startsWith("tif");
+            // Metadaten nur bei GIF nötig (Frame-Position/Disposal)
+            reader.setInput(iis, !multiFrame, !gif);
+            int frames = multiFrame ? reader.getNumImages(true) : 1;
+            if (frames < 1) {
+                throw new IIOException("Keine Bilder in der Datei");
+            }
+            return new FrameSource(iis, reader, gif, frames);
+        } catch (IOException | RuntimeException e) {
+            if (reader != null) {
+                reader.dispose();
+            }
+            iis.close();
+            throw e;
+        }
+    }
+
+    int frames() {
+        return frames;
+    }
+
+    /**
+     * Frame {@code index} lesen und auf höchstens {@code maxWidth} x {@code maxHeight}
+     * verkleinern (Seitenverhältnis bleibt, vergrößert wird nie). {@code beforeDecode}
+     * bekommt vorher den geschätzten Speicherbedarf ({@link MemoryBudget#estimate}).
+     */
+    BufferedImage read(int index, int maxWidth, int maxHeight, LongConsumer beforeDecode) throws IOException {
+        BufferedImage image = gif ? readGifFrame(index, beforeDecode) : null;
+        int width = gif ? image.getWidth() : reader.getWidth(index);
+        int height = gif ? image.getHeight() : reader.getHeight(index);
+
+        // für kleine Bilder: direkt lesen
+        if (width <= maxWidth && height <= maxHeight) {
+            if (gif) {
+                return image;
+            }
+            beforeDecode.accept(MemoryBudget.estimate(width, height, bytesPerPixel(index)));
+            return reader.read(index);
+        }
+
+        double scale = Math.min(
+                (double) maxWidth / width,
+                (double) maxHeight / height
+        );
+        int targetW = Math.max(1, (int) Math.round(width * scale));
+        int targetH = Math.max(1, (int) Math.round(height * scale));
+
+        if (!gif) {
+            // gröbstes Subsampling, das noch mindestens die Zielgröße liefert (spart Dekodieren)
+            int subsampling = Math.max(1, Math.min(width / targetW, height / targetH));
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+            int scaledWidth = (width + subsampling - 1) / subsampling;
+            int scaledHeight = (height + subsampling - 1) / subsampling;
+            beforeDecode.accept(MemoryBudget.estimate(scaledWidth, scaledHeight, bytesPerPixel(index)));
+            image = reader.read(index, param);
+        }
+
+        // Rest exakt per Flächenmittelung
+        if (image.getWidth() == targetW && image.getHeight() == targetH) {
+            return image;
+        }
+        return Resampler.areaAverage(image, targetW, targetH);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        canvas = null;
+        savedArea = null;
+        reader.dispose();
+        iis.close();
+    }
+
+    /**
+     * Bildfläche bis einschließlich {@code index} aufbauen und eine Kopie liefern
+     * (die Fläche selbst wird für den nächsten Frame weiterverwendet).
+     */
+    private BufferedImage readGifFrame(int index, LongConsumer beforeDecode) throws IOException {
+        if (index < nextGifFrame) {
+            // rückwärts: von vorne neu aufbauen
+            canvas = null;
+            nextGifFrame = 0;
+            pendingDisposal = null;
+        }
+        int[] screen = canvas != null ? new int[]{canvas.getWidth(), canvas.getHeight()} : logicalScreen();
+        // Fläche + Kopie + aktueller Frame, reserviert bevor die Fläche angelegt wird
+        beforeDecode.accept(3 * MemoryBudget.estimate(screen[0], screen[1], 4));
+        if (canvas == null) {
+            canvas = new BufferedImage(screen[0], screen[1], BufferedImage.TYPE_INT_ARGB);
+        }
+        while (nextGifFrame <= index) {
+            drawGifFrame(nextGifFrame++);
+        }
+        return new BufferedImage(canvas.getColorModel(), canvas.copyData(null), false, null);
+    }
+
+    private void drawGifFrame(int index) throws IOException {
+        BufferedImage frame = reader.read(index);
+        IIOMetadata metadata = reader.getImageMetadata(index);
+        Node root = metadata.getAsTree(GIF_IMAGE_METADATA);
+        int x = intAttribute(root, "ImageDescriptor", "imageLeftPosition", 0);
+        int y = intAttribute(root, "ImageDescriptor", "imageTopPosition", 0);
+        String disposal = attribute(root, "GraphicControlExtension", "disposalMethod");
+
+        Graphics2D g = canvas.createGraphics();
+        try {
+            // Disposal des vorigen Frames anwenden
+            if ("restoreToBackgroundColor".equals(pendingDisposal)) {
+                g.setComposite(AlphaComposite.Clear);
+                g.fillRect(pendingArea[0], pendingArea[1], pendingArea[2], pendingArea[3]);
+                g.setComposite(AlphaComposite.SrcOver);
+            } else if ("restoreToPrevious".equals(pendingDisposal) && savedArea != null) {
+                g.setComposite(AlphaComposite.Src);
+                g.drawImage(savedArea, pendingArea[0], pendingArea[1], null);
+                g.setComposite(AlphaComposite.SrcOver);
+            }
+            savedArea = null;
+
+            pendingDisposal = disposal;
+            pendingArea = new int[]{x, y, frame.getWidth(), frame.getHeight()};
+            if ("restoreToPrevious".equals(disposal)) {
+                savedArea = copyArea(x, y, frame.getWidth(), frame.getHeight());
+            }
+            g.drawImage(frame, x, y, null);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private BufferedImage copyArea(int x, int y, int width, int height) {
+        int w = Math.min(width, canvas.getWidth() - x);
+        int h = Math.min(height, canvas.getHeight() - y);
+        if (w <= 0 || h <= 0) {
+            return null;
+        }
+        return new BufferedImage(canvas.getColorModel(), canvas.getSubimage(x, y, w, h).copyData(null), false, null);
+    }
+
+    /**
+     * Logische Bildfläche aus den Stream-Metadaten; fehlt sie, die Größe des ersten Frames.
+     */
+    private int[] logicalScreen() throws IOException {
+        IIOMetadata stream = reader.getStreamMetadata();
+        if (stream != null) {
+            Node root = stream.getAsTree(GIF_STREAM_METADATA);
+            int width = intAttribute(root, "LogicalScreenDescriptor", "logicalScreenWidth", 0);
+            int height = intAttribute(root, "LogicalScreenDescriptor", "logicalScreenHeight", 0);
+            if (width > 0 && height > 0) {
+                return new int[]{width, height};
+            }
+        }
+        return new int[]{reader.getWidth(0), reader.getHeight(0)};
+    }
+
+    private static String attribute(Node root, String element, String name) {
+        for (Node child = root.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (element.equals(child.getNodeName())) {
+                return ((IIOMetadataNode) child).getAttribute(name);
+            }
+        }
+        return null;
+    }
+
+    private static int intAttribute(Node root, String element, String name, int fallback) {
+        String value = attribute(root, element, name);
+        if (value == null || value.isEmpty()) {
+            return fallback;
+        }
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * Bytes pro Pixel des Zielbildes laut Reader (Bänder x Sample-Größe),
+     * ohne Angabe vorsichtshalber 4 (ARGB).
+     */
+    private int bytesPerPixel(int index) throws IOException {
+        ImageTypeSpecifier type = reader.getRawImageType(index);
+        if (type == null) {
+            Iterator<ImageTypeSpecifier> types = reader.getImageTypes(index);
+            type = types.hasNext() ? types.next() : null;
+        }
+        if (type == null) {
+            return 4;
+        }
+        SampleModel sampleModel = type.getSampleModel();
+        int bits = DataBuffer.getDataTypeSize(sampleModel.getDataType()) * sampleModel.getNumDataElements();
+        return Math.max(1, (bits + 7) / 8);
+    }
+}
@@ -0,0 +1,120 @@
+package de.cne.ws25.pdfservice.convert;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Ein Durchlauf über die Pixel, um die günstigste passende Kodierung zu wählen.
+ * Bricht ab, sobald feststeht, dass es ein farbiges Foto ist.
+ */
+final class ImageClassifier {
+
+    /** So viele Farben gelten noch als Grafik (verlustfrei kodieren). */
+    static final int MAX_GRAPHIC_COLORS = 256;
+
+    /** Anteil fast schwarzer/weißer Pixel, ab dem ein Graustufen-Scan als Schwarzweiß gilt (nur small). */
+    private static final double NEAR_BILEVEL_SHARE = 0.98;
+    private static final int NEAR_BLACK = 48;
+    private static final int NEAR_WHITE = 207;
+
+    /**
+     * @param gray      alle Pixel haben R = G = B
+     * @param bilevel   nur reines Schwarz und Weiß
+     * @param nearBilevel Graustufen, aber fast nur Schwarz/Weiß (z.B. Dokument-Scan)
+     * @param fewColors höchstens {@link #MAX_GRAPHIC_COLORS} verschiedene Farben
+     * @param alpha     Alpha-Kanal wird tatsächlich genutzt (nicht überall deckend)
+     */
+    record Result(boolean gray, boolean bilevel, boolean nearBilevel, boolean fewColors, boolean alpha) {}
+
+    private ImageClassifier() {
+    }
+
+    static Result classify(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean rawGray = image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+        boolean hasAlpha = image.getColorModel().hasAlpha();
+
+        boolean gray = true;
+        boolean bilevel = true;
+        boolean alpha = false;
+        long nearBilevelPixels = 0;
+        ColorSet colors = new ColorSet();
+
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            if (rawGray) {
+                // Rohwerte wie beim Kodieren, ohne Farbraumkonvertierung von getRGB
+                image.getRaster().getSamples(0, y, width, 1, 0, row);
+            } else {
+                image.getRGB(0, y, width, 1, row, 0, width);
+            }
+            for (int x = 0; x < width; x++) {
+                int level;
+                if (rawGray) {
+                    level = row[x];
+                    colors.add(level);
+                } else {
+                    int argb = row[x];
+                    if (hasAlpha && (argb >>> 24) != 0xFF) {
+                        alpha = true;
+                    }
+                    int r = (argb >> 16) & 0xFF;
+                    int g = (argb >> 8) & 0xFF;
+                    int b = argb & 0xFF;
+                    if (gray && (r != g || g != b)) {
+                        gray = false;
+                        bilevel = false;
+                    }
+                    level = b;
+                    colors.add(argb & 0xFFFFFF);
+                }
+                if (gray) {
+                    if (level != 0 && level != 0xFF) {
+                        bilevel = false;
+                    }
+                    if (level <= NEAR_BLACK || level >= NEAR_WHITE) {
+                        nearBilevelPixels++;
+                    }
+                }
+            }
+            // farbig, viele Farben und Alpha geklärt: Ergebnis steht fest
+            if (!gray && colors.overflow() && (alpha || !hasAlpha)) {
+                break;
+            }
+        }
+
+        boolean nearBilevel = gray && nearBilevelPixels >= NEAR_BILEVEL_SHARE * width * height;
+        return new Result(gray, bilevel, nearBilevel, !colors.overflow(), alpha);
+    }
+
+    /**
+     * Kleine Hash-Menge für bis zu {@link #MAX_GRAPHIC_COLORS} RGB-Werte, ohne Boxing.
+     */
+    private static final class ColorSet {
+        private final int[] slots = new int[1024];
+        private final boolean[] used = new boolean[1024];
+        private int size;
+        private int last = -1;
+
+        void add(int rgb) {
+            if (rgb == last || size > MAX_GRAPHIC_COLORS) {
+                return;
+            }
+            last = rgb;
+            int i = (rgb * 0x9E3779B1) >>> 22;
+            while (used[i]) {
+                if (slots[i] == rgb) {
+                    return;
+                }
+                i = (i + 1) & (slots.length - 1);
+            }
+            used[i] = true;
+            slots[i] = rgb;
+            size++;
+        }
+
+        boolean overflow() {
+            return size > MAX_GRAPHIC_COLORS;
+        }
+    }
+}
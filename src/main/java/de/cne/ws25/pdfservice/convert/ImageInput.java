@@ -0,0 +1,6 @@
+package de.cne.ws25.pdfservice.convert;
+
+/**
+ * Bild, das bereits im Speicher liegt (z.B. direkt aus dem Multipart-Request).
+ */
+public record ImageInput(String name, byte[] data) {}
@@ -1,32 +1,162 @@
 package de.cne.ws25.pdfservice.convert;
 
-import com.google.cloud.storage.*;
+import de.cne.ws25.pdfservice.metrics.CountingOutputStream;
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics.Stage;
+import de.cne.ws25.pdfservice.storage.BlobMeta;
+import de.cne.ws25.pdfservice.storage.BlobStore;
+import de.cne.ws25.pdfservice.storage.BlobTarget;
+import de.cne.ws25.pdfservice.storage.BlobWriter;
+import de.cne.ws25.pdfservice.storage.ByteBufferInputStream;
+import io.opentelemetry.context.Context;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import javax.imageio.ImageIO;
-import javax.imageio.ImageReadParam;
-import javax.imageio.ImageReader;
-import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.util.Iterator;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
 
 @Service
 public class ImageToPdfService {
 
-    private static final int MAX_IMAGES = 20;                // hartes Limit an Seiten
+    private static final Logger log = LoggerFactory.getLogger(ImageToPdfService.class);
+
+    public static final int MAX_IMAGES = 20;                 // hartes Limit an Eingabedateien pro Dokument/Shard
     private static final long MAX_BYTES_PER_IMAGE = 10L * 1024 * 1024; // 10 MB
-    private static final int MAX_DIMENSION = 2000;           // max Breite/Höhe in Pixel
+    static final PDRectangle PAGE = PDRectangle.A4;          // jede Seite, Bild wird eingepasst
+
+    private final BlobStore blobStore;
+    private final PipelineMetrics metrics;
+    private final MemoryBudget memoryBudget;
+
+    // GCS-Downloads: virtuelle Threads, begrenzt über Semaphore
+    private final ExecutorService ioExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore downloadPermits;
+
+    // Dateien pro Dokument, die gleichzeitig geladen/kodiert werden oder fertig aufs Einfügen warten
+    private final int pagesInFlight;
+
+    // Dekodieren/Kodieren: fester Pool in CPU-Größe, gewichtet nach Lanes (ohne Lane: "default")
+    private final WeightedExecutor cpuExecutor;
+    private final Executor defaultCpuLane;
+
+    // Ausgabe: Heap-Budget für PDFBox, Rest wird in Temp-Dateien ausgelagert
+    private final long documentHeapBytes;
+    private final String tempDir;
+    private final int uploadChunkSize;
+
+    // Zielauflösung: Bilder werden auf die gezeichnete Größe bei app.convert.dpi verkleinert
+    private final int dpi;
+    final int targetWidth;
+    final int targetHeight;
+
+    // Seiten pro Dokument, Frames mehrseitiger TIFFs/GIFs zählen einzeln
+    private final int maxPages;
+
+    // Kodierung: Standardprofil, wenn Job/Request keins angibt, und JPEG-Qualität je Profil
+    private final EncodingProfile defaultProfile;
+    private final float balancedJpegQuality;
+    private final float smallJpegQuality;
+
+    public ImageToPdfService(
+            BlobStore blobStore,
+            PipelineMetrics metrics,
+            MemoryBudget memoryBudget,
+            @Value("${app.convert.download-concurrency:8}") int downloadConcurrency,
+            @Value("${app.convert.cpu-threads:0}") int cpuThreads,
+            @Value("${app.convert.pages-in-flight:0}") int pagesInFlight,
+            @Value("${app.convert.document-heap-mb:16}") long documentHeapMb,
+            @Value("${app.convert.temp-dir:}") String tempDir,
+            @Value("${app.convert.upload-chunk-size-kb:2048}") int uploadChunkSizeKb,
+            @Value("${app.convert.profile:balanced}") String defaultProfile,
+            @Value("${app.convert.jpeg-quality.balanced:0.85}") float balancedJpegQuality,
+            @Value("${app.convert.jpeg-quality.small:0.6}") float smallJpegQuality,
+            @Value("${app.convert.dpi:200}") int dpi,
+            @Value("${app.jobs.max-pages:500}") int maxPages
+    ) {
+        if (dpi < 36 || dpi > 1200) {
+            throw new IllegalArgumentException("app.convert.dpi muss zwischen 36 und 1200 liegen");
+        }
+        this.blobStore = blobStore;
+        this.metrics = metrics;
+        this.memoryBudget = memoryBudget;
+        this.documentHeapBytes = documentHeapMb * 1024 * 1024;
+        this.tempDir = tempDir;
+        this.uploadChunkSize = uploadChunkSizeKb * 1024;
+        this.downloadPermits = new Semaphore(Math.max(1, downloadConcurrency));
+        this.defaultProfile = EncodingProfile.parse(defaultProfile, EncodingProfile.BALANCED);
+        this.balancedJpegQuality = balancedJpegQuality;
+        this.smallJpegQuality = smallJpegQuality;
+        this.dpi = dpi;
+        // eingepasst wird in die ganze Seite, mehr Pixel als Seite x DPI sind nie sichtbar
+        this.targetWidth = Math.round(PAGE.getWidth() / 72f * dpi);
+        this.targetHeight = Math.round(PAGE.getHeight() / 72f * dpi);
+        this.maxPages = maxPages;
+
+        int threads = cpuThreads > 0 ? cpuThreads : Runtime.getRuntime().availableProcessors();
+        // 0 = doppelt so viele wie CPU-Threads, damit die Pools beim Einfügen nicht leerlaufen
+        this.pagesInFlight = pagesInFlight > 0 ? pagesInFlight : 2 * threads;
+        this.cpuExecutor = new WeightedExecutor(threads, "image-encode-");
+        this.defaultCpuLane = cpuExecutor.lane("default", 1);
+    }
 
-    private final Storage storage = StorageOptions.getDefaultInstance().getService();
+    @PreDestroy
+    void shutdown() {
+        ioExecutor.shutdownNow();
+        cpuExecutor.shutdownNow();
+    }
+
+    /**
+     * Profilname aus Job/Request auflösen; ohne Angabe gilt {@code app.convert.profile}.
+     */
+    public EncodingProfile profile(String name) {
+        return EncodingProfile.parse(name, defaultProfile);
+    }
+
+    /**
+     * Alle Einstellungen, von denen das PDF abhängt (Profil, DPI, JPEG-Qualität), z.B. für
+     * den Schlüssel im Ergebnis-Cache: nach einer Konfigurationsänderung gibt es neue PDFs.
+     */
+    public String settingsId(EncodingProfile profile) {
+        String id = profile.id() + ";dpi=" + dpi;
+        if (profile == EncodingProfile.ARCHIVE) {
+            return id;
+        }
+        return id + ";q=" + jpegQuality(profile);
+    }
+
+    /**
+     * Eigene Warteschlange im CPU-Pool; bei voller Auslastung bekommt sie Rechenzeit
+     * im Verhältnis ihres Gewichts zu den anderen wartenden Lanes.
+     */
+    public WeightedExecutor.Lane cpuLane(String name, int weight) {
+        return cpuExecutor.lane(name, weight);
+    }
 
     public String convertImageObjectsToPdf(
             String inputBucket,
@@ -34,6 +164,85 @@ public class ImageToPdfService {
             String outputBucket,
             String jobId
     ) throws Exception {
+        return convertImageObjectsToPdf(inputBucket, inputObjects, outputBucket, jobId, defaultProfile, pagesDone -> { });
+    }
+
+    /**
+     * Wie oben mit Profil, meldet nach jeder fertig eingefügten Seite den Fortschritt.
+     */
+    public String convertImageObjectsToPdf(
+            String inputBucket,
+            List<String> inputObjects,
+            String outputBucket,
+            String jobId,
+            EncodingProfile profile,
+            IntConsumer onPageDone
+    ) throws Exception {
+        return convertImageObjectsToPdf(inputBucket, inputObjects, outputBucket, jobId, profile, onPageDone, defaultCpuLane);
+    }
+
+    /**
+     * Wie oben, Dekodieren/Kodieren läuft auf {@code cpu} (siehe {@link #cpuLane}).
+     */
+    public String convertImageObjectsToPdf(
+            String inputBucket,
+            List<String> inputObjects,
+            String outputBucket,
+            String jobId,
+            EncodingProfile profile,
+            IntConsumer onPageDone,
+            Executor cpu
+    ) throws Exception {
+        // existiert output.pdf schon (doppelte Zustellung), schlägt der Commit fehl
+        BlobTarget output = BlobTarget.of(outputBucket, outputObject(jobId), "application/pdf").doesNotExist();
+        return convertImageObjectsToPdf(inputBucket, inputObjects, profile, output, onPageDone, cpu);
+    }
+
+    /**
+     * Bilder als ein PDF nach {@code output} schreiben, Dekodieren/Kodieren auf {@code cpu}.
+     */
+    public String convertImageObjectsToPdf(
+            String inputBucket,
+            List<String> inputObjects,
+            EncodingProfile profile,
+            BlobTarget output,
+            IntConsumer onPageDone,
+            Executor cpu
+    ) throws Exception {
+        return convert(inputBucket, inputObjects, 0, 0, profile, output, onPageDone, cpu, "async");
+    }
+
+    /**
+     * Wie oben, für Teil-PDFs großer Jobs: deren Bytes zählen unter {@code path=part},
+     * sonst stünden sie in {@code pdf.bytes.out} neben dem zusammengefügten PDF doppelt.
+     * Der Teil beginnt bei Frame {@code firstFrame} des ersten Objekts und hat höchstens
+     * {@code maxPartPages} Seiten (0 = alle Frames der Objekte), so lässt sich auch ein
+     * einzelnes großes TIFF auf mehrere Teile verteilen.
+     */
+    public String convertPartToPdf(
+            String inputBucket,
+            List<String> inputObjects,
+            int firstFrame,
+            int maxPartPages,
+            EncodingProfile profile,
+            BlobTarget part,
+            IntConsumer onPageDone,
+            Executor cpu
+    ) throws Exception {
+        return convert(inputBucket, inputObjects, firstFrame, maxPartPages, profile, part, onPageDone, cpu, "part");
+    }
+
+    private String convert(
+            String inputBucket,
+            List<String> inputObjects,
+            int firstFrame,
+            int maxPartPages,
+            EncodingProfile profile,
+            BlobTarget output,
+            IntConsumer onPageDone,
+            Executor cpu,
+            String metricsPath
+    ) throws Exception {
 
         if (inputObjects == null || inputObjects.isEmpty()) {
             throw new IllegalArgumentException("Keine Input-Objekte vorhanden");
@@ -43,106 +252,501 @@ public class ImageToPdfService {
             throw new IllegalArgumentException("Zu viele Bilder in einem Job (max. " + MAX_IMAGES + ")");
         }
 
-        try (PDDocument doc = new PDDocument();
-             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+        // Trace des Jobs in die Pools mitnehmen, die Stufen werden dort als Kind-Spans eingetragen
+        Context trace = Context.current();
+        Executor io = trace.wrap(ioExecutor);
+        Executor tracedCpu = trace.wrap(cpu);
+
+        // 1. Download + Dekodieren/Kodieren parallel anstoßen (jeweils erster Frame), aber nur für
+        //    die nächsten pagesInFlight Dateien: jede eingefügte Datei gibt ihren Platz an die
+        //    nächste ab, Puffer und kodierte Bilder wachsen so nicht mit der Größe des Jobs
+        ArrayDeque<CompletableFuture<PreparedSource>> pages = new ArrayDeque<>(pagesInFlight);
+        BufferedBytes buffered = new BufferedBytes();
+        int next = 0;
+        while (next < inputObjects.size() && pages.size() < pagesInFlight) {
+            int startFrame = next == 0 ? firstFrame : 0;
+            pages.add(startPage(inputBucket, inputObjects.get(next++), startFrame, profile, buffered, io, tracedCpu));
+        }
+        int pageLimit = maxPartPages > 0 ? maxPartPages : Integer.MAX_VALUE;
 
-            for (String objectName : inputObjects) {
+        // PDF-Objekte bis zum Heap-Budget im Speicher, darüber in eine Temp-Datei
+        try (PDDocument doc = new PDDocument(documentMemorySetting())) {
 
-                Blob blob = storage.get(inputBucket, objectName);
-                if (blob == null) {
-                    throw new IllegalArgumentException("Input object not found: " + objectName);
+            // 2. Seiten in Eingabereihenfolge zusammensetzen, sobald sie fertig sind
+            int pagesDone = 0;
+            while (!pages.isEmpty()) {
+                try (PreparedSource source = await(pages.peek())) {
+                    pages.poll();
+                    pagesDone = addPages(doc, source, profile, pagesDone, pageLimit - pagesDone, onPageDone, tracedCpu);
+                    buffered.release(source.bytes());
                 }
-
-                if (blob.getSize() > MAX_BYTES_PER_IMAGE) {
-                    throw new IllegalArgumentException("Bild zu groß: " + objectName +
-                            " (max. " + (MAX_BYTES_PER_IMAGE / (1024 * 1024)) + " MB)");
+                if (next < inputObjects.size()) {
+                    pages.add(startPage(inputBucket, inputObjects.get(next++), 0, profile, buffered, io, tracedCpu));
                 }
+            }
+
+            // 3. direkt in den Storage streamen (GCS: Resumable Upload), ohne Zwischenpuffer
+            BlobWriter writer = blobStore.openWriter(output, uploadChunkSize);
+            CountingOutputStream out = new CountingOutputStream(writer.stream());
+            long start = System.nanoTime();
+            try {
+                doc.save(out);
+            } catch (Exception e) {
+                // kein abgeschnittenes PDF committen
+                writer.abort();
+                throw e;
+            }
+            metrics.stage(Stage.SAVE, start);
 
-                byte[] imageBytes = blob.getContent();
+            start = System.nanoTime();
+            writer.commit();
+            metrics.stage(Stage.COMMIT, start);
+            metrics.bytesOut(metricsPath, out.getCount());
 
-                try (ByteArrayInputStream in = new ByteArrayInputStream(imageBytes)) {
-                    BufferedImage bufferedImage = readScaled(in, MAX_DIMENSION, MAX_DIMENSION);
-                    if (bufferedImage == null) {
-                        throw new IllegalArgumentException(
-                                "Unsupported or unreadable image format for object: " + objectName
-                        );
+            return "gs://" + output.bucket() + "/" + output.name();
+        } finally {
+            // bei Fehlern restliche Seiten nicht weiter bearbeiten, offene Reader schließen
+            for (CompletableFuture<PreparedSource> page : pages) {
+                if (!page.cancel(true) && !page.isCompletedExceptionally()) {
+                    try {
+                        page.join().close();
+                    } catch (IOException e) {
+                        log.warn("Reader nicht geschlossen: {}", e.getMessage());
                     }
+                }
+            }
+            // ab hier fertig werdende Downloads zählen nicht mehr mit
+            buffered.close();
+        }
+    }
 
-                    // neue Seite pro Bild
-                    PDRectangle pageSize = PDRectangle.A4;
-                    PDPage page = new PDPage(pageSize);
-                    doc.addPage(page);
+    /**
+     * Heruntergeladene, noch nicht eingefügte Bytes eines Dokuments im Gauge
+     * {@code pdf.convert.buffered}. {@code cancel} hält einen laufenden Download nicht an;
+     * was nach dem Ende des Dokuments noch ankommt, wird deshalb gar nicht erst gezählt.
+     */
+    private final class BufferedBytes {
 
-                    PDImageXObject image = LosslessFactory.createFromImage(doc, bufferedImage);
+        private long bytes;
+        private boolean closed;
 
-                    float pageWidth = pageSize.getWidth();
-                    float pageHeight = pageSize.getHeight();
+        synchronized void add(long n) {
+            if (!closed) {
+                bytes += n;
+                metrics.buffered(n);
+            }
+        }
 
-                    float imgWidth = image.getWidth();
-                    float imgHeight = image.getHeight();
-                    float scale = Math.min(pageWidth / imgWidth, pageHeight / imgHeight);
+        synchronized void release(long n) {
+            if (!closed) {
+                bytes -= n;
+                metrics.buffered(-n);
+            }
+        }
 
-                    float drawWidth = imgWidth * scale;
-                    float drawHeight = imgHeight * scale;
+        synchronized void close() {
+            closed = true;
+            metrics.buffered(-bytes);
+            bytes = 0;
+        }
+    }
 
-                    float x = (pageWidth - drawWidth) / 2;
-                    float y = (pageHeight - drawHeight) / 2;
+    /**
+     * Teil-PDFs in dieser Reihenfolge zu einem Dokument zusammenfügen. Die Teile werden
+     * einzeln mit demselben Heap-Budget wie beim Erzeugen geladen (Rest in Temp-Dateien),
+     * das Ergebnis geht direkt in den Storage.
+     */
+    public String mergePdfObjects(String bucket, List<String> partObjects, BlobTarget output) throws Exception {
+        PDFMergerUtility merger = new PDFMergerUtility();
+        List<InputStream> sources = new ArrayList<>(partObjects.size());
+        try {
+            for (String part : partObjects) {
+                InputStream in = Channels.newInputStream(blobStore.openReader(bucket, part));
+                sources.add(in);
+                merger.addSource(in);
+            }
 
-                    try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
-                        cs.drawImage(image, x, y, drawWidth, drawHeight);
-                    }
+            BlobWriter writer = blobStore.openWriter(output, uploadChunkSize);
+            CountingOutputStream out = new CountingOutputStream(writer.stream());
+            merger.setDestinationStream(out);
+            long start = System.nanoTime();
+            try {
+                merger.mergeDocuments(documentMemorySetting());
+            } catch (Exception e) {
+                writer.abort();
+                throw e;
+            }
+            metrics.stage(Stage.MERGE, start);
+
+            start = System.nanoTime();
+            writer.commit();
+            metrics.stage(Stage.COMMIT, start);
+            metrics.bytesOut("merge", out.getCount());
+
+            return "gs://" + output.bucket() + "/" + output.name();
+        } finally {
+            for (InputStream in : sources) {
+                in.close();
+            }
+        }
+    }
+
+    public static String outputObject(String jobId) {
+        return "jobs/" + jobId + "/output.pdf";
+    }
+
+    /**
+     * Eine Datei laden ({@code io}) und Frame {@code startFrame} vorbereiten ({@code cpu}). Die
+     * heruntergeladenen Bytes stehen im Gauge {@code pdf.convert.buffered}, bis die Datei
+     * eingefügt ist.
+     */
+    private CompletableFuture<PreparedSource> startPage(String inputBucket, String objectName, int startFrame,
+                                                        EncodingProfile profile, BufferedBytes buffered,
+                                                        Executor io, Executor cpu) {
+        return CompletableFuture
+                .supplyAsync(() -> {
+                    ByteBuffer data = download(inputBucket, objectName);
+                    buffered.add(data.remaining());
+                    return data;
+                }, io)
+                .thenApplyAsync(bytes -> {
+                    int size = bytes.remaining();
+                    return prepareSource(bytes, objectName, startFrame, profile).withBytes(size);
+                }, cpu);
+    }
+
+    /**
+     * Synchroner Pfad für kleine Jobs: Bilder liegen schon im Speicher, alles läuft
+     * im aufrufenden Thread (ohne die Pools des Workers). Der Aufrufer speichert
+     * und schließt das zurückgegebene Dokument.
+     */
+    public PDDocument createDocument(List<ImageInput> images) throws Exception {
+        return createDocument(images, defaultProfile);
+    }
+
+    public PDDocument createDocument(List<ImageInput> images, EncodingProfile profile) throws Exception {
+        if (images == null || images.isEmpty()) {
+            throw new IllegalArgumentException("Keine Bilder vorhanden");
+        }
+
+        if (images.size() > MAX_IMAGES) {
+            throw new IllegalArgumentException("Zu viele Bilder in einem Job (max. " + MAX_IMAGES + ")");
+        }
+
+        PDDocument doc = new PDDocument(documentMemorySetting());
+        try {
+            int pagesDone = 0;
+            for (ImageInput image : images) {
+                if (image.data().length > MAX_BYTES_PER_IMAGE) {
+                    throw new IllegalArgumentException("Bild zu groß: " + image.name() +
+                            " (max. " + (MAX_BYTES_PER_IMAGE / (1024 * 1024)) + " MB)");
                 }
+                try (PreparedSource source = prepareSource(ByteBuffer.wrap(image.data()), image.name(), 0, profile)) {
+                    pagesDone = addPages(doc, source, profile, pagesDone, Integer.MAX_VALUE, n -> { }, Runnable::run);
+                }
+            }
+            return doc;
+        } catch (Exception e) {
+            doc.close();
+            throw e;
+        }
+    }
+
+    private MemoryUsageSetting documentMemorySetting() {
+        MemoryUsageSetting setting = MemoryUsageSetting.setupMixed(documentHeapBytes);
+        if (tempDir != null && !tempDir.isBlank()) {
+            setting.setTempDir(new File(tempDir));
+        }
+        return setting;
+    }
+
+    private ByteBuffer download(String inputBucket, String objectName) {
+        try {
+            downloadPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+        try {
+            BlobMeta meta = blobStore.stat(inputBucket, objectName);
+            if (meta == null) {
+                throw new IllegalArgumentException("Input object not found: " + objectName);
             }
 
-            doc.save(out);
+            if (meta.size() > MAX_BYTES_PER_IMAGE) {
+                throw new IllegalArgumentException("Bild zu groß: " + objectName +
+                        " (max. " + (MAX_BYTES_PER_IMAGE / (1024 * 1024)) + " MB)");
+            }
 
-            String outputObject = "jobs/" + jobId + "/output.pdf";
-            BlobId outId = BlobId.of(outputBucket, outputObject);
-            BlobInfo outInfo = BlobInfo.newBuilder(outId)
-                    .setContentType("application/pdf")
-                    .build();
+            // lokal memory-mapped, bei GCS der heruntergeladene Inhalt
+            long start = System.nanoTime();
+            ByteBuffer data = blobStore.read(inputBucket, objectName);
+            if (data == null) {
+                throw new IllegalArgumentException("Input object not found: " + objectName);
+            }
+            metrics.stage(Stage.DOWNLOAD, start);
+            metrics.bytesIn("download", data.remaining());
+            return data;
+        } finally {
+            downloadPermits.release();
+        }
+    }
 
-            storage.create(outInfo, out.toByteArray());
+    /**
+     * Bild für die Einbettung vorbereiten. JPEGs innerhalb der Limits werden unverändert
+     * (DCTDecode) übernommen, nur der Header wird gelesen. Alles andere wird
+     * dekodiert, ggf. runterskaliert und je nach Inhalt und Profil neu kodiert ({@link #encode}).
+     * <p>
+     * prepare/addPage/readScaled sind paketintern, damit die Benchmarks in
+     * {@code src/jmh} die Stufen einzeln messen können.
+     */
+    PreparedImage prepare(ByteBuffer imageBytes, String objectName) {
+        return prepare(imageBytes, objectName, defaultProfile);
+    }
 
-            return "gs://" + outputBucket + "/" + outputObject;
+    PreparedImage prepare(ByteBuffer imageBytes, String objectName, EncodingProfile profile) {
+        try (PreparedSource source = prepareSource(imageBytes, objectName, 0, profile)) {
+            return source.first();
+        } catch (IOException e) {
+            throw new CompletionException(e);
         }
     }
 
     /**
-     * Bild lesen und direkt runterskalieren, um Speicher zu sparen.
+     * Erste Seite einer Datei (Frame {@code startFrame}) vorbereiten. Bei mehrseitigen Dateien
+     * bleibt der Reader für die restlichen Frames offen ({@link #addPages}); der Aufrufer
+     * schließt die Quelle.
      */
-    private BufferedImage readScaled(ByteArrayInputStream in, int maxWidth, int maxHeight) throws Exception {
-        try (ImageInputStream iis = ImageIO.createImageInputStream(in)) {
-            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
-            if (!readers.hasNext()) {
-                return null;
+    private PreparedSource prepareSource(ByteBuffer imageBytes, String objectName, int startFrame,
+                                         EncodingProfile profile) {
+        long start = System.nanoTime();
+        JpegHeader jpeg = startFrame == 0 ? JpegHeader.parse(imageBytes) : null;
+        // ohne EOI fehlt vermutlich ein Teil der Scan-Daten: lieber dekodieren als ein kaputtes Bild einbetten
+        if (jpeg != null && jpeg.isPassthroughCompatible()
+                && jpeg.width() <= targetWidth && jpeg.height() <= targetHeight
+                && JpegHeader.hasEndOfImage(imageBytes)) {
+            PreparedImage prepared = PreparedImage.jpegPassthrough(imageBytes, jpeg);
+            metrics.stage(Stage.ENCODE, start);
+            return new PreparedSource(prepared, null);
+        }
+
+        FrameSource frames;
+        try {
+            frames = FrameSource.open(new ByteBufferInputStream(imageBytes));
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+        if (frames == null) {
+            throw new IllegalArgumentException(
+                    "Unsupported or unreadable image format for object: " + objectName
+            );
+        }
+        try {
+            if (startFrame >= frames.frames()) {
+                throw new IllegalArgumentException("Frame " + startFrame + " fehlt in " + objectName
+                        + " (" + frames.frames() + " Frames)");
+            }
+            PreparedImage first = prepareFrame(frames, startFrame, profile);
+            if (frames.frames() > startFrame + 1) {
+                return new PreparedSource(first, frames, startFrame);
             }
-            ImageReader reader = readers.next();
+            frames.close();
+            return new PreparedSource(first, null);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } catch (RuntimeException e) {
             try {
-                reader.setInput(iis, true, true);
+                frames.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
 
-                int width = reader.getWidth(0);
-                int height = reader.getHeight(0);
+    /**
+     * Einen Frame dekodieren, verkleinern und kodieren.
+     */
+    private PreparedImage prepareFrame(FrameSource frames, int index, EncodingProfile profile) {
+        try {
+            long start = System.nanoTime();
+            // Speicher für Bild + Kodierpuffer reservieren, bis die Seite kodiert ist
+            try (MemoryBudget.Lease lease = memoryBudget.newLease()) {
+                BufferedImage bufferedImage = frames.read(index, targetWidth, targetHeight, lease::reserve);
+                metrics.stage(Stage.DECODE, start);
 
-                // für kleine Bilder: direkt lesen
-                if (width <= maxWidth && height <= maxHeight) {
-                    return reader.read(0);
-                }
+                start = System.nanoTime();
+                PreparedImage prepared = encode(bufferedImage, profile);
+                metrics.stage(Stage.ENCODE, start);
+                return prepared;
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
 
-                // Downsampling-Faktor bestimmen
-                double scale = Math.min(
-                        (double) maxWidth / width,
-                        (double) maxHeight / height
-                );
-                int subsampling = (int) Math.ceil(1.0 / scale);
-                if (subsampling < 1) subsampling = 1;
+    /**
+     * Die Seiten einer Datei anhängen, höchstens {@code maxFrames}: zuerst den vorbereiteten
+     * ersten Frame, dann die übrigen einzeln (dekodieren, kodieren, einfügen), sodass nie
+     * mehr als ein weiterer Frame im Speicher liegt. Liefert die neue Seitenzahl des Dokuments.
+     */
+    private int addPages(PDDocument doc, PreparedSource source, EncodingProfile profile, int pagesDone,
+                         int maxFrames, IntConsumer onPageDone, Executor executor) throws Exception {
+        int frames = Math.min(source.frames(), maxFrames);
+        if (frames <= 0) {
+            return pagesDone;
+        }
+        if (pagesDone + frames > maxPages) {
+            throw new IllegalArgumentException("Zu viele Seiten in einem Job (max. " + maxPages + ")");
+        }
+        addPage(doc, source.first());
+        onPageDone.accept(++pagesDone);
+        for (int index = 1; index < frames; index++) {
+            int frame = source.firstFrame() + index;
+            addPage(doc, await(CompletableFuture.supplyAsync(
+                    () -> prepareFrame(source.more(), frame, profile), executor)));
+            onPageDone.accept(++pagesDone);
+        }
+        return pagesDone;
+    }
 
-                ImageReadParam param = reader.getDefaultReadParam();
-                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+    /**
+     * Seitenzahl einer Datei (Frames bei TIFF/GIF, sonst 1), nur aus den Headern.
+     */
+    public int countPages(InputStream in) throws IOException {
+        try (FrameSource source = FrameSource.open(in)) {
+            if (source == null) {
+                throw new IllegalArgumentException("Unsupported or unreadable image format");
+            }
+            return source.frames();
+        }
+    }
+
+    /**
+     * Günstigste passende Kodierung: Schwarzweiß als CCITT G4, Grafiken mit wenigen Farben
+     * und alles unter {@code archive} verlustfrei, Fotos als JPEG. Graustufen bleiben
+     * einkanalig, eine SMask gibt es nur bei tatsächlich genutztem Alpha.
+     */
+    PreparedImage encode(BufferedImage image, EncodingProfile profile) throws Exception {
+        ImageClassifier.Result kind = ImageClassifier.classify(image);
+        PreparedImage prepared;
+        if (!kind.alpha() && (kind.bilevel() || profile == EncodingProfile.SMALL && kind.nearBilevel())) {
+            prepared = PreparedImage.ccitt(image);
+        } else if (profile == EncodingProfile.ARCHIVE || kind.fewColors()) {
+            prepared = PreparedImage.lossless(image, kind.gray(), kind.alpha());
+        } else {
+            prepared = PreparedImage.jpeg(image, jpegQuality(profile), kind.gray(), kind.alpha());
+        }
+        metrics.encoding(prepared.filter().getName());
+        return prepared;
+    }
+
+    private float jpegQuality(EncodingProfile profile) {
+        return profile == EncodingProfile.SMALL ? smallJpegQuality : balancedJpegQuality;
+    }
+
+    /**
+     * Neue A4-Seite anlegen und das Bild zentriert einpassen.
+     */
+    void addPage(PDDocument doc, PreparedImage prepared) throws Exception {
+        long start = System.nanoTime();
+        PDImageXObject image = prepared.toXObject(doc);
+
+        // neue Seite pro Bild
+        PDRectangle pageSize = PAGE;
+        PDPage page = new PDPage(pageSize);
+        doc.addPage(page);
+
+        float pageWidth = pageSize.getWidth();
+        float pageHeight = pageSize.getHeight();
+
+        float imgWidth = image.getWidth();
+        float imgHeight = image.getHeight();
+        float scale = Math.min(pageWidth / imgWidth, pageHeight / imgHeight);
+
+        float drawWidth = imgWidth * scale;
+        float drawHeight = imgHeight * scale;
+
+        float x = (pageWidth - drawWidth) / 2;
+        float y = (pageHeight - drawHeight) / 2;
+
+        try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+            cs.drawImage(image, x, y, drawWidth, drawHeight);
+        }
+        metrics.stage(Stage.ASSEMBLE, start);
+        metrics.page();
+    }
+
+    /**
+     * Auf eine Pipeline-Stufe warten und die ursprüngliche Exception weiterreichen,
+     * damit z.B. IllegalArgumentException für den Aufrufer erkennbar bleibt.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof Exception ex) {
+                throw ex;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Bild lesen und auf höchstens {@code maxWidth} x {@code maxHeight} verkleinern
+     * (Seitenverhältnis bleibt, vergrößert wird nie).
+     */
+    BufferedImage readScaled(InputStream in, int maxWidth, int maxHeight) throws Exception {
+        return readScaled(in, maxWidth, maxHeight, bytes -> { });
+    }
+
+    /**
+     * Wie oben (nur erster Frame); {@code beforeDecode} bekommt vorher den aus dem Header
+     * geschätzten Speicherbedarf ({@link MemoryBudget#estimate}) und darf blockieren.
+     */
+    BufferedImage readScaled(InputStream in, int maxWidth, int maxHeight, LongConsumer beforeDecode)
+            throws Exception {
+        try (FrameSource source = FrameSource.open(in)) {
+            return source == null ? null : source.read(0, maxWidth, maxHeight, beforeDecode);
+        }
+    }
+
+    /**
+     * Vorbereiteter erster Frame und, bei mehrseitigen Dateien, der noch offene Reader.
+     * {@code firstFrame} ist der Index von {@code first} in der Datei (Shards großer
+     * TIFFs/GIFs beginnen mittendrin).
+     */
+    private record PreparedSource(PreparedImage first, FrameSource more, int firstFrame, long bytes)
+            implements AutoCloseable {
+
+        PreparedSource(PreparedImage first, FrameSource more) {
+            this(first, more, 0, 0);
+        }
+
+        PreparedSource(PreparedImage first, FrameSource more, int firstFrame) {
+            this(first, more, firstFrame, 0);
+        }
+
+        /** Dieselbe Quelle mit der Größe der heruntergeladenen Datei. */
+        PreparedSource withBytes(long bytes) {
+            return new PreparedSource(first, more, firstFrame, bytes);
+        }
+
+        /** Frames ab {@code first} bis zum Ende der Datei. */
+        int frames() {
+            return more == null ? 1 : more.frames() - firstFrame;
+        }
 
-                return reader.read(0, param);
-            } finally {
-                reader.dispose();
+        @Override
+        public void close() throws IOException {
+            if (more != null) {
+                more.close();
             }
         }
     }
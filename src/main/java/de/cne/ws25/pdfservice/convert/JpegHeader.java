@@ -0,0 +1,113 @@
+package de.cne.ws25.pdfservice.convert;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Minimaler JPEG-Header-Parser: liest nur die Marker bis zum SOF-Segment,
+ * ohne die Bilddaten zu dekodieren.
+ */
+record JpegHeader(int sofMarker, int precision, int width, int height, int components) {
+
+    /**
+     * Liefert den Header oder {@code null}, wenn die Bytes kein (lesbares) JPEG sind.
+     */
+    static JpegHeader parse(byte[] data) {
+        return data == null ? null : parse(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Wie oben, liest absolut ab {@code position()} ohne den Buffer zu verändern
+     * (funktioniert auch mit memory-mapped Buffern).
+     */
+    static JpegHeader parse(ByteBuffer buffer) {
+        if (buffer == null) {
+            return null;
+        }
+        int base = buffer.position();
+        int end = buffer.limit();
+        if (end - base < 4 || u8(buffer, base) != 0xFF || u8(buffer, base + 1) != 0xD8) {
+            return null;
+        }
+
+        int pos = base + 2;
+        while (pos + 3 < end) {
+            if (u8(buffer, pos) != 0xFF) {
+                return null;
+            }
+            int marker = u8(buffer, pos + 1);
+            pos += 2;
+
+            // Füllbytes (0xFF 0xFF ...) überspringen
+            if (marker == 0xFF) {
+                pos--;
+                continue;
+            }
+            // Marker ohne Längenfeld
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                continue;
+            }
+            // Start of Scan / End of Image ohne SOF -> kaputt
+            if (marker == 0xDA || marker == 0xD9) {
+                return null;
+            }
+
+            int length = u16(buffer, pos);
+            if (length < 2 || pos + length > end) {
+                return null;
+            }
+
+            if (isSofMarker(marker)) {
+                if (length < 8) {
+                    return null;
+                }
+                int precision = u8(buffer, pos + 2);
+                int height = u16(buffer, pos + 3);
+                int width = u16(buffer, pos + 5);
+                int components = u8(buffer, pos + 7);
+                return new JpegHeader(marker, precision, width, height, components);
+            }
+
+            pos += length;
+        }
+        return null;
+    }
+
+    /**
+     * Endet die Datei mit EOI (0xFF 0xD9)? Abgeschnittene Uploads haben einen vollständigen
+     * Header, aber keinen Marker am Ende; sie dürfen nicht ungeprüft ins PDF.
+     * Auffüllende Nullbytes hinter EOI werden toleriert.
+     */
+    static boolean hasEndOfImage(ByteBuffer buffer) {
+        int pos = buffer.limit() - 1;
+        while (pos > buffer.position() && u8(buffer, pos) == 0x00) {
+            pos--;
+        }
+        return pos - 1 >= buffer.position() && u8(buffer, pos - 1) == 0xFF && u8(buffer, pos) == 0xD9;
+    }
+
+    /**
+     * Baseline/Extended/Progressive, 8 Bit, Gray oder RGB/YCbCr:
+     * diese Daten kann jeder PDF-Viewer per DCTDecode direkt darstellen.
+     */
+    boolean isPassthroughCompatible() {
+        boolean supportedSof = sofMarker == 0xC0 || sofMarker == 0xC1 || sofMarker == 0xC2;
+        return supportedSof
+                && precision == 8
+                && (components == 1 || components == 3)
+                && width > 0 && height > 0;
+    }
+
+    private static int u8(ByteBuffer buffer, int index) {
+        return buffer.get(index) & 0xFF;
+    }
+
+    private static int u16(ByteBuffer buffer, int index) {
+        return (u8(buffer, index) << 8) | u8(buffer, index + 1);
+    }
+
+    private static boolean isSofMarker(int marker) {
+        // C4 = DHT, C8 = JPG (reserviert), CC = DAC sind keine SOF-Marker
+        return marker >= 0xC0 && marker <= 0xCF
+                && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+}
@@ -0,0 +1,104 @@
+package de.cne.ws25.pdfservice.convert;
+
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics.Stage;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Globales Speicherbudget für das Dekodieren/Kodieren, über alle gleichzeitigen
+ * Jobs der Instanz (Worker und synchroner Pfad).
+ * <p>
+ * Vor dem Dekodieren wird der Bedarf aus dem Bild-Header geschätzt und reserviert;
+ * passt er nicht ins Budget, wird bis {@code app.convert.memory-wait-ms} gewartet und
+ * dann mit {@link MemoryBudgetExceededException} abgebrochen (Push wird wiederholt).
+ * Intern in KB gezählt, damit die Semaphore nicht überläuft.
+ */
+@Component
+public class MemoryBudget {
+
+    private final Semaphore permitsKb;
+    private final int totalKb;
+    private final long waitMs;
+    private final PipelineMetrics metrics;
+
+    public MemoryBudget(
+            PipelineMetrics metrics,
+            @Value("${app.convert.memory-budget-mb:0}") long budgetMb,
+            @Value("${app.convert.memory-wait-ms:10000}") long waitMs
+    ) {
+        // 0 = halber max. Heap, der Rest bleibt für Spring, PDFBox, Uploads usw.
+        long budgetBytes = budgetMb > 0 ? budgetMb * 1024 * 1024 : Runtime.getRuntime().maxMemory() / 2;
+        this.totalKb = (int) Math.min(Integer.MAX_VALUE, Math.max(1, budgetBytes / 1024));
+        this.permitsKb = new Semaphore(totalKb, true);
+        this.waitMs = waitMs;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gauge erst nach dem Konstruktor registrieren, damit {@code this} nicht halb fertig entkommt.
+     */
+    @PostConstruct
+    void registerGauge() {
+        metrics.bytesGauge("pdf.convert.memory.reserved", "Reserviertes Speicherbudget fürs Dekodieren/Kodieren",
+                this, MemoryBudget::reservedBytes);
+    }
+
+    /**
+     * Geschätzter Bedarf einer Seite: dekodiertes Bild plus Kodierpuffer
+     * (unkomprimiert RGB + Alpha als Obergrenze).
+     */
+    static long estimate(int width, int height, int bytesPerPixel) {
+        long pixels = (long) width * height;
+        return pixels * bytesPerPixel + pixels * 4;
+    }
+
+    long reservedBytes() {
+        return (long) (totalKb - permitsKb.availablePermits()) * 1024;
+    }
+
+    /**
+     * Leere Reservierung für eine Seite; freigegeben wird beim Schließen.
+     */
+    Lease newLease() {
+        return new Lease();
+    }
+
+    final class Lease implements AutoCloseable {
+
+        private int reservedKb;
+
+        /**
+         * Blockiert, bis {@code bytes} frei sind. Einzelne Seiten über dem Budget
+         * bekommen das ganze Budget und laufen damit allein.
+         */
+        void reserve(long bytes) {
+            int kb = (int) Math.min(totalKb, Math.max(1, (bytes + 1023) / 1024));
+            long start = System.nanoTime();
+            try {
+                if (!permitsKb.tryAcquire(kb, waitMs, TimeUnit.MILLISECONDS)) {
+                    throw new MemoryBudgetExceededException(
+                            "Speicherbudget erschöpft (" + (kb / 1024) + " MB nicht frei nach " + waitMs + " ms)", null);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MemoryBudgetExceededException("Warten auf Speicherbudget unterbrochen", e);
+            } finally {
+                metrics.stage(Stage.MEMORY_WAIT, start);
+            }
+            reservedKb += kb;
+        }
+
+        @Override
+        public void close() {
+            if (reservedKb > 0) {
+                permitsKb.release(reservedKb);
+                reservedKb = 0;
+            }
+        }
+    }
+}
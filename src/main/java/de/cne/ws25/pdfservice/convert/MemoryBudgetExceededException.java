@@ -0,0 +1,13 @@
+package de.cne.ws25.pdfservice.convert;
+
+/**
+ * Die Instanz ist gerade ausgelastet; der Job kann später wiederholt werden.
+ */
+public class MemoryBudgetExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public MemoryBudgetExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,294 @@
+package de.cne.ws25.pdfservice.convert;
+
+import de.cne.ws25.pdfservice.storage.ByteBufferInputStream;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.image.CCITTFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Fertig kodierte Bilddaten, die unabhängig vom {@link PDDocument} erzeugt werden.
+ * Dadurch kann das teure Kodieren parallel laufen; das Einhängen ins Dokument
+ * ({@link #toXObject(PDDocument)}) ist nur noch eine Byte-Kopie.
+ */
+record PreparedImage(
+        ByteBuffer data,
+        COSName filter,
+        int width,
+        int height,
+        int bitsPerComponent,
+        PDColorSpace colorSpace,
+        COSDictionary decodeParms,
+        PreparedImage softMask
+) {
+
+    PDImageXObject toXObject(PDDocument doc) throws IOException {
+        PDImageXObject image = new PDImageXObject(
+                doc,
+                new ByteBufferInputStream(data),
+                filter,
+                width,
+                height,
+                bitsPerComponent,
+                colorSpace
+        );
+        if (decodeParms != null) {
+            image.getCOSObject().setItem(COSName.DECODE_PARMS, decodeParms);
+        }
+        if (softMask != null) {
+            image.getCOSObject().setItem(COSName.SMASK, softMask.toXObject(doc));
+        }
+        return image;
+    }
+
+    /**
+     * JPEG-Daten unverändert als DCTDecode übernehmen.
+     */
+    static PreparedImage jpegPassthrough(ByteBuffer jpegBytes, JpegHeader header) {
+        PDColorSpace colorSpace = header.components() == 1 ? PDDeviceGray.INSTANCE : PDDeviceRGB.INSTANCE;
+        return new PreparedImage(
+                jpegBytes,
+                COSName.DCT_DECODE,
+                header.width(),
+                header.height(),
+                header.precision(),
+                colorSpace,
+                null,
+                null
+        );
+    }
+
+    /**
+     * Verlustfrei als FlateDecode kodieren (8 Bit Gray oder RGB, Alpha als SMask).
+     */
+    static PreparedImage lossless(BufferedImage image) throws IOException {
+        return lossless(image, image.getType() == BufferedImage.TYPE_BYTE_GRAY, image.getColorModel().hasAlpha());
+    }
+
+    /**
+     * Wie oben; {@code gray} nur, wenn alle Pixel R = G = B haben, {@code alpha} nur,
+     * wenn der Alpha-Kanal wirklich genutzt wird (sonst keine SMask).
+     */
+    static PreparedImage lossless(BufferedImage image, boolean gray, boolean alpha) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean rawGray = image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+        int components = gray ? 1 : 3;
+
+        Deflater colorDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        Deflater alphaDeflater = alpha ? new Deflater(Deflater.DEFAULT_COMPRESSION) : null;
+        try {
+            ByteArrayOutputStream colorBytes = new ByteArrayOutputStream(width * height * components / 4 + 64);
+            ByteArrayOutputStream alphaBytes = alpha ? new ByteArrayOutputStream(width * height / 8 + 64) : null;
+
+            try (DeflaterOutputStream colorOut = new DeflaterOutputStream(colorBytes, colorDeflater, 64 * 1024);
+                 DeflaterOutputStream alphaOut = alpha
+                         ? new DeflaterOutputStream(alphaBytes, alphaDeflater, 16 * 1024)
+                         : null) {
+
+                byte[] line = new byte[width * components];
+                byte[] alphaLine = alpha ? new byte[width] : null;
+                int[] row = new int[width];
+
+                for (int y = 0; y < height; y++) {
+                    if (rawGray) {
+                        // Rohwerte aus dem Raster, ohne Farbraumkonvertierung
+                        image.getRaster().getSamples(0, y, width, 1, 0, row);
+                        for (int x = 0; x < width; x++) {
+                            line[x] = (byte) row[x];
+                        }
+                    } else if (gray) {
+                        image.getRGB(0, y, width, 1, row, 0, width);
+                        for (int x = 0; x < width; x++) {
+                            line[x] = (byte) row[x];
+                            if (alpha) {
+                                alphaLine[x] = (byte) (row[x] >>> 24);
+                            }
+                        }
+                    } else {
+                        image.getRGB(0, y, width, 1, row, 0, width);
+                        for (int x = 0, i = 0; x < width; x++) {
+                            int argb = row[x];
+                            line[i++] = (byte) (argb >> 16);
+                            line[i++] = (byte) (argb >> 8);
+                            line[i++] = (byte) argb;
+                            if (alpha) {
+                                alphaLine[x] = (byte) (argb >>> 24);
+                            }
+                        }
+                    }
+                    colorOut.write(line);
+                    if (alpha) {
+                        alphaOut.write(alphaLine);
+                    }
+                }
+            }
+
+            PreparedImage softMask = alpha
+                    ? new PreparedImage(ByteBuffer.wrap(alphaBytes.toByteArray()), COSName.FLATE_DECODE,
+                    width, height, 8, PDDeviceGray.INSTANCE, null, null)
+                    : null;
+
+            return new PreparedImage(
+                    ByteBuffer.wrap(colorBytes.toByteArray()),
+                    COSName.FLATE_DECODE,
+                    width,
+                    height,
+                    8,
+                    gray ? PDDeviceGray.INSTANCE : PDDeviceRGB.INSTANCE,
+                    null,
+                    softMask
+            );
+        } finally {
+            colorDeflater.end();
+            if (alphaDeflater != null) {
+                alphaDeflater.end();
+            }
+        }
+    }
+
+    /**
+     * Als JPEG (DCTDecode) mit {@code quality} 0..1 kodieren, bei {@code gray} einkanalig.
+     * Genutztes Alpha geht verlustfrei in eine SMask, da JPEG keins kann.
+     */
+    static PreparedImage jpeg(BufferedImage image, float quality, boolean gray, boolean alpha) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage source = jpegSource(image, gray);
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(width * height / 8 + 1024);
+        try (ImageOutputStream out = new MemoryCacheImageOutputStream(bytes)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(source, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+
+        PreparedImage softMask = alpha ? alphaMask(image) : null;
+        return new PreparedImage(
+                ByteBuffer.wrap(bytes.toByteArray()),
+                COSName.DCT_DECODE,
+                width,
+                height,
+                8,
+                gray ? PDDeviceGray.INSTANCE : PDDeviceRGB.INSTANCE,
+                null,
+                softMask
+        );
+    }
+
+    /**
+     * Schwarzweiß als CCITT Group 4 (1 Bit); Graustufen werden bei 50 % geschwellt.
+     */
+    static PreparedImage ccitt(BufferedImage image) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean rawGray = image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+
+        // Index 0 = schwarz, 1 = weiß
+        BufferedImage bilevel = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        WritableRaster target = bilevel.getRaster();
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            if (rawGray) {
+                image.getRaster().getSamples(0, y, width, 1, 0, row);
+            } else {
+                image.getRGB(0, y, width, 1, row, 0, width);
+            }
+            for (int x = 0; x < width; x++) {
+                row[x] = (row[x] & 0xFF) >= 128 ? 1 : 0;
+            }
+            target.setSamples(0, y, width, 1, 0, row);
+        }
+
+        // CCITTFactory braucht ein Dokument; die kodierten Bytes samt DecodeParms werden übernommen
+        try (PDDocument scratch = new PDDocument()) {
+            PDImageXObject xObject = CCITTFactory.createFromImage(scratch, bilevel);
+            byte[] encoded;
+            try (InputStream in = xObject.getCOSObject().createRawInputStream()) {
+                encoded = in.readAllBytes();
+            }
+            return new PreparedImage(
+                    ByteBuffer.wrap(encoded),
+                    COSName.CCITTFAX_DECODE,
+                    width,
+                    height,
+                    1,
+                    PDDeviceGray.INSTANCE,
+                    (COSDictionary) xObject.getCOSObject().getDictionaryObject(COSName.DECODE_PARMS),
+                    null
+            );
+        }
+    }
+
+    private static BufferedImage jpegSource(BufferedImage image, boolean gray) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (gray && image.getType() == BufferedImage.TYPE_BYTE_GRAY
+                || !gray && (image.getType() == BufferedImage.TYPE_3BYTE_BGR || image.getType() == BufferedImage.TYPE_INT_RGB)) {
+            return image;
+        }
+        // der JPEG-Writer kann kein Alpha/Indexed; Farbwerte zeilenweise ohne Alpha kopieren
+        BufferedImage copy = new BufferedImage(width, height, gray ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_3BYTE_BGR);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            if (gray) {
+                for (int x = 0; x < width; x++) {
+                    row[x] &= 0xFF;
+                }
+                copy.getRaster().setSamples(0, y, width, 1, 0, row);
+            } else {
+                copy.setRGB(0, y, width, 1, row, 0, width);
+            }
+        }
+        return copy;
+    }
+
+    private static PreparedImage alphaMask(BufferedImage image) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            ByteArrayOutputStream alphaBytes = new ByteArrayOutputStream(width * height / 8 + 64);
+            try (DeflaterOutputStream alphaOut = new DeflaterOutputStream(alphaBytes, deflater, 16 * 1024)) {
+                byte[] alphaLine = new byte[width];
+                int[] row = new int[width];
+                for (int y = 0; y < height; y++) {
+                    image.getRGB(0, y, width, 1, row, 0, width);
+                    for (int x = 0; x < width; x++) {
+                        alphaLine[x] = (byte) (row[x] >>> 24);
+                    }
+                    alphaOut.write(alphaLine);
+                }
+            }
+            return new PreparedImage(ByteBuffer.wrap(alphaBytes.toByteArray()), COSName.FLATE_DECODE,
+                    width, height, 8, PDDeviceGray.INSTANCE, null, null);
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package de.cne.ws25.pdfservice.convert;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * Verkleinern auf eine exakte Zielgröße per Flächenmittelung (Box-Filter mit
+ * anteiligen Randpixeln). Läuft zeilenweise: jede Quellzeile wird einmal horizontal
+ * gemittelt und anteilig auf die betroffenen Zielzeilen verteilt.
+ * <p>
+ * Die Zeilenpuffer hängen am Thread (feste Encode-Threads), damit im Dauerbetrieb
+ * pro Bild nur noch das Zielbild alloziert wird.
+ */
+final class Resampler {
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private Resampler() {
+    }
+
+    /**
+     * Graustufen bleiben einkanalig ({@code TYPE_BYTE_GRAY}), 1-Bit-Bilder werden danach
+     * wieder auf Schwarz/Weiß geschwellt (damit CCITT greift), alles andere wird RGB bzw. ARGB.
+     */
+    static BufferedImage areaAverage(BufferedImage source, int targetWidth, int targetHeight) {
+        int sw = source.getWidth();
+        int sh = source.getHeight();
+        boolean rawGray = source.getType() == BufferedImage.TYPE_BYTE_GRAY;
+        boolean bilevel = source.getColorModel().getPixelSize() == 1;
+        boolean alpha = source.getColorModel().hasAlpha();
+        int channels = rawGray ? 1 : 4;
+
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight,
+                rawGray || bilevel ? BufferedImage.TYPE_BYTE_GRAY
+                        : alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        WritableRaster targetRaster = target.getRaster();
+
+        Scratch s = SCRATCH.get();
+        int[] sourceRow = s.ints(0, sw);
+        float[] row = s.floats(0, targetWidth * channels);
+        float[] acc = s.floats(1, targetWidth * channels);
+        int[] outRow = s.ints(1, targetWidth);
+        Arrays.fill(acc, 0, targetWidth * channels, 0f);
+
+        double rx = (double) sw / targetWidth;
+        double ry = (double) sh / targetHeight;
+        float norm = (float) (1.0 / (rx * ry));
+
+        int oy = 0;
+        for (int sy = 0; sy < sh && oy < targetHeight; sy++) {
+            if (rawGray) {
+                source.getRaster().getSamples(0, sy, sw, 1, 0, sourceRow);
+            } else {
+                source.getRGB(0, sy, sw, 1, sourceRow, 0, sw);
+            }
+            horizontal(sourceRow, sw, row, targetWidth, rx, rawGray, alpha);
+
+            // Anteil dieser Quellzeile an den Zielzeilen, die sie überdeckt
+            while (oy < targetHeight) {
+                double start = oy * ry;
+                double end = start + ry;
+                float weight = (float) (Math.min(sy + 1, end) - Math.max(sy, start));
+                if (weight > 0) {
+                    for (int i = 0; i < targetWidth * channels; i++) {
+                        acc[i] += weight * row[i];
+                    }
+                }
+                if (end > sy + 1) {
+                    break;
+                }
+                emit(acc, norm, outRow, targetRaster, target, oy++, targetWidth, rawGray, bilevel, alpha);
+            }
+        }
+        // Rundungsreste: letzte Zeile(n) noch ausgeben
+        while (oy < targetHeight) {
+            emit(acc, norm, outRow, targetRaster, target, oy++, targetWidth, rawGray, bilevel, alpha);
+        }
+        return target;
+    }
+
+    private static void horizontal(int[] src, int sw, float[] out, int tw, double rx, boolean gray, boolean alpha) {
+        for (int ox = 0; ox < tw; ox++) {
+            double start = ox * rx;
+            double end = start + rx;
+            float a = 0, r = 0, g = 0, b = 0;
+            for (int i = (int) start; i < end && i < sw; i++) {
+                float w = (float) (Math.min(i + 1, end) - Math.max(i, start));
+                int v = src[i];
+                if (gray) {
+                    b += w * v;
+                } else {
+                    int pa = alpha ? v >>> 24 : 0xFF;
+                    // vormultipliert mitteln, sonst färben transparente Pixel die Kanten
+                    float f = w * pa / 255f;
+                    a += w * pa;
+                    r += f * ((v >> 16) & 0xFF);
+                    g += f * ((v >> 8) & 0xFF);
+                    b += f * (v & 0xFF);
+                }
+            }
+            if (gray) {
+                out[ox] = b;
+            } else {
+                int i = ox * 4;
+                out[i] = a;
+                out[i + 1] = r;
+                out[i + 2] = g;
+                out[i + 3] = b;
+            }
+        }
+    }
+
+    private static void emit(float[] acc, float norm, int[] outRow, WritableRaster raster, BufferedImage target,
+                             int y, int tw, boolean rawGray, boolean bilevel, boolean alpha) {
+        for (int x = 0; x < tw; x++) {
+            if (rawGray) {
+                outRow[x] = clamp(acc[x] * norm);
+                acc[x] = 0;
+                continue;
+            }
+            int i = x * 4;
+            float a = acc[i] * norm;
+            float unpremultiply = a > 0 ? 255f / a : 0;
+            int r = clamp(acc[i + 1] * norm * unpremultiply);
+            int g = clamp(acc[i + 2] * norm * unpremultiply);
+            int b = clamp(acc[i + 3] * norm * unpremultiply);
+            acc[i] = acc[i + 1] = acc[i + 2] = acc[i + 3] = 0;
+            if (bilevel) {
+                outRow[x] = (r + g + b) >= 3 * 128 ? 0xFF : 0;
+            } else {
+                outRow[x] = (alpha ? clamp(a) : 0xFF) << 24 | r << 16 | g << 8 | b;
+            }
+        }
+        if (rawGray || bilevel) {
+            raster.setSamples(0, y, tw, 1, 0, outRow);
+        } else {
+            target.setRGB(0, y, tw, 1, outRow, 0, tw);
+        }
+    }
+
+    private static int clamp(float v) {
+        int i = Math.round(v);
+        return i < 0 ? 0 : Math.min(i, 0xFF);
+    }
+
+    /**
+     * Wachsende Zeilenpuffer pro Thread.
+     */
+    private static final class Scratch {
+        private final int[][] ints = new int[2][0];
+        private final float[][] floats = new float[2][0];
+
+        int[] ints(int slot, int size) {
+            if (ints[slot].length < size) {
+                ints[slot] = new int[size];
+            }
+            return ints[slot];
+        }
+
+        float[] floats(int slot, int size) {
+            if (floats[slot].length < size) {
+                floats[slot] = new float[size];
+            }
+            return floats[slot];
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package de.cne.ws25.pdfservice.convert;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fester Thread-Pool mit einer Warteschlange pro Lane statt einer gemeinsamen. Warten in
+ * mehreren Lanes Aufgaben, verteilen die Threads sie nach Gewicht (Smooth Weighted Round
+ * Robin wie bei nginx): bei 4:1 kommt auf vier Aufgaben der einen Lane eine der anderen,
+ * gleichmäßig verzahnt. Innerhalb einer Lane gilt FIFO, eine leere Lane gibt ihren Anteil ab.
+ */
+public class WeightedExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(WeightedExecutor.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Map<String, Lane> lanes = new LinkedHashMap<>();   // unter lock
+    private final List<Thread> threads;
+    private volatile boolean shutdown;
+
+    public WeightedExecutor(int threads, String namePrefix) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Mindestens ein Thread");
+        }
+        this.threads = new ArrayList<>(threads);
+        for (int i = 1; i <= threads; i++) {
+            Thread t = new Thread(this::work, namePrefix + i);
+            t.setDaemon(true);
+            this.threads.add(t);
+            t.start();
+        }
+    }
+
+    /**
+     * Lane holen oder anlegen; das Gewicht gilt ab dem ersten Aufruf für diesen Namen.
+     */
+    public Lane lane(String name, int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Gewicht der Lane " + name + " muss >= 1 sein");
+        }
+        lock.lock();
+        try {
+            return lanes.computeIfAbsent(name, n -> new Lane(weight));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void shutdownNow() {
+        shutdown = true;
+        threads.forEach(Thread::interrupt);
+    }
+
+    private void work() {
+        while (!shutdown) {
+            Runnable task;
+            try {
+                task = take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                // Thread nicht verlieren, der Pool hat eine feste Größe
+                log.error("Aufgabe fehlgeschlagen", t);
+            }
+        }
+    }
+
+    private Runnable take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                Lane next = null;
+                int total = 0;
+                for (Lane lane : lanes.values()) {
+                    if (lane.tasks.isEmpty()) {
+                        // leere Lane sammelt keinen Vorsprung an
+                        lane.current = 0;
+                        continue;
+                    }
+                    lane.current += lane.weight;
+                    total += lane.weight;
+                    if (next == null || lane.current > next.current) {
+                        next = lane;
+                    }
+                }
+                if (next != null) {
+                    next.current -= total;
+                    return next.tasks.poll();
+                }
+                available.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Eine Warteschlange des Pools; als {@link Executor} an {@code CompletableFuture} übergeben.
+     */
+    public final class Lane implements Executor {
+
+        private final int weight;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();   // unter lock
+        private int current;
+
+        private Lane(int weight) {
+            this.weight = weight;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Pool wurde beendet");
+            }
+            lock.lock();
+            try {
+                tasks.add(task);
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Wartende (noch nicht gestartete) Aufgaben. */
+        public int queued() {
+            lock.lock();
+            try {
+                return tasks.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
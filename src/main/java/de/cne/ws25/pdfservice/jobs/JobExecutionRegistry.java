@@ -0,0 +1,70 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Welche Jobs auf dieser Instanz gerade laufen bzw. schon abgeschlossen sind.
+ * Erneut zugestellte Nachrichten (Pub/Sub liefert mindestens einmal) werden damit
+ * erkannt, bevor Download und Kodierung ein zweites Mal laufen.
+ * <p>
+ * Abgeschlossene Jobs nur als LRU mit {@code app.worker.dedup.max-entries} Einträgen;
+ * instanzübergreifend sorgen Job-Status und die Precondition auf {@code output.pdf} dafür.
+ */
+@Component
+public class JobExecutionRegistry {
+
+    public enum Claim { ACQUIRED, IN_FLIGHT, COMPLETED }
+
+    private final Map<String, Boolean> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> completed;
+
+    public JobExecutionRegistry(@Value("${app.worker.dedup.max-entries:10000}") int maxEntries) {
+        this.completed = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Job für diese Zustellung beanspruchen; nur bei {@link Claim#ACQUIRED} wird konvertiert.
+     * Erst atomar beanspruchen, dann prüfen, ob er inzwischen erledigt ist: {@link #complete}
+     * trägt den Job ein, bevor es ihn freigibt, eine zweite Zustellung sieht also immer
+     * entweder den laufenden oder den abgeschlossenen Job.
+     */
+    public Claim claim(String jobId) {
+        if (inFlight.putIfAbsent(jobId, Boolean.TRUE) != null) {
+            return Claim.IN_FLIGHT;
+        }
+        synchronized (completed) {
+            if (completed.containsKey(jobId)) {
+                inFlight.remove(jobId);
+                return Claim.COMPLETED;
+            }
+        }
+        return Claim.ACQUIRED;
+    }
+
+    /**
+     * Job ist endgültig erledigt (fertig oder nicht wiederholbar fehlgeschlagen).
+     */
+    public void complete(String jobId) {
+        synchronized (completed) {
+            completed.put(jobId, Boolean.TRUE);
+        }
+        inFlight.remove(jobId);
+    }
+
+    /**
+     * Job darf bei der nächsten Zustellung wieder laufen.
+     */
+    public void release(String jobId) {
+        inFlight.remove(jobId);
+    }
+}
@@ -0,0 +1,85 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Einteilung der Jobs nach geschätztem Aufwand (Seiten, Eingabe-Bytes) in Lanes, damit
+ * ein einzelnes Bild nicht hinter mehreren 20-Seiten-Jobs wartet.
+ * <p>
+ * Die Lane steht im Attribut {@code lane} jeder Nachricht (Subscriptions können darauf
+ * filtern) und bestimmt das Topic: ohne {@code app.lanes.<lane>.topic} gehen alle Lanes
+ * auf {@code app.pubsub.topic}. Im Worker verteilt {@link LaneScheduler} Plätze und CPU.
+ */
+@Component
+public class JobLanes {
+
+    public static final String ATTRIBUTE = "lane";
+
+    public enum Lane {
+        SMALL, LARGE;
+
+        /**
+         * Lane aus dem Nachrichtenattribut; fehlend oder unbekannt liefert {@code null}.
+         */
+        public static Lane parse(String id) {
+            if (id == null || id.isBlank()) {
+                return null;
+            }
+            try {
+                return valueOf(id.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        public String id() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final int smallMaxPages;
+    private final long smallMaxBytes;
+    private final Map<Lane, String> topics = new EnumMap<>(Lane.class);
+
+    public JobLanes(
+            @Value("${app.pubsub.topic}") String defaultTopic,
+            @Value("${app.lanes.small.max-pages:4}") int smallMaxPages,
+            @Value("${app.lanes.small.max-bytes-mb:8}") long smallMaxBytesMb,
+            @Value("${app.lanes.small.topic:}") String smallTopic,
+            @Value("${app.lanes.large.topic:}") String largeTopic
+    ) {
+        if (smallMaxPages < 1) {
+            throw new IllegalArgumentException("app.lanes.small.max-pages muss >= 1 sein");
+        }
+        this.smallMaxPages = smallMaxPages;
+        this.smallMaxBytes = smallMaxBytesMb * 1024 * 1024;
+        topics.put(Lane.SMALL, smallTopic.isBlank() ? defaultTopic : smallTopic.trim());
+        topics.put(Lane.LARGE, largeTopic.isBlank() ? defaultTopic : largeTopic.trim());
+    }
+
+    /**
+     * Klein sind Jobs bis {@code small.max-pages} Seiten und {@code small.max-bytes-mb}
+     * Eingabe; {@code inputBytes} 0 = unbekannt, dann zählen nur die Seiten.
+     */
+    public Lane classify(int pages, long inputBytes) {
+        return pages <= smallMaxPages && inputBytes <= smallMaxBytes ? Lane.SMALL : Lane.LARGE;
+    }
+
+    public String topic(Lane lane) {
+        return topics.get(lane);
+    }
+
+    /**
+     * Lane einer empfangenen Nachricht: das Attribut des Publishers, bei älteren
+     * Nachrichten ohne Attribut geschätzt aus der Seitenzahl.
+     */
+    public Lane resolve(String attribute, PdfJobMessage job) {
+        Lane lane = Lane.parse(attribute);
+        return lane != null ? lane : classify(job.pagesTotal(), 0);
+    }
+}
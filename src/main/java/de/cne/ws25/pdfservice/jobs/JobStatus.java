@@ -0,0 +1,40 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+// status.json wird von anderen Versionen gelesen/geschrieben: unbekannte Felder ignorieren
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record JobStatus(
+        String jobId,
+        State state,
+        int pagesDone,
+        int pagesTotal,
+        String outputPath,  // z.B. "gs://bucket/jobs/<id>/output.pdf", nur bei DONE
+        String error,       // nur bei FAILED
+        long updatedAt      // epoch millis
+) {
+
+    public enum State { QUEUED, RUNNING, DONE, FAILED }
+
+    public static JobStatus queued(String jobId, int pagesTotal) {
+        return new JobStatus(jobId, State.QUEUED, 0, pagesTotal, null, null, System.currentTimeMillis());
+    }
+
+    public static JobStatus running(String jobId, int pagesDone, int pagesTotal) {
+        return new JobStatus(jobId, State.RUNNING, pagesDone, pagesTotal, null, null, System.currentTimeMillis());
+    }
+
+    public static JobStatus done(String jobId, int pagesTotal, String outputPath) {
+        return new JobStatus(jobId, State.DONE, pagesTotal, pagesTotal, outputPath, null, System.currentTimeMillis());
+    }
+
+    public static JobStatus failed(String jobId, int pagesDone, int pagesTotal, String error) {
+        return new JobStatus(jobId, State.FAILED, pagesDone, pagesTotal, null, error, System.currentTimeMillis());
+    }
+
+    @JsonIgnore
+    public boolean isTerminal() {
+        return state == State.DONE || state == State.FAILED;
+    }
+}
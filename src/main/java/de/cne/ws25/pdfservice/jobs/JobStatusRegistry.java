@@ -0,0 +1,318 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.cne.ws25.pdfservice.storage.BlobStore;
+import de.cne.ws25.pdfservice.storage.BlobTarget;
+import de.cne.ws25.pdfservice.storage.ByteBufferInputStream;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Job-Status (QUEUED/RUNNING/DONE/FAILED + Seitenfortschritt).
+ * <p>
+ * Lesezugriffe kommen aus einem lokalen Cache mit TTL; die gemeinsame Quelle für
+ * alle Instanzen ist {@code jobs/<id>/status.json} im Output-Bucket, das nur der
+ * Worker schreibt. Fehlt die Datei oder ist der Stand nicht abgeschlossen, wird als
+ * Fallback nach {@code output.pdf} gesucht.
+ * <p>
+ * Aktive Stände aus dem Store bleiben anfangs {@code active-ttl-ms} im Cache, je länger
+ * ein Job läuft, desto länger (bis {@code max-active-ttl-ms}); so kostet ein großer Job
+ * nicht jede Sekunde einen GCS-Read pro Abonnent oder Admission-Abgleich. Stände vom
+ * eigenen Worker gelten {@code max-active-ttl-ms} und werden solange gar nicht gelesen.
+ */
+@Service
+public class JobStatusRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(JobStatusRegistry.class);
+
+    private final BlobStore blobStore;
+    private final String outputBucket;
+    private final long activeTtlMs;
+    private final long maxActiveTtlMs;
+    private final long terminalTtlMs;
+    private final long progressWriteIntervalMs;
+    private final int maxEntries;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // since: seit wann der Job hier bekannt ist, bestimmt die TTL aktiver Stände
+    private record CachedStatus(JobStatus status, long expiresAt, long since) {}
+
+    private final Map<String, CachedStatus> cache = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastSharedWrite = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscription>> listeners = new ConcurrentHashMap<>();
+
+    // ein Poller für alle SSE-Clients statt ein GCS-Request pro Browser
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "job-status-poller");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public JobStatusRegistry(
+            BlobStore blobStore,
+            @Value("${app.bucket.output}") String outputBucket,
+            @Value("${app.jobs.status.active-ttl-ms:1000}") long activeTtlMs,
+            @Value("${app.jobs.status.max-active-ttl-ms:5000}") long maxActiveTtlMs,
+            @Value("${app.jobs.status.terminal-ttl-ms:600000}") long terminalTtlMs,
+            @Value("${app.jobs.status.progress-write-interval-ms:2000}") long progressWriteIntervalMs,
+            @Value("${app.jobs.status.max-entries:10000}") int maxEntries,
+            @Value("${app.jobs.status.poll-interval-ms:1000}") long pollIntervalMs
+    ) {
+        this.blobStore = blobStore;
+        this.outputBucket = outputBucket;
+        this.activeTtlMs = activeTtlMs;
+        this.maxActiveTtlMs = Math.max(activeTtlMs, maxActiveTtlMs);
+        this.terminalTtlMs = terminalTtlMs;
+        this.progressWriteIntervalMs = progressWriteIntervalMs;
+        this.maxEntries = maxEntries;
+        poller.scheduleWithFixedDelay(this::pollSubscribed, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        poller.shutdownNow();
+    }
+
+    /**
+     * Nur lokal vormerken (API-Seite beim Enqueue); kein GCS-Zugriff. Ein schon bekannter
+     * weiterer Stand (Worker auf derselben Instanz war schneller) wird nicht überschrieben.
+     */
+    public void registerQueued(String jobId, int pagesTotal) {
+        JobStatus queued = JobStatus.queued(jobId, pagesTotal);
+        long now = System.currentTimeMillis();
+        CachedStatus registered = cache.merge(jobId, new CachedStatus(queued, now + activeTtlMs, now),
+                (known, fresh) -> newer(known.status(), queued) == queued ? fresh : known);
+        if (registered.status() == queued && cache.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    /**
+     * Status aktualisieren (Worker). Zustandswechsel werden sofort geteilt,
+     * reiner Seitenfortschritt höchstens alle {@code progressWriteIntervalMs}.
+     */
+    public void update(JobStatus status) {
+        putLocal(status, true);
+        notifyListeners(status);
+
+        long now = System.currentTimeMillis();
+        boolean progressOnly = status.state() == JobStatus.State.RUNNING && status.pagesDone() > 0;
+        if (progressOnly) {
+            Long last = lastSharedWrite.get(status.jobId());
+            if (last != null && now - last < progressWriteIntervalMs) {
+                return;
+            }
+        }
+        lastSharedWrite.put(status.jobId(), now);
+        if (status.isTerminal()) {
+            lastSharedWrite.remove(status.jobId());
+        }
+        writeShared(status);
+    }
+
+    /**
+     * Status lesen: lokaler Cache, sonst gemeinsamer Store, sonst output.pdf-Fallback.
+     */
+    public JobStatus lookup(String jobId) {
+        CachedStatus cached = cache.get(jobId);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached.status();
+        }
+        return refresh(jobId, cached != null ? cached.status() : null);
+    }
+
+    /**
+     * Listener für Statusänderungen registrieren; Rückgabe meldet wieder ab.
+     * Der Listener läuft auf einem eigenen virtuellen Thread, nie auf dem des Workers
+     * oder Pollers; ist er noch beschäftigt, bekommt er danach nur den neuesten Stand.
+     */
+    public Runnable subscribe(String jobId, Consumer<JobStatus> listener) {
+        Subscription subscription = new Subscription(listener);
+        listeners.computeIfAbsent(jobId, k -> ConcurrentHashMap.newKeySet()).add(subscription);
+        return () -> listeners.computeIfPresent(jobId, (k, set) -> {
+            set.remove(subscription);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private JobStatus refresh(String jobId, JobStatus known) {
+        JobStatus shared = loadShared(jobId);
+        JobStatus current = newer(known, shared);
+        if (current == null) {
+            // noch kein Worker dran und nicht lokal bekannt
+            current = JobStatus.queued(jobId, 0);
+        }
+        putLocal(current, false);
+        return current;
+    }
+
+    private void pollSubscribed() {
+        for (String jobId : listeners.keySet()) {
+            try {
+                CachedStatus cached = cache.get(jobId);
+                JobStatus before = cached != null ? cached.status() : null;
+                if (before != null && before.isTerminal()) {
+                    notifyListeners(before);
+                    continue;
+                }
+                // noch frisch (eigener Worker meldet selbst, sonst Backoff über die TTL)
+                if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+                    continue;
+                }
+                JobStatus after = refresh(jobId, before);
+                if (before == null || before.state() != after.state() || before.pagesDone() != after.pagesDone()) {
+                    notifyListeners(after);
+                }
+            } catch (Exception e) {
+                log.warn("Status-Poll für Job {} fehlgeschlagen: {}", jobId, e.getMessage());
+            }
+        }
+    }
+
+    private void notifyListeners(JobStatus status) {
+        Set<Subscription> set = listeners.get(status.jobId());
+        if (set != null) {
+            set.forEach(subscription -> subscription.offer(status));
+        }
+    }
+
+    /**
+     * Ein Abonnent (z.B. SSE-Client). Ein langsamer oder halb geschlossener Client hält so
+     * weder den Worker noch die anderen Jobs im Poller auf; Zwischenstände werden verworfen.
+     */
+    private static final class Subscription {
+
+        private final Consumer<JobStatus> listener;
+        // noch nicht zugestellter neuester Stand; gesetzt = ein Sender läuft
+        private final AtomicReference<JobStatus> pending = new AtomicReference<>();
+
+        Subscription(Consumer<JobStatus> listener) {
+            this.listener = listener;
+        }
+
+        void offer(JobStatus status) {
+            if (pending.getAndSet(status) == null) {
+                Thread.ofVirtual().name("job-status-push").start(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                JobStatus status = pending.get();
+                try {
+                    listener.accept(status);
+                } catch (Exception e) {
+                    log.warn("Status für Job {} nicht zugestellt: {}", status.jobId(), e.getMessage());
+                }
+                // inzwischen ein neuerer Stand gekommen: den noch senden
+                if (pending.compareAndSet(status, null)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void putLocal(JobStatus status, boolean fromWorker) {
+        long now = System.currentTimeMillis();
+        cache.compute(status.jobId(), (jobId, known) -> {
+            long since = known != null ? known.since() : now;
+            long ttl = status.isTerminal() ? terminalTtlMs
+                    : fromWorker ? maxActiveTtlMs
+                    : activeTtl(now - since);
+            return new CachedStatus(status, now + ttl, since);
+        });
+        if (cache.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    /** Ein Viertel der bisherigen Laufzeit, zwischen active-ttl-ms und max-active-ttl-ms. */
+    private long activeTtl(long ageMs) {
+        return Math.max(activeTtlMs, Math.min(maxActiveTtlMs, ageMs / 4));
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        cache.entrySet().removeIf(e -> e.getValue().expiresAt() <= now && !listeners.containsKey(e.getKey()));
+
+        // immer noch zu groß: beliebige Einträge ohne Listener verwerfen
+        Iterator<String> it = cache.keySet().iterator();
+        while (cache.size() > maxEntries && it.hasNext()) {
+            String jobId = it.next();
+            if (!listeners.containsKey(jobId)) {
+                it.remove();
+            }
+        }
+    }
+
+    private JobStatus loadShared(String jobId) {
+        JobStatus shared = null;
+        try {
+            ByteBuffer json = blobStore.read(outputBucket, statusObject(jobId));
+            if (json != null) {
+                try (InputStream in = new ByteBufferInputStream(json)) {
+                    shared = objectMapper.readValue(in, JobStatus.class);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Status für Job {} nicht lesbar: {}", jobId, e.getMessage());
+        }
+        if (shared != null && shared.isTerminal()) {
+            return shared;
+        }
+
+        // Fallback: Jobs ohne status.json (z.B. ältere Versionen) oder mit veraltetem Stand, weil
+        // das DONE-Schreiben fehlschlug oder der Worker danach starb; das PDF ist maßgeblich
+        String outputObject = "jobs/" + jobId + "/output.pdf";
+        if (blobStore.stat(outputBucket, outputObject) != null) {
+            int pagesTotal = shared != null ? shared.pagesTotal() : 0;
+            return JobStatus.done(jobId, pagesTotal, "gs://" + outputBucket + "/" + outputObject);
+        }
+        return shared;
+    }
+
+    private void writeShared(JobStatus status) {
+        try {
+            blobStore.put(
+                    BlobTarget.of(outputBucket, statusObject(status.jobId()), "application/json"),
+                    objectMapper.writeValueAsBytes(status));
+        } catch (Exception e) {
+            // Status ist best effort, das PDF selbst bleibt maßgeblich
+            log.warn("Status für Job {} nicht geschrieben: {}", status.jobId(), e.getMessage());
+        }
+    }
+
+    private static String statusObject(String jobId) {
+        return "jobs/" + jobId + "/status.json";
+    }
+
+    /**
+     * Der weiter fortgeschrittene von zwei Ständen (Zustand, dann Seiten, dann Zeit).
+     */
+    private static JobStatus newer(JobStatus a, JobStatus b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.state() != b.state()) {
+            return a.state().ordinal() > b.state().ordinal() ? a : b;
+        }
+        if (a.pagesDone() != b.pagesDone()) {
+            return a.pagesDone() > b.pagesDone() ? a : b;
+        }
+        return a.updatedAt() >= b.updatedAt() ? a : b;
+    }
+}
@@ -0,0 +1,99 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import de.cne.ws25.pdfservice.convert.ImageToPdfService;
+import de.cne.ws25.pdfservice.convert.WeightedExecutor;
+import de.cne.ws25.pdfservice.jobs.JobLanes.Lane;
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ausführung im Worker getrennt nach {@link Lane}: jede Lane hat eine feste Zahl an
+ * Plätzen für gleichzeitige Jobs ({@code max-concurrent}) und eine eigene Warteschlange
+ * im CPU-Pool. Große Jobs können so nie alle Plätze belegen, und wenn beide Lanes
+ * rechnen, bekommt jede CPU-Zeit nach {@code weight}.
+ * <p>
+ * Ist eine Lane voll, wartet die Zustellung höchstens {@code max-wait-ms} auf einen
+ * Platz, danach wird der Job zurückgestellt (Pub/Sub stellt mit Backoff erneut zu).
+ */
+@Component
+public class LaneScheduler {
+
+    private record Slots(Semaphore permits, long maxWaitMs, WeightedExecutor.Lane cpu, AtomicInteger waiting) {}
+
+    private final PipelineMetrics metrics;
+    private final Map<Lane, Slots> slots = new EnumMap<>(Lane.class);
+
+    public LaneScheduler(
+            ImageToPdfService imageToPdfService,
+            PipelineMetrics metrics,
+            @Value("${app.lanes.small.weight:4}") int smallWeight,
+            @Value("${app.lanes.small.max-concurrent:8}") int smallMaxConcurrent,
+            @Value("${app.lanes.small.max-wait-ms:30000}") long smallMaxWaitMs,
+            @Value("${app.lanes.large.weight:1}") int largeWeight,
+            @Value("${app.lanes.large.max-concurrent:2}") int largeMaxConcurrent,
+            @Value("${app.lanes.large.max-wait-ms:5000}") long largeMaxWaitMs
+    ) {
+        if (smallMaxConcurrent < 1 || largeMaxConcurrent < 1) {
+            throw new IllegalArgumentException("app.lanes.*.max-concurrent muss >= 1 sein");
+        }
+        this.metrics = metrics;
+        register(imageToPdfService, Lane.SMALL, smallWeight, smallMaxConcurrent, smallMaxWaitMs);
+        register(imageToPdfService, Lane.LARGE, largeWeight, largeMaxConcurrent, largeMaxWaitMs);
+    }
+
+    private void register(ImageToPdfService imageToPdfService, Lane lane, int weight, int maxConcurrent, long maxWaitMs) {
+        Slots laneSlots = new Slots(new Semaphore(maxConcurrent, true), maxWaitMs,
+                imageToPdfService.cpuLane(lane.id(), weight), new AtomicInteger());
+        slots.put(lane, laneSlots);
+
+        metrics.laneGauge("pdf.lanes.active", "Laufende Jobs je Lane", lane.id(),
+                laneSlots, s -> maxConcurrent - s.permits().availablePermits());
+        metrics.laneGauge("pdf.lanes.waiting", "Auf einen Platz wartende Zustellungen je Lane", lane.id(),
+                laneSlots, s -> s.waiting().get());
+        metrics.laneGauge("pdf.lanes.cpu.queued", "Wartende Dekodier-/Kodier-Aufgaben je Lane", lane.id(),
+                laneSlots, s -> s.cpu().queued());
+    }
+
+    /**
+     * Platz für einen Job in {@code lane} belegen; {@code false}, wenn bis
+     * {@code max-wait-ms} keiner frei wurde. Danach {@link #release} aufrufen.
+     */
+    public boolean acquire(Lane lane) {
+        Slots laneSlots = slots.get(lane);
+        long start = System.nanoTime();
+        laneSlots.waiting().incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = laneSlots.permits().tryAcquire(laneSlots.maxWaitMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            laneSlots.waiting().decrementAndGet();
+        }
+        metrics.laneWait(lane.id(), start, acquired);
+        return acquired;
+    }
+
+    /**
+     * Platz zurückgeben; {@code startNanos} = Beginn des Jobs nach {@link #acquire}.
+     */
+    public void release(Lane lane, long startNanos) {
+        slots.get(lane).permits().release();
+        metrics.laneJob(lane.id(), startNanos);
+    }
+
+    /**
+     * Warteschlange der Lane im CPU-Pool für Dekodieren/Kodieren.
+     */
+    public WeightedExecutor.Lane cpu(Lane lane) {
+        return slots.get(lane).cpu();
+    }
+}
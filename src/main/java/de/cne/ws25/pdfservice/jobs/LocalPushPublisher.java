@@ -0,0 +1,144 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.SettableApiFuture;
+import com.google.pubsub.v1.PubsubMessage;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-Process-Pub/Sub für lokale Läufe und Lasttests: statt an einen Broker geht jede
+ * Nachricht wie bei einer Push-Subscription per HTTP an {@code /pubsub/push} dieser
+ * Instanz. Keine Credentials, kein Netz außer localhost.
+ * <p>
+ * Wie Pub/Sub: die Message-ID kommt sofort zurück, zugestellt wird asynchron mit
+ * höchstens {@code push-concurrency} gleichzeitigen Requests; bei Nicht-2xx wird mit
+ * exponentiellem Backoff erneut zugestellt, nach {@code max-attempts} verworfen
+ * (entspricht einer Dead-Letter-Policy).
+ */
+@Component
+@ConditionalOnProperty(name = "app.pubsub.backend", havingValue = "local")
+public class LocalPushPublisher implements MessagePublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalPushPublisher.class);
+
+    private final Environment environment;
+    private final int maxAttempts;
+    private final long minBackoffMs;
+    private final long maxBackoffMs;
+    private final Semaphore inFlight;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final ExecutorService delivery = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService redelivery = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("local-pubsub-redelivery").factory());
+
+    private volatile URI endpoint;
+
+    public LocalPushPublisher(
+            Environment environment,
+            @Value("${app.pubsub.local.push-concurrency:16}") int pushConcurrency,
+            @Value("${app.pubsub.local.max-attempts:5}") int maxAttempts,
+            @Value("${app.pubsub.local.min-backoff-ms:100}") long minBackoffMs,
+            @Value("${app.pubsub.local.max-backoff-ms:10000}") long maxBackoffMs
+    ) {
+        this.environment = environment;
+        this.maxAttempts = maxAttempts;
+        this.minBackoffMs = minBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.inFlight = new Semaphore(pushConcurrency);
+    }
+
+    @Override
+    public ApiFuture<String> publish(String topicId, PubsubMessage message) {
+        PubSubPushRequest.Message pushed = new PubSubPushRequest.Message();
+        pushed.data = Base64.getEncoder().encodeToString(message.getData().toByteArray());
+        pushed.attributes = message.getAttributesMap();
+        pushed.messageId = UUID.randomUUID().toString();
+        pushed.publishTime = Instant.now().toString();
+
+        PubSubPushRequest request = new PubSubPushRequest();
+        request.message = pushed;
+        request.subscription = "local/" + topicId;
+
+        SettableApiFuture<String> future = SettableApiFuture.create();
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(request);
+            future.set(pushed.messageId);
+            delivery.execute(() -> deliver(body, pushed.messageId, 1));
+        } catch (Exception e) {
+            future.setException(e);
+        }
+        return future;
+    }
+
+    private void deliver(byte[] body, String messageId, int attempt) {
+        int status;
+        try {
+            inFlight.acquire();
+            try {
+                HttpRequest request = HttpRequest.newBuilder(endpoint())
+                        .header("Content-Type", "application/json")
+                        .timeout(Duration.ofMinutes(10))
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                        .build();
+                status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } finally {
+                inFlight.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            status = -1;
+        }
+        if (status >= 200 && status < 300) {
+            return;
+        }
+        if (attempt >= maxAttempts) {
+            log.warn("Lokale Zustellung von {} nach {} Versuchen aufgegeben (HTTP {})", messageId, attempt, status);
+            return;
+        }
+        long backoff = Math.min(maxBackoffMs, minBackoffMs << Math.min(attempt - 1, 20));
+        redelivery.schedule(() -> delivery.execute(() -> deliver(body, messageId, attempt + 1)),
+                backoff, TimeUnit.MILLISECONDS);
+    }
+
+    private URI endpoint() {
+        if (endpoint == null) {
+            // Port steht erst fest, wenn der Webserver läuft (auch bei server.port=0)
+            String port = environment.getProperty("local.server.port", environment.getProperty("server.port", "8080"));
+            endpoint = URI.create("http://localhost:" + port + "/pubsub/push");
+        }
+        return endpoint;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        redelivery.shutdownNow();
+        delivery.shutdownNow();
+    }
+}
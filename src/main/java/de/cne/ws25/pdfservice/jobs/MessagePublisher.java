@@ -0,0 +1,16 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import com.google.api.core.ApiFuture;
+import com.google.pubsub.v1.PubsubMessage;
+
+/**
+ * Schnittstelle zum Message-Broker. Produktiv Pub/Sub ({@link PubSubMessagePublisher}),
+ * lokal und im Lasttest {@link LocalPushPublisher}, in Unit-Tests ein In-Process-Fake.
+ */
+public interface MessagePublisher {
+
+    /**
+     * Nachricht asynchron senden; das Future liefert die Message-ID des Brokers.
+     */
+    ApiFuture<String> publish(String topicId, PubsubMessage message);
+}
@@ -0,0 +1,248 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.cne.ws25.pdfservice.convert.ImageToPdfService;
+import de.cne.ws25.pdfservice.convert.MemoryBudgetExceededException;
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import de.cne.ws25.pdfservice.storage.PreconditionFailedException;
+import de.cne.ws25.pdfservice.tracing.JobTracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Scope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOException;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntConsumer;
+
+/**
+ * Verarbeitung einer Job-Nachricht, unabhängig davon, wie sie zugestellt wurde
+ * (Push-Endpoint oder Pull-Subscriber).
+ * <p>
+ * Idempotent: Duplikate (Job läuft schon oder ist fertig) werden sofort bestätigt,
+ * {@code output.pdf} wird nur geschrieben, wenn es noch nicht existiert.
+ * Läuft der Job auf dieser Instanz noch, ist die laufende Zustellung dafür zuständig.
+ */
+@Service
+public class PdfJobHandler {
+
+    /**
+     * Nur RETRY (ausgelastet) und ERROR (vorübergehender Fehler) werden erneut zugestellt,
+     * alles andere wird bestätigt – auch FAILED, das bei Wiederholung wieder scheitern würde.
+     */
+    public enum Outcome { DONE, IGNORED, DUPLICATE, RETRY, ERROR, FAILED }
+
+    private static final Logger log = LoggerFactory.getLogger(PdfJobHandler.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ImageToPdfService imageToPdfService;
+    private final JobStatusRegistry jobStatusRegistry;
+    private final JobExecutionRegistry executions;
+    private final PdfJobShards jobShards;
+    private final JobLanes lanes;
+    private final LaneScheduler laneScheduler;
+    private final JobTracing tracing;
+    private final PipelineMetrics metrics;
+
+    public PdfJobHandler(
+            ImageToPdfService imageToPdfService,
+            JobStatusRegistry jobStatusRegistry,
+            JobExecutionRegistry executions,
+            PdfJobShards jobShards,
+            JobLanes lanes,
+            LaneScheduler laneScheduler,
+            JobTracing tracing,
+            PipelineMetrics metrics
+    ) {
+        this.imageToPdfService = imageToPdfService;
+        this.jobStatusRegistry = jobStatusRegistry;
+        this.executions = executions;
+        this.jobShards = jobShards;
+        this.lanes = lanes;
+        this.laneScheduler = laneScheduler;
+        this.tracing = tracing;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Nachrichteninhalt (JSON eines {@link PdfJobMessage}) verarbeiten. Aus den Attributen
+     * kommen die Lane und der Trace-Kontext des Uploads (fehlen bei älteren Nachrichten).
+     */
+    public Outcome handle(byte[] data, String messageId, Map<String, String> attributes) {
+        Span span = tracing.startJob(attributes, messageId);
+        try (Scope ignored = span.makeCurrent()) {
+            PdfJobMessage job;
+            try {
+                job = objectMapper.readValue(data, PdfJobMessage.class);
+            } catch (Exception e) {
+                // kaputte Nachricht wird auch beim nächsten Mal nicht lesbar
+                log.warn("Nachricht {} nicht lesbar: {}", messageId, e.getMessage());
+                metrics.failure("worker", e);
+                return finish(span, Outcome.FAILED);
+            }
+            return finish(span, handle(job, messageId, attributes == null ? null : attributes.get(JobLanes.ATTRIBUTE)));
+        } finally {
+            span.end();
+        }
+    }
+
+    private static Outcome finish(Span span, Outcome outcome) {
+        span.setAttribute("pdf.job.outcome", outcome.name());
+        if (outcome == Outcome.ERROR || outcome == Outcome.FAILED) {
+            span.setStatus(StatusCode.ERROR);
+        }
+        return outcome;
+    }
+
+    public Outcome handle(PdfJobMessage job, String messageId, String laneAttribute) {
+        log.debug("Job geladen: {}", job);
+
+        if (!"IMAGE_TO_PDF".equals(job.type())) {
+            log.info("Job-Typ ignoriert: {}", job.type());
+            return Outcome.IGNORED;
+        }
+        String jobId = job.jobId();
+        if (jobId == null || jobId.isBlank()) {
+            log.warn("Nachricht {} ohne Job-ID verworfen", messageId);
+            metrics.failure("worker", new IllegalArgumentException("jobId fehlt"));
+            return Outcome.FAILED;
+        }
+
+        // Shards eines Jobs laufen unabhängig voneinander
+        PdfJobMessage.Shard shard = job.shard();
+        Span.current().setAttribute("pdf.job.id", jobId);
+        if (shard != null) {
+            Span.current().setAttribute("pdf.job.shard", shard.index());
+        }
+        String executionKey = shard == null ? jobId : jobId + "#" + shard.index();
+        JobExecutionRegistry.Claim claim = executions.claim(executionKey);
+        if (claim != JobExecutionRegistry.Claim.ACQUIRED) {
+            return duplicate(executionKey, messageId, claim.name());
+        }
+
+        int pagesTotal = shard != null ? shard.pagesTotal() : job.pagesTotal();
+        try {
+            // erst nach dem Claim prüfen: andere Instanz (oder frühere Zustellung vor einem
+            // Neustart bzw. aus dem LRU verdrängt) schon fertig?
+            JobStatus known = jobStatusRegistry.lookup(jobId);
+            if (known.isTerminal()) {
+                executions.complete(executionKey);
+                return duplicate(executionKey, messageId, known.state().name());
+            }
+
+            // Fortschritt anderer Shards nicht zurücksetzen
+            if (shard == null || known.state() == JobStatus.State.QUEUED) {
+                jobStatusRegistry.update(JobStatus.running(jobId, 0, pagesTotal));
+            }
+
+            // kleine Jobs warten nicht hinter großen: eigene Plätze und CPU-Anteile je Lane
+            JobLanes.Lane lane = lanes.resolve(laneAttribute, job);
+            Span.current().setAttribute("pdf.job.lane", lane.id());
+            if (!laneScheduler.acquire(lane)) {
+                log.info("Job {} zurückgestellt: Lane {} voll", executionKey, lane.id());
+                if (shard == null) {
+                    jobStatusRegistry.update(JobStatus.queued(jobId, pagesTotal));
+                }
+                executions.release(executionKey);
+                return Outcome.RETRY;
+            }
+
+            String outputPath;
+            long started = System.nanoTime();
+            metrics.jobStarted();
+            try {
+                IntConsumer onProgress = pagesDone -> jobStatusRegistry.update(JobStatus.running(jobId, pagesDone, pagesTotal));
+                outputPath = shard != null
+                        ? jobShards.convert(job, laneScheduler.cpu(lane), onProgress)
+                        : imageToPdfService.convertImageObjectsToPdf(
+                                job.inputBucket(),
+                                job.inputObjects(),
+                                job.outputBucket(),
+                                jobId,
+                                imageToPdfService.profile(job.profile()),
+                                onProgress,
+                                laneScheduler.cpu(lane)
+                        );
+            } finally {
+                metrics.jobFinished();
+                laneScheduler.release(lane, started);
+            }
+
+            executions.complete(executionKey);
+            if (outputPath == null) {
+                log.info("Shard {} fertig, warte auf restliche Teile", executionKey);
+                if (jobStatusRegistry.lookup(jobId).state() == JobStatus.State.FAILED) {
+                    // ein anderer Shard ist inzwischen gescheitert, sein Aufräumen kam vor diesem Teil
+                    jobShards.deleteParts(job);
+                }
+                return Outcome.DONE;
+            }
+            jobStatusRegistry.update(JobStatus.done(jobId, pagesTotal, outputPath));
+
+            log.info("Job {} fertig, Output: {}", jobId, outputPath);
+            return Outcome.DONE;
+        } catch (PreconditionFailedException e) {
+            // eine parallele Zustellung hat output.pdf zuerst geschrieben
+            jobStatusRegistry.update(JobStatus.done(jobId, pagesTotal,
+                    "gs://" + job.outputBucket() + "/" + ImageToPdfService.outputObject(jobId)));
+            executions.complete(executionKey);
+            return duplicate(executionKey, messageId, "output.pdf existiert");
+        } catch (MemoryBudgetExceededException e) {
+            // Instanz ausgelastet: kein Fehler des Jobs, Pub/Sub stellt mit Backoff erneut zu
+            log.info("Job {} zurückgestellt: {}", executionKey, e.getMessage());
+            metrics.failure("worker", e);
+            if (shard == null) {
+                jobStatusRegistry.update(JobStatus.queued(jobId, pagesTotal));
+            }
+            executions.release(executionKey);
+            return Outcome.RETRY;
+        } catch (Exception e) {
+            metrics.failure("worker", e);
+            if (isPermanent(e)) {
+                // ein kaputter Shard macht den ganzen Job kaputt, die anderen überspringen ihn dann
+                log.warn("Job {} fehlgeschlagen (nicht wiederholbar): {}", executionKey, e.getMessage());
+                jobStatusRegistry.update(JobStatus.failed(jobId, 0, pagesTotal, e.getMessage()));
+                if (shard != null) {
+                    // fertige Teile der anderen Shards werden nie mehr zusammengefügt
+                    jobShards.deleteParts(job);
+                }
+                executions.complete(executionKey);
+                return Outcome.FAILED;
+            }
+            log.error("Job {} fehlgeschlagen, wird erneut zugestellt", executionKey, e);
+            Span.current().recordException(e);
+            if (shard == null) {
+                jobStatusRegistry.update(JobStatus.queued(jobId, pagesTotal));
+            }
+            executions.release(executionKey);
+            return Outcome.ERROR;
+        }
+    }
+
+    private Outcome duplicate(String jobId, String messageId, String reason) {
+        log.info("Job {} (Nachricht {}) übersprungen: {}", jobId, messageId, reason);
+        metrics.duplicate();
+        return Outcome.DUPLICATE;
+    }
+
+    /**
+     * Fehler, die sich durch Wiederholen nicht beheben (ungültige Eingaben wie
+     * "Bild zu groß", nicht unterstütztes Format, fehlendes Objekt). Dazu gehören auch
+     * Decoder-Fehler ({@link IIOException}) bei kaputten oder abgeschnittenen Bildern, die
+     * die Formaterkennung noch bestanden haben; dekodiert wird aus dem Speicher, ein
+     * Netzwerkfehler ist das nie. Der synchrone Pfad in /convert beantwortet dieselben
+     * Fehler mit 400.
+     */
+    public static boolean isPermanent(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof IllegalArgumentException || cause instanceof IIOException;
+    }
+}
@@ -1,11 +1,48 @@
 package de.cne.ws25.pdfservice.jobs;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
 import java.util.List;
 
+// Nachrichten können von neueren Versionen stammen: unbekannte Felder ignorieren
+@JsonIgnoreProperties(ignoreUnknown = true)
 public record PdfJobMessage(
         String jobId,
         String inputBucket,
         List<String> inputObjects, // mehrere Objekte
         String outputBucket,
-        String type               // z.B. "IMAGE_TO_PDF"
-) {}
+        String type,              // z.B. "IMAGE_TO_PDF"
+        String profile,           // Kodierprofil (archive/balanced/small), null = Standard
+        int pages,                // Seiten inkl. aller TIFF/GIF-Frames, 0 = unbekannt
+        List<Integer> inputPages, // Seiten je Objekt, null = unbekannt (je eine)
+        Shard shard               // null = ganzer Job in einer Nachricht
+) {
+
+    public PdfJobMessage(String jobId, String inputBucket, List<String> inputObjects, String outputBucket, String type) {
+        this(jobId, inputBucket, inputObjects, outputBucket, type, null, 0, null, null);
+    }
+
+    /**
+     * Seiten des ganzen Jobs; ohne Angabe (ältere Nachrichten) eine pro Objekt.
+     */
+    public int pagesTotal() {
+        if (pages > 0) {
+            return pages;
+        }
+        return inputObjects == null ? 0 : inputObjects.size();
+    }
+
+    /**
+     * Seiten von Objekt {@code index}; ohne Angabe eine.
+     */
+    public int pagesOf(int index) {
+        return inputPages == null || index >= inputPages.size() ? 1 : inputPages.get(index);
+    }
+
+    /**
+     * Teil {@code index} von {@code count} eines großen Jobs mit insgesamt {@code pagesTotal} Seiten.
+     * Der Teil beginnt bei Frame {@code firstFrame} seines ersten Objekts und umfasst {@code pages}
+     * Seiten (0 = alle Frames seiner Objekte, so bei älteren Nachrichten).
+     */
+    public record Shard(int index, int count, int pagesTotal, int firstFrame, int pages) {}
+}
@@ -1,59 +1,150 @@
 package de.cne.ws25.pdfservice.jobs;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.api.core.ApiFuture;
-import com.google.cloud.pubsub.v1.Publisher;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.protobuf.ByteString;
 import com.google.pubsub.v1.PubsubMessage;
-import com.google.pubsub.v1.TopicName;
+import de.cne.ws25.pdfservice.convert.ImageToPdfService;
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import de.cne.ws25.pdfservice.tracing.JobTracing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.util.concurrent.ExecutionException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class PdfJobPublisher {
 
-    private final String projectId;
-    private final String topicId;
+    private static final Logger log = LoggerFactory.getLogger(PdfJobPublisher.class);
+
+    /**
+     * ACKED: /convert antwortet erst, wenn Pub/Sub die Nachricht bestätigt hat.
+     * ASYNC: sofort antworten, Fehler landen in der {@link PublishOutbox}.
+     */
+    public enum Durability { ACKED, ASYNC }
+
+    private final JobLanes lanes;
+    private final JobTracing tracing;
+    private final Durability durability;
+    private final MessagePublisher messagePublisher;
+    private final PublishOutbox outbox;
+    private final PipelineMetrics metrics;
+    private final int shardPages;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public PdfJobPublisher(
-            @Value("${spring.cloud.gcp.project-id}") String projectIdEnv,
-            @Value("${app.pubsub.topic}") String topicIdEnv
+            MessagePublisher messagePublisher,
+            PublishOutbox outbox,
+            PipelineMetrics metrics,
+            JobLanes lanes,
+            JobTracing tracing,
+            @Value("${app.pubsub.durability:ACKED}") Durability durability,
+            @Value("${app.jobs.shard-pages:20}") int shardPages
     ) {
-        this.projectId = projectIdEnv;   // z.B. "cne-ws25"
-        this.topicId = topicIdEnv;       // z.B. "pdf-jobs"
+        if (shardPages < 1 || shardPages > ImageToPdfService.MAX_IMAGES) {
+            throw new IllegalArgumentException("app.jobs.shard-pages muss zwischen 1 und "
+                    + ImageToPdfService.MAX_IMAGES + " liegen");
+        }
+        this.messagePublisher = messagePublisher;
+        this.outbox = outbox;
+        this.metrics = metrics;
+        this.lanes = lanes;
+        this.tracing = tracing;
+        this.durability = durability;
+        this.shardPages = shardPages;
     }
 
-    public void publish(PdfJobMessage job) {
-        TopicName topicName = TopicName.of(projectId, topicId);
+    /**
+     * Muss der Aufrufer auf das Ergebnis von {@link #publish} warten?
+     */
+    public boolean requiresAck() {
+        return durability == Durability.ACKED;
+    }
 
-        Publisher publisher = null;
-        try {
-            // Publisher erzeugen
-            publisher = Publisher.newBuilder(topicName).build();
+    /**
+     * Wie unten, ohne bekannte Eingabegröße (Lane nur nach Seiten).
+     */
+    public CompletableFuture<Void> publishSharded(PdfJobMessage job) {
+        return publishSharded(job, 0, () -> { });
+    }
+
+    /**
+     * Job senden; mehr als {@code app.jobs.shard-pages} Seiten werden in Shards aufgeteilt,
+     * die jeweils als eigene Nachricht rausgehen. Fertig, wenn alle gesendet sind.
+     * Jeder Teil kommt nach Seiten und seinem Anteil an {@code inputBytes} in eine Lane.
+     * Gibt die Outbox (ASYNC) einen Teil auf, läuft {@code onGiveUp} einmal für den ganzen Job.
+     */
+    public CompletableFuture<Void> publishSharded(PdfJobMessage job, long inputBytes, Runnable onGiveUp) {
+        AtomicBoolean givenUp = new AtomicBoolean();
+        Runnable once = () -> {
+            if (givenUp.compareAndSet(false, true)) {
+                onGiveUp.run();
+            }
+        };
+        List<PdfJobMessage> shards = PdfJobShards.split(job, shardPages);
+        if (shards.size() > 1) {
+            log.info("Job {} aufgeteilt in {} Shards", job.jobId(), shards.size());
+        }
+        return CompletableFuture.allOf(shards.stream()
+                .map(part -> publish(part, lanes.classify(part.pagesTotal(), shards.size() == 1
+                        ? inputBytes
+                        : inputBytes * part.pagesTotal() / job.pagesTotal()), once))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    public CompletableFuture<String> publish(PdfJobMessage job) {
+        return publish(job, lanes.classify(job.pagesTotal(), 0), () -> { });
+    }
 
+    /**
+     * Job asynchron an das Topic von {@code lane} senden. Das Future liefert die Message-ID;
+     * im Modus ASYNC wird ein Fehlschlag zusätzlich an die Outbox übergeben, die
+     * {@code onGiveUp} aufruft, falls sie die Nachricht nicht mehr loswird.
+     */
+    public CompletableFuture<String> publish(PdfJobMessage job, JobLanes.Lane lane, Runnable onGiveUp) {
+        String topicId = lanes.topic(lane);
+        PubsubMessage message;
+        try {
             // Job als JSON serialisieren
             String json = objectMapper.writeValueAsString(job);
-            ByteString data = ByteString.copyFromUtf8(json);
-
-            PubsubMessage message = PubsubMessage.newBuilder()
-                    .setData(data)
-                    .build();
-
-            // Nachricht senden
-            ApiFuture<String> messageIdFuture = publisher.publish(message);
-            String messageId = messageIdFuture.get();
-            System.out.println("Job an Pub/Sub gesendet, Message ID: " + messageId);
-
-        } catch (IOException | InterruptedException | ExecutionException e) {
-            throw new RuntimeException("Fehler beim Senden an Pub/Sub", e);
-        } finally {
-            if (publisher != null) {
-                publisher.shutdown();
-            }
+            PubsubMessage.Builder builder = PubsubMessage.newBuilder()
+                    .setData(ByteString.copyFromUtf8(json))
+                    .putAttributes("jobId", job.jobId())
+                    .putAttributes(JobLanes.ATTRIBUTE, lane.id());
+            // traceparent: der Worker setzt den Trace des Uploads fort
+            tracing.inject(builder);
+            message = builder.build();
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new RuntimeException("Fehler beim Serialisieren des Jobs", e));
         }
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        long start = System.nanoTime();
+        ApiFutures.addCallback(messagePublisher.publish(topicId, message), new ApiFutureCallback<>() {
+            @Override
+            public void onSuccess(String messageId) {
+                metrics.publish(start, true);
+                metrics.laneRouted(lane.id());
+                log.debug("Job {} an Pub/Sub gesendet, Message ID: {}", job.jobId(), messageId);
+                result.complete(messageId);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                metrics.publish(start, false);
+                if (durability == Durability.ASYNC) {
+                    outbox.add(topicId, message, job.jobId(), t, onGiveUp);
+                }
+                result.completeExceptionally(new RuntimeException("Fehler beim Senden an Pub/Sub", t));
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
     }
 }
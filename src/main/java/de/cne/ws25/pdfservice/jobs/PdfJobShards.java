@@ -0,0 +1,167 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import de.cne.ws25.pdfservice.convert.ImageToPdfService;
+import de.cne.ws25.pdfservice.storage.BlobMeta;
+import de.cne.ws25.pdfservice.storage.BlobStore;
+import de.cne.ws25.pdfservice.storage.BlobTarget;
+import de.cne.ws25.pdfservice.storage.PreconditionFailedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.IntConsumer;
+
+/**
+ * Große Jobs in Seitenbereiche (Shards) aufteilen, die als eigene Nachrichten auf
+ * beliebigen Instanzen laufen.
+ * <p>
+ * Jeder Shard schreibt {@code jobs/<id>/parts/<index>.pdf}. Wer danach alle Teile
+ * vorfindet, fügt sie zu {@code output.pdf} zusammen; laufen dabei zwei Merges
+ * gleichzeitig, committet wegen der Precondition nur einer.
+ */
+@Service
+public class PdfJobShards {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfJobShards.class);
+
+    private static final String PAGES_METADATA = "pages";
+
+    private final BlobStore blobStore;
+    private final ImageToPdfService imageToPdfService;
+
+    public PdfJobShards(BlobStore blobStore, ImageToPdfService imageToPdfService) {
+        this.blobStore = blobStore;
+        this.imageToPdfService = imageToPdfService;
+    }
+
+    /**
+     * Job mit mehr als {@code shardPages} Seiten in Shards zu je {@code shardPages} Seiten
+     * aufteilen, sonst unverändert. Die Grenzen liegen zwischen Seiten, nicht zwischen Dateien:
+     * ein mehrseitiges TIFF/GIF kann auf mehrere Shards verteilt werden, die dann jeweils nur
+     * ihren Frame-Bereich dekodieren.
+     */
+    public static List<PdfJobMessage> split(PdfJobMessage job, int shardPages) {
+        List<String> objects = job.inputObjects();
+        if (objects == null || objects.isEmpty()) {
+            return List.of(job);
+        }
+        // Seite, mit der jedes Objekt beginnt
+        int[] firstPage = new int[objects.size() + 1];
+        for (int i = 0; i < objects.size(); i++) {
+            firstPage[i + 1] = firstPage[i] + job.pagesOf(i);
+        }
+        int total = firstPage[objects.size()];
+        if (total <= shardPages) {
+            return List.of(job);
+        }
+
+        int count = (total + shardPages - 1) / shardPages;
+        List<PdfJobMessage> shards = new ArrayList<>(count);
+        int object = 0;
+        for (int i = 0; i < count; i++) {
+            int start = i * shardPages;
+            int end = Math.min(total, start + shardPages);
+            while (firstPage[object + 1] <= start) {
+                object++;
+            }
+            int last = object;
+            while (firstPage[last + 1] < end) {
+                last++;
+            }
+            List<String> range = List.copyOf(objects.subList(object, last + 1));
+            PdfJobMessage.Shard shard;
+            List<Integer> rangePages = null;
+            if (job.inputPages() == null) {
+                // Frames unbekannt: je Datei eine Seite gezählt, der Shard nimmt alle ihre Frames
+                shard = new PdfJobMessage.Shard(i, count, job.pagesTotal(), 0, 0);
+            } else {
+                rangePages = List.copyOf(job.inputPages().subList(object, last + 1));
+                shard = new PdfJobMessage.Shard(i, count, job.pagesTotal(), start - firstPage[object], end - start);
+            }
+            shards.add(new PdfJobMessage(job.jobId(), job.inputBucket(), range, job.outputBucket(), job.type(),
+                    job.profile(), shard.pages(), rangePages, shard));
+        }
+        return shards;
+    }
+
+    /**
+     * Shard konvertieren und, falls er der letzte fehlende war, den Job zusammenfügen.
+     * Liefert den Pfad von {@code output.pdf} oder {@code null}, solange noch Teile fehlen;
+     * {@code onPagesDone} bekommt dann die Seitenzahl aller fertigen Teile.
+     * Dekodieren/Kodieren läuft auf {@code cpu}, der CPU-Lane des Shards.
+     */
+    public String convert(PdfJobMessage job, Executor cpu, IntConsumer onPagesDone) throws Exception {
+        PdfJobMessage.Shard shard = job.shard();
+        String bucket = job.outputBucket();
+        String outputObject = ImageToPdfService.outputObject(job.jobId());
+        if (blobStore.stat(bucket, outputObject) != null) {
+            // schon zusammengefügt, Teile sind evtl. bereits gelöscht
+            return "gs://" + bucket + "/" + outputObject;
+        }
+
+        // Seitenzahl (inkl. Frames) steht erst nach dem Zusammensetzen fest; der Writer
+        // und damit die Metadaten werden erst danach angelegt
+        String partName = partObject(job.jobId(), shard.index());
+        if (blobStore.stat(bucket, partName) == null) {
+            Map<String, String> metadata = new HashMap<>();
+            BlobTarget part = BlobTarget.of(bucket, partName, "application/pdf")
+                    .withMetadata(metadata)
+                    .doesNotExist();
+            try {
+                imageToPdfService.convertPartToPdf(job.inputBucket(), job.inputObjects(), shard.firstFrame(),
+                        shard.pages(), imageToPdfService.profile(job.profile()), part,
+                        pagesDone -> metadata.put(PAGES_METADATA, String.valueOf(pagesDone)), cpu);
+            } catch (PreconditionFailedException e) {
+                // gleichzeitige Zustellung war schneller, nur noch Merge prüfen
+            }
+        }
+        // sonst hat eine frühere Zustellung den Teil schon geschrieben: nicht noch einmal konvertieren
+
+        List<String> parts = new ArrayList<>(shard.count());
+        int pagesDone = 0;
+        boolean complete = true;
+        for (int i = 0; i < shard.count(); i++) {
+            String name = partObject(job.jobId(), i);
+            BlobMeta meta = blobStore.stat(bucket, name);
+            if (meta == null) {
+                complete = false;
+            } else {
+                pagesDone += Integer.parseInt(meta.metadata().getOrDefault(PAGES_METADATA, "0"));
+            }
+            parts.add(name);
+        }
+        if (!complete) {
+            onPagesDone.accept(pagesDone);
+            return null;
+        }
+
+        String outputPath = imageToPdfService.mergePdfObjects(bucket, parts,
+                BlobTarget.of(bucket, outputObject, "application/pdf").doesNotExist());
+        deleteParts(job);
+        return outputPath;
+    }
+
+    /**
+     * Teil-PDFs eines Jobs löschen (nach dem Zusammenfügen oder wenn der Job gescheitert ist);
+     * fehlende Teile werden übersprungen.
+     */
+    public void deleteParts(PdfJobMessage job) {
+        for (int i = 0; i < job.shard().count(); i++) {
+            String name = partObject(job.jobId(), i);
+            try {
+                blobStore.delete(job.outputBucket(), name);
+            } catch (Exception e) {
+                log.warn("Teil {} nicht gelöscht: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    private static String partObject(String jobId, int index) {
+        return "jobs/" + jobId + "/parts/" + String.format("%04d", index) + ".pdf";
+    }
+}
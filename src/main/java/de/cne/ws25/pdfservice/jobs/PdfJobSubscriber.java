@@ -0,0 +1,209 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.core.FixedExecutorProvider;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.cloud.pubsub.v1.MessageReceiver;
+import com.google.cloud.pubsub.v1.Subscriber;
+import com.google.protobuf.Timestamp;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.PubsubMessage;
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pull-Zustellung ({@code app.worker.mode=pull}): Streaming-Pull-Subscriber statt Push-Endpoint.
+ * <p>
+ * Flow Control begrenzt die offenen Nachrichten (Anzahl und Bytes), die Konvertierungen laufen
+ * auf einem eigenen Thread-Pool. Solange ein Job läuft, verlängert der Subscriber die Ack-Deadline
+ * selbst (bis {@code max-ack-extension-minutes}). Beim Herunterfahren werden keine neuen Nachrichten
+ * mehr geholt und laufende Jobs bis {@code shutdown-timeout-s} zu Ende gebracht.
+ * <p>
+ * RETRY/ERROR werden nicht sofort, sondern mit Backoff genackt (verdoppelt je Zustellversuch,
+ * {@code nack-min-delay-ms} bis {@code nack-max-delay-ms}). Bis dahin bleibt die Nachricht offen
+ * und belegt einen Platz der Flow Control – eine ausgelastete Instanz holt so auch weniger nach.
+ * Die Zahl der Versuche liefert Pub/Sub nur mit Dead-Letter-Policy, sonst bleibt es bei der
+ * Mindestverzögerung; zusätzlich sollte die Subscription eine Retry-Policy haben
+ * ({@code --min-retry-delay}/{@code --max-retry-delay}), damit die Neuzustellung nicht sofort kommt.
+ */
+@Component
+@ConditionalOnProperty(name = "app.worker.mode", havingValue = "pull")
+public class PdfJobSubscriber implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfJobSubscriber.class);
+
+    private final PdfJobHandler jobHandler;
+    private final PipelineMetrics metrics;
+    private final ProjectSubscriptionName subscription;
+    private final String emulatorHost;
+    private final long maxOutstandingMessages;
+    private final long maxOutstandingBytes;
+    private final int threads;
+    private final Duration maxAckExtension;
+    private final long shutdownTimeoutSeconds;
+    private final long nackMinDelayMs;
+    private final long nackMaxDelayMs;
+
+    private volatile Subscriber subscriber;
+    private ScheduledExecutorService executor;
+    private ManagedChannel emulatorChannel;
+
+    public PdfJobSubscriber(
+            PdfJobHandler jobHandler,
+            PipelineMetrics metrics,
+            @Value("${spring.cloud.gcp.project-id}") String projectId,
+            @Value("${app.pubsub.subscription}") String subscriptionId,
+            @Value("${app.pubsub.emulator-host:}") String emulatorHost,
+            @Value("${app.worker.pull.max-outstanding-messages:4}") long maxOutstandingMessages,
+            @Value("${app.worker.pull.max-outstanding-bytes:1048576}") long maxOutstandingBytes,
+            @Value("${app.worker.pull.threads:4}") int threads,
+            @Value("${app.worker.pull.max-ack-extension-minutes:60}") long maxAckExtensionMinutes,
+            @Value("${app.worker.pull.shutdown-timeout-s:120}") long shutdownTimeoutSeconds,
+            @Value("${app.worker.pull.nack-min-delay-ms:1000}") long nackMinDelayMs,
+            @Value("${app.worker.pull.nack-max-delay-ms:60000}") long nackMaxDelayMs
+    ) {
+        if (maxOutstandingMessages < 1 || threads < 1) {
+            throw new IllegalArgumentException("app.worker.pull.max-outstanding-messages und threads müssen >= 1 sein");
+        }
+        if (nackMinDelayMs < 0 || nackMaxDelayMs < nackMinDelayMs) {
+            throw new IllegalArgumentException("app.worker.pull.nack-max-delay-ms muss >= nack-min-delay-ms >= 0 sein");
+        }
+        this.jobHandler = jobHandler;
+        this.metrics = metrics;
+        this.subscription = ProjectSubscriptionName.of(projectId, subscriptionId);
+        this.emulatorHost = emulatorHost;
+        this.maxOutstandingMessages = maxOutstandingMessages;
+        this.maxOutstandingBytes = maxOutstandingBytes;
+        this.threads = threads;
+        this.maxAckExtension = Duration.ofMinutes(maxAckExtensionMinutes);
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+        this.nackMinDelayMs = nackMinDelayMs;
+        // die Nachricht muss bis zum Nack unter der verlängerten Ack-Deadline bleiben
+        this.nackMaxDelayMs = Math.min(nackMaxDelayMs, maxAckExtension.toMillis() / 2);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (subscriber != null) {
+            return;
+        }
+        AtomicInteger threadNo = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(threads, r -> {
+            Thread t = new Thread(r, "pubsub-worker-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        ScheduledExecutorService workers = executor;
+        MessageReceiver receiver = (message, consumer) -> receive(message, consumer, workers);
+        Subscriber.Builder builder = Subscriber.newBuilder(subscription, receiver)
+                .setFlowControlSettings(flowControlSettings())
+                .setExecutorProvider(FixedExecutorProvider.create(executor))
+                .setMaxAckExtensionPeriodDuration(maxAckExtension);
+
+        // lokaler Pub/Sub-Emulator: Klartext-Kanal ohne Credentials
+        if (emulatorHost != null && !emulatorHost.isBlank()) {
+            emulatorChannel = ManagedChannelBuilder.forTarget(emulatorHost).usePlaintext().build();
+            builder.setChannelProvider(FixedTransportChannelProvider.create(GrpcTransportChannel.create(emulatorChannel)))
+                    .setCredentialsProvider(NoCredentialsProvider.create());
+        }
+
+        subscriber = builder.build();
+        subscriber.startAsync().awaitRunning();
+        log.info("Pull-Worker gestartet: {} (max. {} Nachrichten, {} Threads)",
+                subscription, maxOutstandingMessages, threads);
+    }
+
+    /**
+     * Begrenzung der offenen Nachrichten; mehr als Threads würden nur im Pool warten und
+     * ihre Lease verlängern.
+     */
+    FlowControlSettings flowControlSettings() {
+        return FlowControlSettings.newBuilder()
+                .setMaxOutstandingElementCount(maxOutstandingMessages)
+                .setMaxOutstandingRequestBytes(maxOutstandingBytes)
+                .build();
+    }
+
+    /**
+     * Eine Nachricht verarbeiten und bestätigen; verzögerte Nacks laufen auf {@code scheduler}.
+     */
+    void receive(PubsubMessage message, AckReplyConsumer consumer, ScheduledExecutorService scheduler) {
+        Timestamp publishTime = message.getPublishTime();
+        if (publishTime.getSeconds() > 0) {
+            metrics.queueLatency(Instant.ofEpochSecond(publishTime.getSeconds(), publishTime.getNanos()));
+        }
+
+        PdfJobHandler.Outcome outcome;
+        try {
+            outcome = jobHandler.handle(message.getData().toByteArray(), message.getMessageId(),
+                    message.getAttributesMap());
+        } catch (RuntimeException e) {
+            log.error("Nachricht {} nicht verarbeitet", message.getMessageId(), e);
+            outcome = PdfJobHandler.Outcome.ERROR;
+        }
+
+        // wie beim Push: nur RETRY/ERROR werden erneut zugestellt
+        switch (outcome) {
+            case DONE, IGNORED, DUPLICATE, FAILED -> consumer.ack();
+            case RETRY, ERROR -> {
+                long delayMs = nackDelayMs(Subscriber.getDeliveryAttempt(message), nackMinDelayMs, nackMaxDelayMs);
+                log.debug("Nachricht {}: {}, Nack in {} ms", message.getMessageId(), outcome, delayMs);
+                // bricht stop() die Wartezeit ab, stellt Pub/Sub nach Ablauf der Deadline neu zu
+                scheduler.schedule(consumer::nack, delayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Wartezeit vor dem Nack: {@code minMs} beim ersten Versuch, dann verdoppelt bis {@code maxMs}.
+     * {@code attempt} ist {@code null}, wenn die Subscription keine Dead-Letter-Policy hat.
+     */
+    static long nackDelayMs(Integer attempt, long minMs, long maxMs) {
+        int doublings = attempt == null ? 0 : Math.min(Math.max(attempt - 1, 0), 30);
+        return Math.min(maxMs, minMs << doublings);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (subscriber == null) {
+            return;
+        }
+        log.info("Pull-Worker wird beendet, warte auf laufende Jobs");
+        try {
+            subscriber.stopAsync().awaitTerminated(shutdownTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // nicht bestätigte Nachrichten stellt Pub/Sub nach Ablauf der Deadline neu zu
+            log.warn("Pull-Worker: Timeout beim Beenden, offene Jobs werden neu zugestellt");
+        } finally {
+            executor.shutdownNow();
+            if (emulatorChannel != null) {
+                emulatorChannel.shutdown();
+            }
+            subscriber = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return subscriber != null;
+    }
+}
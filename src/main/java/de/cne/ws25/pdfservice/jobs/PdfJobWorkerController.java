@@ -1,53 +1,43 @@
 package de.cne.ws25.pdfservice.jobs;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import de.cne.ws25.pdfservice.convert.ImageToPdfService;
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
 import org.apache.commons.codec.binary.Base64;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+/**
+ * Push-Zustellung: die Konvertierung läuft im HTTP-Request von Pub/Sub.
+ * Mit {@code app.worker.mode=pull} übernimmt stattdessen {@link PdfJobSubscriber}.
+ */
 @RestController
+@ConditionalOnProperty(name = "app.worker.mode", havingValue = "push", matchIfMissing = true)
 public class PdfJobWorkerController {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final ImageToPdfService imageToPdfService;
+    private final PdfJobHandler jobHandler;
+    private final PipelineMetrics metrics;
 
-    public PdfJobWorkerController(ImageToPdfService imageToPdfService) {
-        this.imageToPdfService = imageToPdfService;
+    public PdfJobWorkerController(PdfJobHandler jobHandler, PipelineMetrics metrics) {
+        this.jobHandler = jobHandler;
+        this.metrics = metrics;
     }
 
     @PostMapping("/pubsub/push")
     public ResponseEntity<String> handlePubSubPush(@RequestBody PubSubPushRequest request) {
-        try {
-            System.out.println(">>> Pub/Sub Push empfangen");
-            System.out.println(">>> Raw message: " + request);
-
-            String data = request.message.data;
-            String json = new String(Base64.decodeBase64(data));
-            System.out.println(">>> Decoded JSON: " + json);
-
-            PdfJobMessage job = objectMapper.readValue(json, PdfJobMessage.class);
-            System.out.println(">>> Job geladen: " + job);
-
-            if (!"IMAGE_TO_PDF".equals(job.type())) {
-                System.out.println(">>> Job-Typ ignoriert: " + job.type());
-                return ResponseEntity.ok("Job-Typ ignoriert: " + job.type());
-            }
-
-            String outputPath = imageToPdfService.convertImageObjectsToPdf(
-                    job.inputBucket(),
-                    job.inputObjects(),
-                    job.outputBucket(),
-                    job.jobId()
-            );
-
-            System.out.println(">>> Job " + job.jobId() + " fertig. Output: " + outputPath);
-
-            return ResponseEntity.ok("OK");
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.internalServerError()
-                    .body("Fehler bei der Verarbeitung: " + e.getMessage());
-        }
+        metrics.queueLatency(request.message.publishTime);
+
+        byte[] data = Base64.decodeBase64(request.message.data);
+        return switch (jobHandler.handle(data, request.message.messageId, request.message.attributes)) {
+            case DONE -> ResponseEntity.ok("OK");
+            case IGNORED -> ResponseEntity.ok("Job-Typ ignoriert");
+            case DUPLICATE -> ResponseEntity.ok("Duplikat übersprungen");
+            // 2xx bestätigt die Nachricht, eine Wiederholung würde wieder scheitern
+            case FAILED -> ResponseEntity.ok("Job fehlgeschlagen, nicht wiederholbar");
+            case RETRY -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Ausgelastet, bitte erneut zustellen");
+            case ERROR -> ResponseEntity.internalServerError()
+                    .body("Fehler bei der Verarbeitung");
+        };
     }
 }
@@ -0,0 +1,112 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.TopicName;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Langlebige Pub/Sub-Publisher, einer pro Topic. Werden beim ersten Senden
+ * aufgebaut (keine Credentials beim Start nötig) und beim Herunterfahren geflusht.
+ * Mit {@code app.pubsub.backend=local} übernimmt {@link LocalPushPublisher}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.pubsub.backend", havingValue = "gcp", matchIfMissing = true)
+public class PubSubMessagePublisher implements MessagePublisher {
+
+    private final String projectId;
+    private final String emulatorHost;
+    private final BatchingSettings batchingSettings;
+
+    private final Map<String, Publisher> publishers = new ConcurrentHashMap<>();
+    private volatile ManagedChannel emulatorChannel;
+
+    public PubSubMessagePublisher(
+            @Value("${spring.cloud.gcp.project-id}") String projectId,
+            @Value("${app.pubsub.emulator-host:}") String emulatorHost,
+            @Value("${app.pubsub.batch.max-messages:100}") long batchMaxMessages,
+            @Value("${app.pubsub.batch.max-bytes:1048576}") long batchMaxBytes,
+            @Value("${app.pubsub.batch.max-delay-ms:10}") long batchMaxDelayMs,
+            @Value("${app.pubsub.flow.max-outstanding-messages:1000}") long maxOutstandingMessages,
+            @Value("${app.pubsub.flow.max-outstanding-bytes:10485760}") long maxOutstandingBytes
+    ) {
+        this.projectId = projectId;
+        this.emulatorHost = emulatorHost;
+
+        // Backpressure: bei zu vielen offenen Nachrichten blockiert publish()
+        FlowControlSettings flowControl = FlowControlSettings.newBuilder()
+                .setMaxOutstandingElementCount(maxOutstandingMessages)
+                .setMaxOutstandingRequestBytes(maxOutstandingBytes)
+                .setLimitExceededBehavior(FlowController.LimitExceededBehavior.Block)
+                .build();
+
+        this.batchingSettings = BatchingSettings.newBuilder()
+                .setElementCountThreshold(batchMaxMessages)
+                .setRequestByteThreshold(batchMaxBytes)
+                .setDelayThresholdDuration(Duration.ofMillis(batchMaxDelayMs))
+                .setFlowControlSettings(flowControl)
+                .build();
+    }
+
+    @Override
+    public ApiFuture<String> publish(String topicId, PubsubMessage message) {
+        return publishers.computeIfAbsent(topicId, this::createPublisher).publish(message);
+    }
+
+    private Publisher createPublisher(String topicId) {
+        try {
+            Publisher.Builder builder = Publisher.newBuilder(TopicName.of(projectId, topicId))
+                    .setBatchingSettings(batchingSettings);
+
+            // lokaler Pub/Sub-Emulator: Klartext-Kanal ohne Credentials
+            if (emulatorHost != null && !emulatorHost.isBlank()) {
+                builder.setChannelProvider(FixedTransportChannelProvider.create(
+                                GrpcTransportChannel.create(emulatorChannel())))
+                        .setCredentialsProvider(NoCredentialsProvider.create());
+            }
+            return builder.build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Pub/Sub-Publisher für Topic " + topicId + " konnte nicht erstellt werden", e);
+        }
+    }
+
+    private synchronized ManagedChannel emulatorChannel() {
+        if (emulatorChannel == null) {
+            emulatorChannel = ManagedChannelBuilder.forTarget(emulatorHost).usePlaintext().build();
+        }
+        return emulatorChannel;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // ausstehende Batches noch senden
+        for (Publisher publisher : publishers.values()) {
+            publisher.shutdown();
+        }
+        for (Publisher publisher : publishers.values()) {
+            publisher.awaitTermination(30, TimeUnit.SECONDS);
+        }
+        if (emulatorChannel != null) {
+            emulatorChannel.shutdown();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.pubsub.v1.PubsubMessage;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Nachrichten, deren Versand endgültig fehlgeschlagen ist, werden hier mit
+ * exponentiellem Backoff erneut gesendet, statt verloren zu gehen.
+ * Geht es endgültig nicht (Outbox voll, Versuche aufgebraucht, Shutdown), räumt der
+ * mitgegebene Callback den Job auf, damit niemand ewig auf ihn wartet.
+ */
+@Component
+public class PublishOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(PublishOutbox.class);
+
+    private final MessagePublisher messagePublisher;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final int capacity;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Set<Entry> entries = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "pubsub-outbox");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public PublishOutbox(
+            MessagePublisher messagePublisher,
+            @Value("${app.pubsub.outbox.max-attempts:10}") int maxAttempts,
+            @Value("${app.pubsub.outbox.initial-backoff-ms:1000}") long initialBackoffMs,
+            @Value("${app.pubsub.outbox.max-backoff-ms:60000}") long maxBackoffMs,
+            @Value("${app.pubsub.outbox.capacity:10000}") int capacity
+    ) {
+        this.messagePublisher = messagePublisher;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Nachricht zum erneuten Senden vormerken. {@code onGiveUp} läuft genau einmal,
+     * falls die Nachricht doch nicht mehr gesendet wird.
+     */
+    public void add(String topicId, PubsubMessage message, String jobId, Throwable cause, Runnable onGiveUp) {
+        Entry entry = new Entry(topicId, message, jobId, onGiveUp);
+        if (pending.incrementAndGet() > capacity) {
+            pending.decrementAndGet();
+            log.error("Outbox voll, Job {} VERLOREN: {}", jobId, cause.toString());
+            giveUpLater(entry, false);
+            return;
+        }
+        entries.add(entry);
+        log.warn("Job {} in Outbox, Grund: {}", jobId, cause.toString());
+        schedule(entry, 1);
+    }
+
+    /** Anzahl der Nachrichten, die noch auf einen erfolgreichen Versand warten. */
+    public int pending() {
+        return pending.get();
+    }
+
+    private void schedule(Entry entry, int attempt) {
+        long delay = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        try {
+            scheduler.schedule(() -> retry(entry, attempt), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutdown läuft schon
+            log.error("Job {} beim Shutdown VERLOREN", entry.jobId());
+            giveUp(entry, true);
+        }
+    }
+
+    private void retry(Entry entry, int attempt) {
+        ApiFutures.addCallback(messagePublisher.publish(entry.topicId(), entry.message()), new ApiFutureCallback<>() {
+            @Override
+            public void onSuccess(String messageId) {
+                if (remove(entry)) {
+                    log.info("Job {} aus Outbox gesendet, Message ID: {}", entry.jobId(), messageId);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (attempt >= maxAttempts) {
+                    log.error("Job {} nach {} Versuchen VERLOREN: {}", entry.jobId(), attempt, t.toString());
+                    giveUpLater(entry, true);
+                    return;
+                }
+                schedule(entry, attempt + 1);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private boolean remove(Entry entry) {
+        if (!entries.remove(entry)) {
+            return false;
+        }
+        pending.decrementAndGet();
+        return true;
+    }
+
+    /** Aufräumen nicht im Callback-Thread des Publishers, der Callback löscht u. a. Dateien. */
+    private void giveUpLater(Entry entry, boolean tracked) {
+        try {
+            scheduler.execute(() -> giveUp(entry, tracked));
+        } catch (RejectedExecutionException e) {
+            giveUp(entry, tracked);
+        }
+    }
+
+    /** {@code tracked}: Eintrag steht in der Outbox (nicht bei voller Outbox) und wird nur einmal aufgegeben. */
+    private void giveUp(Entry entry, boolean tracked) {
+        if (tracked && !remove(entry)) {
+            return;
+        }
+        try {
+            entry.onGiveUp().run();
+        } catch (Exception e) {
+            log.error("Aufräumen von Job {} fehlgeschlagen", entry.jobId(), e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        if (pending.get() > 0) {
+            log.error("Shutdown mit {} ungesendeten Jobs in der Outbox, alle VERLOREN", pending.get());
+        }
+        for (Entry entry : entries) {
+            giveUp(entry, true);
+        }
+    }
+
+    /** Bewusst kein record: gleiche Nachricht zweimal vorgemerkt sind zwei Einträge. */
+    private static final class Entry {
+        private final String topicId;
+        private final PubsubMessage message;
+        private final String jobId;
+        private final Runnable onGiveUp;
+
+        Entry(String topicId, PubsubMessage message, String jobId, Runnable onGiveUp) {
+            this.topicId = topicId;
+            this.message = message;
+            this.jobId = jobId;
+            this.onGiveUp = onGiveUp;
+        }
+
+        String topicId() { return topicId; }
+        PubsubMessage message() { return message; }
+        String jobId() { return jobId; }
+        Runnable onGiveUp() { return onGiveUp; }
+    }
+}
@@ -0,0 +1,173 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import de.cne.ws25.pdfservice.storage.BlobMeta;
+import de.cne.ws25.pdfservice.storage.BlobStore;
+import de.cne.ws25.pdfservice.storage.BlobTarget;
+import de.cne.ws25.pdfservice.storage.PreconditionFailedException;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inhaltsadressierter Cache: gleiche Eingaben (Hashes in Reihenfolge) plus gleiche
+ * Einstellungen ergeben denselben Schlüssel und damit denselben Job.
+ * <p>
+ * Vorne ein lokaler LRU, dahinter ein Index im Output-Bucket
+ * ({@code cache/<key>}, Job-ID in den Metadaten), den alle Instanzen teilen.
+ * Gleichzeitige identische Uploads landen so auf demselben laufenden Job.
+ */
+@Service
+public class ResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ResultCache.class);
+
+    private static final String JOB_ID_METADATA = "jobId";
+
+    private final BlobStore blobStore;
+    private final String outputBucket;
+    private final JobStatusRegistry jobStatusRegistry;
+    private final long pendingTimeoutMs;
+
+    private record Entry(String jobId, long claimedAt) {}
+
+    private final Map<String, Entry> local;
+
+    public ResultCache(
+            BlobStore blobStore,
+            JobStatusRegistry jobStatusRegistry,
+            @Value("${app.bucket.output}") String outputBucket,
+            @Value("${app.cache.max-entries:10000}") int maxEntries,
+            @Value("${app.cache.pending-timeout-ms:600000}") long pendingTimeoutMs
+    ) {
+        this.blobStore = blobStore;
+        this.jobStatusRegistry = jobStatusRegistry;
+        this.outputBucket = outputBucket;
+        this.pendingTimeoutMs = pendingTimeoutMs;
+        this.local = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Schlüssel aus Einstellungen und den Hashes der Eingaben (Reihenfolge zählt).
+     */
+    public static String jobKey(List<String> inputHashes, String settings) {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        digest.update(settings.getBytes(StandardCharsets.UTF_8));
+        for (String hash : inputHashes) {
+            digest.update((byte) '\n');
+            digest.update(hash.getBytes(StandardCharsets.UTF_8));
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * Gibt die Job-ID eines vorhandenen (fertigen oder laufenden) Jobs zurück,
+     * sonst wird {@code jobId} für den Schlüssel eingetragen und {@code null} geliefert.
+     */
+    public String claim(String key, String jobId) {
+        Entry cached;
+        synchronized (local) {
+            cached = local.get(key);
+        }
+        if (cached != null && isUsable(cached)) {
+            return cached.jobId();
+        }
+
+        try {
+            String indexObject = indexObject(key);
+            BlobMeta existing = blobStore.stat(outputBucket, indexObject);
+            if (existing != null) {
+                Entry entry = toEntry(existing);
+                if (entry != null && isUsable(entry)) {
+                    remember(key, entry);
+                    return entry.jobId();
+                }
+            }
+
+            // neu eintragen; bei parallelem Eintrag einer anderen Instanz gewinnt die erste
+            BlobTarget target = BlobTarget.of(outputBucket, indexObject, null)
+                    .withMetadata(Map.of(JOB_ID_METADATA, jobId));
+            target = existing == null ? target.doesNotExist() : target.ifGenerationMatch(existing.generation());
+            try {
+                blobStore.put(target, new byte[0]);
+            } catch (PreconditionFailedException e) {
+                BlobMeta winner = blobStore.stat(outputBucket, indexObject);
+                Entry entry = winner != null ? toEntry(winner) : null;
+                if (entry != null) {
+                    remember(key, entry);
+                    return entry.jobId();
+                }
+            }
+        } catch (RuntimeException e) {
+            // Cache ist nur Optimierung: bei Storage-Problemen normal konvertieren
+            log.warn("Cache-Index für {} nicht verfügbar: {}", key, e.getMessage());
+        }
+        remember(key, new Entry(jobId, System.currentTimeMillis()));
+        return null;
+    }
+
+    /**
+     * Eintrag wieder freigeben, z.B. wenn der Job nicht eingestellt werden konnte.
+     */
+    public void release(String key, String jobId) {
+        synchronized (local) {
+            Entry entry = local.get(key);
+            if (entry != null && entry.jobId().equals(jobId)) {
+                local.remove(key);
+            }
+        }
+        try {
+            BlobMeta meta = blobStore.stat(outputBucket, indexObject(key));
+            if (meta != null && jobId.equals(meta.metadata().get(JOB_ID_METADATA))) {
+                blobStore.delete(outputBucket, indexObject(key), meta.generation());
+            }
+        } catch (Exception e) {
+            log.warn("Cache-Eintrag {} nicht freigegeben: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * FAILED ist nie verwendbar; ein Job, der zu lange in QUEUED hängt
+     * (z.B. verlorene Nachricht), auch nicht.
+     */
+    private boolean isUsable(Entry entry) {
+        JobStatus status = jobStatusRegistry.lookup(entry.jobId());
+        return switch (status.state()) {
+            case DONE, RUNNING -> true;
+            case FAILED -> false;
+            case QUEUED -> System.currentTimeMillis() - entry.claimedAt() < pendingTimeoutMs;
+        };
+    }
+
+    private void remember(String key, Entry entry) {
+        synchronized (local) {
+            local.put(key, entry);
+        }
+    }
+
+    private static Entry toEntry(BlobMeta meta) {
+        String jobId = meta.metadata().get(JOB_ID_METADATA);
+        if (jobId == null) {
+            return null;
+        }
+        long created = meta.createTime();
+        return new Entry(jobId, created > 0 ? created : System.currentTimeMillis());
+    }
+
+    private static String indexObject(String key) {
+        return "cache/" + key;
+    }
+}
@@ -0,0 +1,296 @@
+package de.cne.ws25.pdfservice.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer-Metriken für Upload, Pub/Sub und die Konvertierungs-Pipeline.
+ * Export über {@code /actuator/prometheus}; Histogramme für alle {@code pdf.*}-Timer
+ * werden in application.properties eingeschaltet.
+ * <p>
+ * Stufen und Uploads werden zusätzlich als Kind-Spans des aktuellen Traces eingetragen,
+ * sofern er gesampelt ist – gemessen wird nur einmal.
+ */
+@Component
+public class PipelineMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(PipelineMetrics.class);
+
+    /**
+     * Stufen der Konvertierung. download/memory_wait/decode/encode/assemble pro Seite,
+     * save (PDF direkt in den Upload-Stream) und commit (Upload abschließen) pro Dokument,
+     * merge (Teil-PDFs großer Jobs zusammenfügen) pro Job.
+     */
+    public enum Stage {
+        DOWNLOAD, MEMORY_WAIT, DECODE, ENCODE, ASSEMBLE, SAVE, COMMIT, MERGE;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Tracer tracer;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Timer queueLatency;
+    private final Counter pages;
+    private final Counter duplicates;
+
+    private final AtomicInteger inFlightJobs = new AtomicInteger();
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private final AtomicBoolean firstConversionSeen = new AtomicBoolean();
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this(registry, OpenTelemetry.noop());
+    }
+
+    @Autowired
+    public PipelineMetrics(MeterRegistry registry, OpenTelemetry openTelemetry) {
+        this.registry = registry;
+        this.tracer = openTelemetry.getTracer("de.cne.ws25.pdfservice");
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("pdf.convert.stage")
+                    .description("Dauer je Stufe der Konvertierung")
+                    .tag("stage", stage.tag())
+                    .register(registry));
+        }
+        this.queueLatency = Timer.builder("pdf.pubsub.queue.latency")
+                .description("Zeit von publishTime bis zum Eingang beim Worker")
+                .register(registry);
+        this.pages = Counter.builder("pdf.pages")
+                .description("In PDFs eingefügte Seiten")
+                .register(registry);
+        this.duplicates = Counter.builder("pdf.jobs.duplicates")
+                .description("Übersprungene Duplikate (Job läuft schon oder ist fertig)")
+                .register(registry);
+
+        Gauge.builder("pdf.jobs.inflight", inFlightJobs, AtomicInteger::get)
+                .description("Laufende Konvertierungen im Worker")
+                .register(registry);
+        Gauge.builder("pdf.convert.buffered", bufferedBytes, AtomicLong::get)
+                .description("Eingabebilder laufender Konvertierungen im Speicher")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public void stage(Stage stage, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        stageTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+        span(stage.tag(), nanos);
+    }
+
+    /**
+     * Upload einer einzelnen Datei ins Input-Bucket.
+     */
+    public void upload(long startNanos, long bytes, boolean success) {
+        long nanos = System.nanoTime() - startNanos;
+        Timer.builder("pdf.upload.file")
+                .description("Upload einer Datei in den Storage")
+                .tag("outcome", outcome(success))
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        span("upload", nanos);
+        if (success) {
+            bytesIn("upload", bytes);
+        }
+    }
+
+    public void publish(long startNanos, boolean success) {
+        Timer.builder("pdf.pubsub.publish")
+                .description("Publish bis zur Bestätigung durch Pub/Sub")
+                .tag("outcome", outcome(success))
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Wartezeit in der Queue aus {@code publishTime} (RFC 3339) der Push-Nachricht.
+     */
+    public void queueLatency(String publishTime) {
+        if (publishTime == null || publishTime.isBlank()) {
+            return;
+        }
+        try {
+            queueLatency(Instant.parse(publishTime));
+        } catch (DateTimeParseException e) {
+            // ohne gültigen Zeitstempel keine Latenz
+        }
+    }
+
+    public void queueLatency(Instant publishTime) {
+        Duration latency = Duration.between(publishTime, Instant.now());
+        if (!latency.isNegative()) {
+            queueLatency.record(latency);
+        }
+    }
+
+    public void bytesIn(String source, long bytes) {
+        registry.counter("pdf.bytes.in", "source", source).increment(bytes);
+    }
+
+    public void bytesOut(String path, long bytes) {
+        registry.counter("pdf.bytes.out", "path", path).increment(bytes);
+        firstConversion();
+    }
+
+    /**
+     * Kaltstart: Zeit vom JVM-Start bis zum ersten fertig geschriebenen PDF dieser Instanz,
+     * einmalig als Gauge {@code pdf.startup.first.conversion} und im Log.
+     */
+    private void firstConversion() {
+        if (!firstConversionSeen.compareAndSet(false, true)) {
+            return;
+        }
+        long uptimeMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        TimeGauge.builder("pdf.startup.first.conversion", () -> uptimeMs, TimeUnit.MILLISECONDS)
+                .description("Zeit vom JVM-Start bis zur ersten erfolgreichen Konvertierung")
+                .register(registry);
+        log.info("Erste Konvertierung {} ms nach JVM-Start", uptimeMs);
+    }
+
+    public void page() {
+        pages.increment();
+    }
+
+    /**
+     * Gewählte Kodierung einer neu kodierten Seite (PDF-Filter, z.B. DCTDecode).
+     */
+    public void encoding(String filter) {
+        registry.counter("pdf.convert.encoding", "filter", filter).increment();
+    }
+
+    /**
+     * Fehler nach Stelle und Ursache (Exception-Klasse, ohne Wrapper).
+     */
+    public void failure(String stage, Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        registry.counter("pdf.failures", "stage", stage, "cause", cause.getClass().getSimpleName()).increment();
+    }
+
+    /**
+     * Mit 429 abgewiesener Upload; {@code reason} = client (Rate-Limit) oder backlog (Rückstand).
+     */
+    public void rejected(String reason) {
+        registry.counter("pdf.admission.rejected", "reason", reason).increment();
+    }
+
+    /**
+     * Veröffentlichter Job (bzw. Shard) je Lane.
+     */
+    public void laneRouted(String lane) {
+        registry.counter("pdf.lanes.routed", "lane", lane).increment();
+    }
+
+    /**
+     * Warten auf einen Platz in der Lane; {@code acquired=false}: Lane blieb voll, Job zurückgestellt.
+     */
+    public void laneWait(String lane, long startNanos, boolean acquired) {
+        Timer.builder("pdf.lanes.wait")
+                .description("Wartezeit auf einen Platz in der Lane")
+                .tag("lane", lane)
+                .tag("outcome", acquired ? "acquired" : "timeout")
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Laufzeit eines Jobs im Worker je Lane (ab belegtem Platz).
+     */
+    public void laneJob(String lane, long startNanos) {
+        Timer.builder("pdf.lanes.job")
+                .description("Laufzeit der Jobs je Lane")
+                .tag("lane", lane)
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Erneut zugestellter Job, der nicht noch einmal konvertiert wurde.
+     */
+    public void duplicate() {
+        duplicates.increment();
+    }
+
+    public void jobStarted() {
+        inFlightJobs.incrementAndGet();
+    }
+
+    public void jobFinished() {
+        inFlightJobs.decrementAndGet();
+    }
+
+    public void buffered(long deltaBytes) {
+        bufferedBytes.addAndGet(deltaBytes);
+    }
+
+    public <T> void bytesGauge(String name, String description, T target, ToDoubleFunction<T> value) {
+        Gauge.builder(name, target, value)
+                .description(description)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public <T> void gauge(String name, String description, T target, ToDoubleFunction<T> value) {
+        Gauge.builder(name, target, value)
+                .description(description)
+                .register(registry);
+    }
+
+    public <T> void laneGauge(String name, String description, String lane, T target, ToDoubleFunction<T> value) {
+        Gauge.builder(name, target, value)
+                .description(description)
+                .tag("lane", lane)
+                .register(registry);
+    }
+
+    /**
+     * Gerade beendeten Abschnitt als Kind des aktuellen Spans nachtragen. Die Kontexte
+     * reichen die Executoren der Konvertierung weiter; ohne gesampelten Trace kostet das nichts.
+     */
+    private void span(String name, long nanos) {
+        if (!Span.current().getSpanContext().isSampled()) {
+            return;
+        }
+        Instant now = Instant.now();
+        long end = TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+        tracer.spanBuilder(name)
+                .setParent(Context.current())
+                .setStartTimestamp(end - nanos, TimeUnit.NANOSECONDS)
+                .startSpan()
+                .end(end, TimeUnit.NANOSECONDS);
+    }
+
+    private static String outcome(boolean success) {
+        return success ? "success" : "failure";
+    }
+}
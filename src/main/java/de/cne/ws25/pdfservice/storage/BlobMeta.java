@@ -0,0 +1,13 @@
+package de.cne.ws25.pdfservice.storage;
+
+import java.util.Map;
+
+public record BlobMeta(
+        String bucket,
+        String name,
+        long size,
+        String contentType,
+        long generation,
+        long createTime,              // epoch millis
+        Map<String, String> metadata
+) {}
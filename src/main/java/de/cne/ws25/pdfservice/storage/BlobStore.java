@@ -0,0 +1,52 @@
+package de.cne.ws25.pdfservice.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Speicher-SPI für Uploads, Job-Status und fertige PDFs.
+ * Backend per {@code app.storage.backend}: {@code gcs} (Standard), {@code local}
+ * oder {@code memory} (nur Heap, für Lasttests).
+ * <p>
+ * Fehlende Objekte liefern {@code null}/{@code false}; verletzte Generation-Preconditions
+ * werfen {@link PreconditionFailedException}.
+ */
+public interface BlobStore {
+
+    /** Metadaten oder {@code null}, wenn das Objekt nicht existiert. */
+    BlobMeta stat(String bucket, String name);
+
+    /** Kompletter Inhalt (read-only) oder {@code null}, wenn das Objekt nicht existiert. */
+    ByteBuffer read(String bucket, String name);
+
+    /** Inhalt als Stream lesen; der Aufrufer schließt den Channel. */
+    ReadableByteChannel openReader(String bucket, String name) throws IOException;
+
+    /** Inhalt direkt in {@code target} kopieren, liefert die Anzahl Bytes. */
+    long transferTo(String bucket, String name, WritableByteChannel target) throws IOException;
+
+    /** Kleines Objekt in einem Stück schreiben. */
+    void put(BlobTarget target, byte[] data, int offset, int length);
+
+    default void put(BlobTarget target, byte[] data) {
+        put(target, data, 0, data.length);
+    }
+
+    /** Großes Objekt streamend schreiben; sichtbar erst nach {@link BlobWriter#commit()}. */
+    BlobWriter openWriter(BlobTarget target, int chunkSize) throws IOException;
+
+    /** Löschen; {@code false}, wenn das Objekt nicht (mehr) existiert. */
+    boolean delete(String bucket, String name, Long ifGenerationMatch);
+
+    default boolean delete(String bucket, String name) {
+        return delete(bucket, name, null);
+    }
+
+    /**
+     * Öffentlich erreichbare URL oder {@code null}, wenn das Objekt über die
+     * Anwendung ausgeliefert werden muss.
+     */
+    String publicUrl(String bucket, String name);
+}
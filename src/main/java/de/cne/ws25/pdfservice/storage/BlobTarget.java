@@ -0,0 +1,32 @@
+package de.cne.ws25.pdfservice.storage;
+
+import java.util.Map;
+
+/**
+ * Ziel eines Schreibvorgangs inkl. optionaler Precondition
+ * ({@code ifGenerationMatch = 0} heißt: Objekt darf noch nicht existieren).
+ */
+public record BlobTarget(
+        String bucket,
+        String name,
+        String contentType,
+        Map<String, String> metadata,
+        Long ifGenerationMatch
+) {
+
+    public static BlobTarget of(String bucket, String name, String contentType) {
+        return new BlobTarget(bucket, name, contentType, Map.of(), null);
+    }
+
+    public BlobTarget withMetadata(Map<String, String> metadata) {
+        return new BlobTarget(bucket, name, contentType, metadata, ifGenerationMatch);
+    }
+
+    public BlobTarget ifGenerationMatch(long generation) {
+        return new BlobTarget(bucket, name, contentType, metadata, generation);
+    }
+
+    public BlobTarget doesNotExist() {
+        return ifGenerationMatch(0L);
+    }
+}
@@ -0,0 +1,26 @@
+package de.cne.ws25.pdfservice.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Streamender Schreibvorgang. {@code close()} auf {@link #stream()} committet
+ * bewusst nicht – nur {@link #commit()} macht das Objekt sichtbar, damit ein
+ * Fehler mitten im Schreiben kein abgeschnittenes Objekt hinterlässt.
+ * <p>
+ * Eine verletzte Precondition des Ziels kommt als {@link PreconditionFailedException},
+ * spätestens bei {@link #commit()}, bei GCS aber auch schon aus {@code stream()}-Schreibzugriffen.
+ */
+public interface BlobWriter {
+
+    OutputStream stream();
+
+    void commit() throws IOException;
+
+    /**
+     * Schreibvorgang verwerfen, es entsteht kein Objekt. Lokale Puffer werden sofort frei;
+     * eine angefangene GCS-Upload-Session lässt sich nicht abbrechen und verfällt erst
+     * serverseitig (nach ca. einer Woche).
+     */
+    void abort();
+}
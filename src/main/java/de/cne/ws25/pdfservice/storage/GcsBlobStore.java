@@ -0,0 +1,250 @@
+package de.cne.ws25.pdfservice.storage;
+
+import com.google.cloud.ReadChannel;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+@Component
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "gcs", matchIfMissing = true)
+public class GcsBlobStore implements BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(GcsBlobStore.class);
+
+    private static final int TRANSFER_BUFFER = 256 * 1024;
+
+    private final Storage storage;
+
+    /**
+     * {@code storage} ist ein Lazy-Proxy auf den einen gemeinsamen Client aus {@code GcpConfig}.
+     */
+    public GcsBlobStore(@Lazy Storage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Client nach dem Start im Hintergrund anlegen, damit weder der Start noch die erste
+     * Anfrage auf Credentials und Projekt-ID warten.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void connectInBackground() {
+        Thread.ofVirtual().name("gcs-connect").start(() -> {
+            try {
+                storage.getOptions().getCredentials();
+            } catch (Exception e) {
+                log.warn("GCS-Client konnte nicht vorab angelegt werden: {}", e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public BlobMeta stat(String bucket, String name) {
+        // get liefert null für fehlende Objekte; exists() wäre ein zweiter Metadaten-Request
+        Blob blob = storage.get(BlobId.of(bucket, name));
+        if (blob == null) {
+            return null;
+        }
+        Long size = blob.getSize();
+        Long generation = blob.getGeneration();
+        OffsetDateTime created = blob.getCreateTimeOffsetDateTime();
+        return new BlobMeta(
+                bucket,
+                name,
+                size != null ? size : 0L,
+                blob.getContentType(),
+                generation != null ? generation : 0L,
+                created != null ? created.toInstant().toEpochMilli() : 0L,
+                blob.getMetadata() != null ? blob.getMetadata() : Map.of()
+        );
+    }
+
+    @Override
+    public ByteBuffer read(String bucket, String name) {
+        try {
+            return ByteBuffer.wrap(storage.readAllBytes(BlobId.of(bucket, name))).asReadOnlyBuffer();
+        } catch (StorageException e) {
+            if (e.getCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public ReadableByteChannel openReader(String bucket, String name) {
+        ReadChannel reader = storage.reader(BlobId.of(bucket, name));
+        reader.setChunkSize(TRANSFER_BUFFER);
+        return reader;
+    }
+
+    @Override
+    public long transferTo(String bucket, String name, WritableByteChannel target) throws IOException {
+        try (ReadableByteChannel in = openReader(bucket, name)) {
+            ByteBuffer buffer = ByteBuffer.allocate(TRANSFER_BUFFER);
+            long total = 0;
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    total += target.write(buffer);
+                }
+                buffer.clear();
+            }
+            return total;
+        }
+    }
+
+    @Override
+    public void put(BlobTarget target, byte[] data, int offset, int length) {
+        try {
+            if (target.ifGenerationMatch() == null) {
+                storage.create(blobInfo(target), data, offset, length);
+            } else if (target.ifGenerationMatch() == 0L) {
+                storage.create(blobInfo(target), data, offset, length, Storage.BlobTargetOption.doesNotExist());
+            } else {
+                storage.create(blobInfo(target), data, offset, length,
+                        Storage.BlobTargetOption.generationMatch(target.ifGenerationMatch()));
+            }
+        } catch (StorageException e) {
+            throw translate(e, target.bucket(), target.name());
+        }
+    }
+
+    @Override
+    public BlobWriter openWriter(BlobTarget target, int chunkSize) {
+        WriteChannel channel;
+        if (target.ifGenerationMatch() == null) {
+            channel = storage.writer(blobInfo(target));
+        } else if (target.ifGenerationMatch() == 0L) {
+            channel = storage.writer(blobInfo(target), Storage.BlobWriteOption.doesNotExist());
+        } else {
+            channel = storage.writer(blobInfo(target),
+                    Storage.BlobWriteOption.generationMatch(target.ifGenerationMatch()));
+        }
+        channel.setChunkSize(chunkSize);
+
+        // eine verletzte Precondition meldet GCS ab dem ersten vollen Chunk schon beim Schreiben
+        OutputStream stream = new UncloseableOutputStream(new TranslatingOutputStream(Channels.newOutputStream(channel), target));
+        return new BlobWriter() {
+            @Override
+            public OutputStream stream() {
+                return stream;
+            }
+
+            @Override
+            public void commit() throws IOException {
+                translating(target, () -> {
+                    stream.flush();
+                    // close() schickt den letzten Chunk und committet den Resumable Upload
+                    channel.close();
+                });
+            }
+
+            @Override
+            public void abort() {
+                // nicht schließen: die Upload-Session verfällt ohne Commit serverseitig (nach ca. einer Woche)
+            }
+        };
+    }
+
+    @Override
+    public boolean delete(String bucket, String name, Long ifGenerationMatch) {
+        try {
+            if (ifGenerationMatch == null) {
+                return storage.delete(BlobId.of(bucket, name));
+            }
+            return storage.delete(BlobId.of(bucket, name), Storage.BlobSourceOption.generationMatch(ifGenerationMatch));
+        } catch (StorageException e) {
+            throw translate(e, bucket, name);
+        }
+    }
+
+    @Override
+    public String publicUrl(String bucket, String name) {
+        return "https://storage.googleapis.com/" + bucket + "/" + name;
+    }
+
+    private static BlobInfo blobInfo(BlobTarget target) {
+        BlobInfo.Builder builder = BlobInfo.newBuilder(BlobId.of(target.bucket(), target.name()))
+                .setContentType(target.contentType());
+        if (target.metadata() != null && !target.metadata().isEmpty()) {
+            builder.setMetadata(target.metadata());
+        }
+        return builder.build();
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * {@code action} ausführen, HTTP 412 (auch als Ursache einer IOException) als
+     * {@link PreconditionFailedException}.
+     */
+    private static void translating(BlobTarget target, IoAction action) throws IOException {
+        try {
+            action.run();
+        } catch (StorageException e) {
+            throw translate(e, target.bucket(), target.name());
+        } catch (IOException e) {
+            if (e.getCause() instanceof StorageException se) {
+                throw translate(se, target.bucket(), target.name());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Schreibzugriffe auf den Resumable Upload mit derselben Übersetzung wie {@code commit()}.
+     */
+    private static final class TranslatingOutputStream extends FilterOutputStream {
+
+        private final BlobTarget target;
+
+        TranslatingOutputStream(OutputStream out, BlobTarget target) {
+            super(out);
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            translating(target, () -> out.write(b));
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            translating(target, () -> out.write(b, off, len));
+        }
+
+        @Override
+        public void flush() throws IOException {
+            translating(target, out::flush);
+        }
+    }
+
+    private static RuntimeException translate(StorageException e, String bucket, String name) {
+        if (e.getCode() == 412) {
+            return new PreconditionFailedException("Precondition für gs://" + bucket + "/" + name + " verletzt", e);
+        }
+        return e;
+    }
+}
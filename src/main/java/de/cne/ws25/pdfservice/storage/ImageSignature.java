@@ -0,0 +1,49 @@
+package de.cne.ws25.pdfservice.storage;
+
+/**
+ * Erkennt unterstützte Bildformate anhand der ersten Bytes (Magic Numbers),
+ * unabhängig vom Content-Type, den der Client mitschickt. Nur Formate, für die
+ * ImageIO einen Reader mitbringt (kein WebP).
+ */
+public final class ImageSignature {
+
+    private ImageSignature() {
+    }
+
+    /**
+     * Liefert den MIME-Type oder {@code null}, wenn das Format nicht unterstützt wird.
+     */
+    public static String detect(byte[] head, int length) {
+        if (head == null || length < 4) {
+            return null;
+        }
+        if (startsWith(head, length, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(head, length, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(head, length, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(head, length, 'B', 'M')) {
+            return "image/bmp";
+        }
+        if (startsWith(head, length, 'I', 'I', 0x2A, 0x00) || startsWith(head, length, 'M', 'M', 0x00, 0x2A)) {
+            return "image/tiff";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] data, int length, int... signature) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((data[i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
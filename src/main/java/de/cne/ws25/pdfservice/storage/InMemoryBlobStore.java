@@ -0,0 +1,157 @@
+package de.cne.ws25.pdfservice.storage;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fake-GCS im Heap für Lasttests und lokale Läufe ohne Netz und ohne Platte.
+ * <p>
+ * Verhält sich wie GCS: Objekte werden erst beim Commit sichtbar, jedes Schreiben
+ * erhöht die Generation, Preconditions werden geprüft. Alles liegt im Heap, bei
+ * langen Läufen also alte Objekte per {@link #deleteCreatedBefore} wegräumen.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "memory")
+public class InMemoryBlobStore implements BlobStore {
+
+    private record Blob(byte[] data, BlobMeta meta) {}
+
+    private final Map<String, Blob> blobs = new ConcurrentHashMap<>();
+
+    @Override
+    public BlobMeta stat(String bucket, String name) {
+        Blob blob = blobs.get(key(bucket, name));
+        return blob == null ? null : blob.meta();
+    }
+
+    @Override
+    public ByteBuffer read(String bucket, String name) {
+        Blob blob = blobs.get(key(bucket, name));
+        return blob == null ? null : ByteBuffer.wrap(blob.data()).asReadOnlyBuffer();
+    }
+
+    @Override
+    public ReadableByteChannel openReader(String bucket, String name) throws IOException {
+        return Channels.newChannel(new ByteBufferInputStream(require(bucket, name)));
+    }
+
+    @Override
+    public long transferTo(String bucket, String name, WritableByteChannel target) throws IOException {
+        ByteBuffer data = require(bucket, name);
+        long size = data.remaining();
+        while (data.hasRemaining()) {
+            target.write(data);
+        }
+        return size;
+    }
+
+    @Override
+    public void put(BlobTarget target, byte[] data, int offset, int length) {
+        commit(target, Arrays.copyOfRange(data, offset, offset + length));
+    }
+
+    @Override
+    public BlobWriter openWriter(BlobTarget target, int chunkSize) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(chunkSize);
+        OutputStream stream = new UncloseableOutputStream(buffer);
+
+        return new BlobWriter() {
+            @Override
+            public OutputStream stream() {
+                return stream;
+            }
+
+            @Override
+            public void commit() {
+                InMemoryBlobStore.this.commit(target, buffer.toByteArray());
+            }
+
+            @Override
+            public void abort() {
+                buffer.reset();
+            }
+        };
+    }
+
+    @Override
+    public boolean delete(String bucket, String name, Long ifGenerationMatch) {
+        boolean[] deleted = new boolean[1];
+        blobs.computeIfPresent(key(bucket, name), (k, current) -> {
+            checkPrecondition(bucket, name, current, ifGenerationMatch);
+            deleted[0] = true;
+            return null;
+        });
+        return deleted[0];
+    }
+
+    @Override
+    public String publicUrl(String bucket, String name) {
+        return null;
+    }
+
+    /**
+     * Alle Objekte in {@code bucket} löschen, die vor {@code epochMillis} geschrieben wurden.
+     * Liefert die Anzahl gelöschter Objekte.
+     */
+    public int deleteCreatedBefore(String bucket, long epochMillis) {
+        int before = blobs.size();
+        blobs.values().removeIf(blob -> blob.meta().bucket().equals(bucket) && blob.meta().createTime() < epochMillis);
+        return before - blobs.size();
+    }
+
+    /** Summe aller gespeicherten Bytes. */
+    public long totalBytes() {
+        return blobs.values().stream().mapToLong(blob -> blob.data().length).sum();
+    }
+
+    private void commit(BlobTarget target, byte[] data) {
+        // compute() hält den Eintrag gesperrt: Precondition + Schreiben sind atomar
+        blobs.compute(key(target.bucket(), target.name()), (k, current) -> {
+            checkPrecondition(target.bucket(), target.name(), current, target.ifGenerationMatch());
+            BlobMeta meta = new BlobMeta(
+                    target.bucket(),
+                    target.name(),
+                    data.length,
+                    target.contentType(),
+                    current == null ? 1 : current.meta().generation() + 1,
+                    System.currentTimeMillis(),
+                    target.metadata() == null ? Map.of() : Map.copyOf(target.metadata())
+            );
+            return new Blob(data, meta);
+        });
+    }
+
+    private ByteBuffer require(String bucket, String name) throws IOException {
+        ByteBuffer data = read(bucket, name);
+        if (data == null) {
+            throw new IOException("Objekt nicht gefunden: " + bucket + "/" + name);
+        }
+        return data;
+    }
+
+    private static void checkPrecondition(String bucket, String name, Blob current, Long ifGenerationMatch) {
+        if (ifGenerationMatch == null) {
+            return;
+        }
+        long actual = current == null ? 0L : current.meta().generation();
+        if (actual != ifGenerationMatch) {
+            throw new PreconditionFailedException(
+                    "Precondition für " + bucket + "/" + name + " verletzt (Generation " + actual + ")", null);
+        }
+    }
+
+    private static String key(String bucket, String name) {
+        return bucket + "/" + name;
+    }
+}
@@ -0,0 +1,250 @@
+package de.cne.ws25.pdfservice.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Lokales Dateisystem als Backend (lokale Läufe, Lasttests, On-Prem).
+ * <p>
+ * Layout: {@code <root>/<bucket>/<name>} für die Daten, Content-Type, Generation
+ * und Metadaten in {@code <root>/.meta/<bucket>/<name>.properties}. Eingaben werden
+ * per Memory-Mapping gelesen, ausgeliefert wird per {@link FileChannel#transferTo}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "local")
+public class LocalBlobStore implements BlobStore {
+
+    private static final String META_DIR = ".meta";
+    private static final String METADATA_PREFIX = "metadata.";
+
+    private final Path root;
+
+    // Preconditions + Umbenennen müssen atomar zusammen passieren
+    private final Object commitLock = new Object();
+
+    public LocalBlobStore(@Value("${app.storage.local.root:${java.io.tmpdir}/pdfservice-data}") String root)
+            throws IOException {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        Files.createDirectories(this.root);
+    }
+
+    @Override
+    public BlobMeta stat(String bucket, String name) {
+        Path data = dataPath(bucket, name);
+        if (!Files.isRegularFile(data)) {
+            return null;
+        }
+        try {
+            Properties props = readMeta(bucket, name);
+            Map<String, String> metadata = new HashMap<>();
+            for (String key : props.stringPropertyNames()) {
+                if (key.startsWith(METADATA_PREFIX)) {
+                    metadata.put(key.substring(METADATA_PREFIX.length()), props.getProperty(key));
+                }
+            }
+            return new BlobMeta(
+                    bucket,
+                    name,
+                    Files.size(data),
+                    props.getProperty("contentType"),
+                    Long.parseLong(props.getProperty("generation", "1")),
+                    Long.parseLong(props.getProperty("createTime",
+                            String.valueOf(Files.getLastModifiedTime(data).toMillis()))),
+                    metadata
+            );
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public ByteBuffer read(String bucket, String name) {
+        Path data = dataPath(bucket, name);
+        if (!Files.isRegularFile(data)) {
+            return null;
+        }
+        // Mapping bleibt nach dem Schließen des Channels gültig
+        try (FileChannel channel = FileChannel.open(data, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public ReadableByteChannel openReader(String bucket, String name) throws IOException {
+        return FileChannel.open(dataPath(bucket, name), StandardOpenOption.READ);
+    }
+
+    @Override
+    public long transferTo(String bucket, String name, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(dataPath(bucket, name), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+            return size;
+        }
+    }
+
+    @Override
+    public void put(BlobTarget target, byte[] data, int offset, int length) {
+        try {
+            Path tmp = tempFile(target);
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                out.write(data, offset, length);
+            }
+            commit(target, tmp);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public BlobWriter openWriter(BlobTarget target, int chunkSize) throws IOException {
+        Path tmp = tempFile(target);
+        FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        OutputStream stream = new UncloseableOutputStream(Channels.newOutputStream(channel));
+
+        return new BlobWriter() {
+            @Override
+            public OutputStream stream() {
+                return stream;
+            }
+
+            @Override
+            public void commit() throws IOException {
+                channel.close();
+                LocalBlobStore.this.commit(target, tmp);
+            }
+
+            @Override
+            public void abort() {
+                try {
+                    channel.close();
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                    // Temp-Datei bleibt liegen, stört aber nicht
+                }
+            }
+        };
+    }
+
+    @Override
+    public boolean delete(String bucket, String name, Long ifGenerationMatch) {
+        synchronized (commitLock) {
+            BlobMeta current = stat(bucket, name);
+            if (current == null) {
+                return false;
+            }
+            checkPrecondition(bucket, name, current, ifGenerationMatch);
+            try {
+                Files.deleteIfExists(metaPath(bucket, name));
+                return Files.deleteIfExists(dataPath(bucket, name));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public String publicUrl(String bucket, String name) {
+        return null;
+    }
+
+    private void commit(BlobTarget target, Path tmp) throws IOException {
+        synchronized (commitLock) {
+            BlobMeta current = stat(target.bucket(), target.name());
+            try {
+                checkPrecondition(target.bucket(), target.name(), current, target.ifGenerationMatch());
+            } catch (PreconditionFailedException e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            }
+
+            Properties props = new Properties();
+            if (target.contentType() != null) {
+                props.setProperty("contentType", target.contentType());
+            }
+            props.setProperty("generation", String.valueOf(current == null ? 1 : current.generation() + 1));
+            props.setProperty("createTime", String.valueOf(System.currentTimeMillis()));
+            if (target.metadata() != null) {
+                target.metadata().forEach((k, v) -> props.setProperty(METADATA_PREFIX + k, v));
+            }
+
+            Path data = dataPath(target.bucket(), target.name());
+            Files.move(tmp, data, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Path meta = metaPath(target.bucket(), target.name());
+            Files.createDirectories(meta.getParent());
+            try (Writer writer = Files.newBufferedWriter(meta, StandardCharsets.UTF_8)) {
+                props.store(writer, null);
+            }
+        }
+    }
+
+    private static void checkPrecondition(String bucket, String name, BlobMeta current, Long ifGenerationMatch) {
+        if (ifGenerationMatch == null) {
+            return;
+        }
+        long actual = current == null ? 0L : current.generation();
+        if (actual != ifGenerationMatch) {
+            throw new PreconditionFailedException(
+                    "Precondition für " + bucket + "/" + name + " verletzt (Generation " + actual + ")", null);
+        }
+    }
+
+    private Properties readMeta(String bucket, String name) throws IOException {
+        Properties props = new Properties();
+        Path meta = metaPath(bucket, name);
+        if (Files.isRegularFile(meta)) {
+            try (Reader reader = Files.newBufferedReader(meta, StandardCharsets.UTF_8)) {
+                props.load(reader);
+            }
+        }
+        return props;
+    }
+
+    private Path tempFile(BlobTarget target) throws IOException {
+        Path data = dataPath(target.bucket(), target.name());
+        Files.createDirectories(data.getParent());
+        // im selben Verzeichnis, damit das Umbenennen atomar ist
+        return Files.createTempFile(data.getParent(), ".upload-", ".tmp");
+    }
+
+    private Path dataPath(String bucket, String name) {
+        return resolve(root.resolve(bucket), name);
+    }
+
+    private Path metaPath(String bucket, String name) {
+        return resolve(root.resolve(META_DIR).resolve(bucket), name + ".properties");
+    }
+
+    private static Path resolve(Path base, String name) {
+        Path path = base.resolve(name).normalize();
+        if (!path.startsWith(base.normalize())) {
+            throw new IllegalArgumentException("Ungültiger Objektname: " + name);
+        }
+        return path;
+    }
+}
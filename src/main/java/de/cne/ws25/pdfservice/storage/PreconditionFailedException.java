@@ -0,0 +1,14 @@
+package de.cne.ws25.pdfservice.storage;
+
+/**
+ * Generation-Precondition verletzt (GCS: HTTP 412), z.B. weil das Objekt
+ * inzwischen von jemand anderem geschrieben wurde.
+ */
+public class PreconditionFailedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PreconditionFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,6 +1,9 @@
 package de.cne.ws25.pdfservice.storage;
 
-public record StoredFile(String bucket, String objectName) {
+/**
+ * Hochgeladene Datei; {@code sha256} (hex) wird beim Hochladen mitberechnet.
+ */
+public record StoredFile(String bucket, String objectName, String contentType, long size, String sha256) {
 
     public String gcsPath() {
         return "gs://" + bucket + "/" + objectName;
@@ -0,0 +1,26 @@
+package de.cne.ws25.pdfservice.storage;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Reicht Schreibzugriffe durch, ignoriert aber close() – PDFBox schließt den
+ * Stream auch im Fehlerfall, committet wird erst über {@link BlobWriter#commit()}.
+ */
+final class UncloseableOutputStream extends FilterOutputStream {
+
+    UncloseableOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
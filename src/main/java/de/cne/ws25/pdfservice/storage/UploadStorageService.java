@@ -0,0 +1,183 @@
+package de.cne.ws25.pdfservice.storage;
+
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import io.opentelemetry.context.Context;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+public class UploadStorageService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadStorageService.class);
+
+    private final BlobStore blobStore;
+    private final PipelineMetrics metrics;
+    private final String inputBucket;
+    private final long maxBytesPerFile;
+    private final int chunkSize;
+
+    // begrenzt parallele Uploads über alle Requests hinweg
+    private final Semaphore uploadPermits;
+
+    public UploadStorageService(
+            BlobStore blobStore,
+            PipelineMetrics metrics,
+            @Value("${app.bucket.input}") String inputBucket,
+            @Value("${app.upload.max-file-mb:10}") long maxFileMb,
+            @Value("${app.upload.chunk-size-kb:1024}") int chunkSizeKb,
+            @Value("${app.upload.concurrency:8}") int uploadConcurrency
+    ) {
+        this.blobStore = blobStore;
+        this.metrics = metrics;
+        this.inputBucket = inputBucket;
+        this.maxBytesPerFile = maxFileMb * 1024 * 1024;
+        this.chunkSize = chunkSizeKb * 1024;
+        this.uploadPermits = new Semaphore(Math.max(1, uploadConcurrency));
+    }
+
+    /**
+     * Alle Dateien parallel hochladen. Die Reihenfolge der Ergebnisse entspricht der
+     * Eingabe; schlägt ein Upload fehl, starten keine weiteren, und sobald die laufenden
+     * fertig sind, werden alle geschriebenen Objekte wieder gelöscht.
+     */
+    public List<StoredFile> storeAll(List<MultipartFile> files) throws Exception {
+        List<Future<StoredFile>> futures = new ArrayList<>(files.size());
+        AtomicBoolean failed = new AtomicBoolean();
+
+        // close() wartet auf alle Uploads: laufende werden nicht abgebrochen (ein Interrupt
+        // garantiert keinen Abbruch des Commits), sondern erst danach aufgeräumt
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (MultipartFile file : files) {
+                // Upload-Spans gehören zum Trace des Requests
+                futures.add(executor.submit(Context.current().wrap(() -> {
+                    uploadPermits.acquire();
+                    long start = System.nanoTime();
+                    try {
+                        if (failed.get()) {
+                            return null;
+                        }
+                        StoredFile stored = store(file);
+                        metrics.upload(start, stored.size(), true);
+                        return stored;
+                    } catch (Exception e) {
+                        failed.set(true);
+                        metrics.upload(start, 0, false);
+                        throw e;
+                    } finally {
+                        uploadPermits.release();
+                    }
+                })));
+            }
+        }
+
+        List<StoredFile> stored = new ArrayList<>(files.size());
+        Throwable failure = null;
+        for (Future<StoredFile> future : futures) {
+            if (future.state() == Future.State.SUCCESS) {
+                if (future.resultNow() != null) {
+                    stored.add(future.resultNow());
+                }
+            } else if (failure == null) {
+                failure = future.exceptionNow();
+            }
+        }
+        if (failure == null) {
+            return stored;
+        }
+        deleteAll(stored);
+        if (failure instanceof Exception e) {
+            throw e;
+        }
+        throw new ExecutionException(failure);
+    }
+
+    /**
+     * Datei direkt aus dem Multipart-Stream in den Storage streamen. Format und Größe werden
+     * beim Lesen geprüft; ungültige Uploads brechen ab, bevor das Objekt committet wird.
+     * Der SHA-256 für den Ergebnis-Cache wird im selben Durchlauf berechnet.
+     */
+    public StoredFile store(MultipartFile file) throws Exception {
+
+        if (file.getSize() > maxBytesPerFile) {
+            throw tooLarge(file);
+        }
+
+        String objectName = "uploads/" + UUID.randomUUID() + "-" + file.getOriginalFilename();
+
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            byte[] buffer = new byte[chunkSize];
+            int length = in.readNBytes(buffer, 0, buffer.length);
+
+            // Magic Bytes statt Client-Content-Type
+            String contentType = ImageSignature.detect(buffer, length);
+            if (contentType == null) {
+                throw new IllegalArgumentException("Kein unterstütztes Bildformat: " + file.getOriginalFilename());
+            }
+
+            BlobTarget target = BlobTarget.of(inputBucket, objectName, contentType);
+
+            // kleine Dateien: ein einzelner Request statt Resumable Session
+            if (length < buffer.length) {
+                blobStore.put(target, buffer, 0, length);
+                return new StoredFile(inputBucket, objectName, contentType, length, Hex.encodeHexString(digest.digest()));
+            }
+
+            long total = 0;
+            BlobWriter writer = blobStore.openWriter(target, chunkSize);
+            try {
+                while (length > 0) {
+                    total += length;
+                    if (total > maxBytesPerFile) {
+                        throw tooLarge(file);
+                    }
+                    writer.stream().write(buffer, 0, length);
+                    length = in.readNBytes(buffer, 0, buffer.length);
+                }
+            } catch (Exception e) {
+                // nie committen -> kein halbes Objekt
+                writer.abort();
+                throw e;
+            }
+            writer.commit();
+
+            return new StoredFile(inputBucket, objectName, contentType, total, Hex.encodeHexString(digest.digest()));
+        }
+    }
+
+    private IllegalArgumentException tooLarge(MultipartFile file) {
+        return new IllegalArgumentException("Bild zu groß: " + file.getOriginalFilename() +
+                " (max. " + (maxBytesPerFile / (1024 * 1024)) + " MB)");
+    }
+
+    /**
+     * Hochgeladene Dateien wieder löschen (best effort, Fehler werden nur geloggt).
+     */
+    public void deleteAll(List<StoredFile> files) {
+        for (StoredFile file : files) {
+            try {
+                blobStore.delete(file.bucket(), file.objectName());
+            } catch (Exception e) {
+                log.warn("Aufräumen fehlgeschlagen: {} ({})", file.gcsPath(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package de.cne.ws25.pdfservice.tracing;
+
+import com.google.pubsub.v1.PubsubMessage;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Ein Trace pro Job: beginnt mit dem Upload an {@code /convert} (oder setzt einen
+ * {@code traceparent} des Aufrufers fort), reist als Attribut der Pub/Sub-Nachricht
+ * mit und wird im Worker mit einem Span pro Zustellung fortgesetzt. Die einzelnen
+ * Stufen (Download, Dekodieren, Kodieren, Upload …) trägt {@code PipelineMetrics} als
+ * Kind-Spans ein.
+ */
+@Component
+public class JobTracing {
+
+    private static final TextMapGetter<Map<String, String>> MAP_GETTER = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(Map<String, String> carrier) {
+            return carrier.keySet();
+        }
+
+        @Override
+        public String get(Map<String, String> carrier, String key) {
+            return carrier == null ? null : carrier.get(key);
+        }
+    };
+
+    private final Tracer tracer;
+    private final TextMapPropagator propagator;
+
+    public JobTracing(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer("de.cne.ws25.pdfservice");
+        this.propagator = openTelemetry.getPropagators().getTextMapPropagator();
+    }
+
+    public Tracer tracer() {
+        return tracer;
+    }
+
+    /**
+     * Span für einen Upload; {@code traceparent} = gleichnamiger Header, falls vorhanden.
+     */
+    public Span startUpload(String traceparent) {
+        Context parent = traceparent == null || traceparent.isBlank()
+                ? Context.root()
+                : propagator.extract(Context.root(), Map.of("traceparent", traceparent), MAP_GETTER);
+        return tracer.spanBuilder("POST /convert")
+                .setParent(parent)
+                .setSpanKind(SpanKind.SERVER)
+                .startSpan();
+    }
+
+    /**
+     * Aktuellen Trace-Kontext als Attribute an die Nachricht hängen.
+     */
+    public void inject(PubsubMessage.Builder message) {
+        propagator.inject(Context.current(), message, PubsubMessage.Builder::putAttributes);
+    }
+
+    /**
+     * Span für eine Zustellung im Worker, Kind des Spans aus den Nachrichtenattributen
+     * (ohne Attribute ein neuer Trace).
+     */
+    public Span startJob(Map<String, String> attributes, String messageId) {
+        Context parent = attributes == null
+                ? Context.root()
+                : propagator.extract(Context.root(), attributes, MAP_GETTER);
+        return tracer.spanBuilder("pdf.job")
+                .setParent(parent)
+                .setSpanKind(SpanKind.CONSUMER)
+                .setAttribute("messaging.message.id", messageId == null ? "" : messageId)
+                .startSpan();
+    }
+}
@@ -0,0 +1,50 @@
+package de.cne.ws25.pdfservice.tracing;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Log-Sampling passend zu den Traces: INFO und darunter wird innerhalb eines Traces nur
+ * geschrieben, wenn er gesampelt ist – zu einem Job gibt es dann Spans und Logs oder
+ * keins von beiden. Ohne Trace (Start, Hintergrund-Threads) und ab WARN wird immer geloggt.
+ * <p>
+ * Läuft im aufrufenden Thread vor dem Erzeugen des Events und hängt deshalb auch
+ * {@code trace_id}/{@code span_id} ins MDC; der asynchrone Appender bekommt sie mit.
+ * In {@code logback-spring.xml} registriert, {@code app.logging.sampled-only=false} schaltet
+ * das Sampling ab.
+ */
+public class SampledLogFilter extends TurboFilter {
+
+    private boolean sampledOnly = true;
+
+    public void setSampledOnly(boolean sampledOnly) {
+        this.sampledOnly = sampledOnly;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level == null || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        SpanContext span = Span.current().getSpanContext();
+        if (!span.isValid()) {
+            if (MDC.get("trace_id") != null) {
+                MDC.remove("trace_id");
+                MDC.remove("span_id");
+            }
+            return FilterReply.NEUTRAL;
+        }
+        if (sampledOnly && !span.isSampled() && !level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.DENY;
+        }
+        MDC.put("trace_id", span.getTraceId());
+        MDC.put("span_id", span.getSpanId());
+        return FilterReply.NEUTRAL;
+    }
+}
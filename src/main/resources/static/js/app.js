@@ -99,6 +99,8 @@ document.getElementById('uploadForm').addEventListener('submit', function (e) {
 
     const xhr = new XMLHttpRequest();
     xhr.open('POST', '/convert', true);
+    // kleine Uploads kommen direkt als PDF zurück, größere als Redirect auf /job/{jobId}
+    xhr.responseType = 'blob';
 
     xhr.upload.addEventListener('progress', function (event) {
         if (event.lengthComputable) {
@@ -113,7 +115,11 @@ document.getElementById('uploadForm').addEventListener('submit', function (e) {
 
     xhr.onreadystatechange = function () {
         if (xhr.readyState === XMLHttpRequest.DONE) {
-            if (xhr.status >= 200 && xhr.status < 400) {
+            const contentType = xhr.getResponseHeader('Content-Type') || '';
+            if (xhr.status === 200 && contentType.startsWith('application/pdf')) {
+                statusText.textContent = 'PDF fertig.';
+                window.location.href = URL.createObjectURL(xhr.response);
+            } else if (xhr.status >= 200 && xhr.status < 400) {
                 statusText.textContent = 'Upload abgeschlossen. Weiterleiten…';
                 const targetUrl = xhr.responseURL || '/';
                 window.location.href = targetUrl; // /job/{jobId}
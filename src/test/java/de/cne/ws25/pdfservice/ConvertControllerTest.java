@@ -0,0 +1,143 @@
+package de.cne.ws25.pdfservice;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Heap-Storage und lokales Pub/Sub an den echten Port: der Worker läuft im selben Kontext
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"app.storage.backend=memory",
+		"app.pubsub.backend=local",
+		"app.ratelimit.enabled=false"
+})
+@AutoConfigureMockMvc
+class ConvertControllerTest {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ConvertController controller;
+
+	@Test
+	void smallUploadIsAnsweredWithPdf() throws Exception {
+		MvcResult started = mvc.perform(multipart("/convert").file(png("a.png")))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		byte[] pdf = mvc.perform(asyncDispatch(started))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.APPLICATION_PDF))
+				.andReturn().getResponse().getContentAsByteArray();
+		try (PDDocument doc = PDDocument.load(pdf)) {
+			assertThat(doc.getNumberOfPages()).isEqualTo(1);
+		}
+		assertThat(syncPermits().availablePermits()).isEqualTo(2);
+	}
+
+	@Test
+	void failedSyncConversionReleasesSlot() throws Exception {
+		// Header lesbar (Seitenzahl), Bilddaten abgeschnitten: scheitert erst beim Dekodieren
+		byte[] png = png("c.png").getBytes();
+		MockMultipartFile truncated = new MockMultipartFile("file", "c.png", "image/png",
+				Arrays.copyOf(png, 60));
+
+		int status = mvc.perform(multipart("/convert").file(truncated)).andReturn().getResponse().getStatus();
+
+		assertThat(status).isEqualTo(400);
+		assertThat(syncPermits().availablePermits()).isEqualTo(2);
+	}
+
+	@Test
+	void busySyncSlotsFallBackToAsyncJob() throws Exception {
+		Semaphore permits = syncPermits();
+		permits.acquire(2);
+		try {
+			mvc.perform(multipart("/convert").file(png("a.png")))
+					.andExpect(status().isSeeOther())
+					.andExpect(header().string("Location", startsWith("/job/")));
+		} finally {
+			permits.release(2);
+		}
+	}
+
+	@Test
+	void asyncModeSkipsSyncPath() throws Exception {
+		mvc.perform(multipart("/convert").file(png("b.png")).param("mode", "async"))
+				.andExpect(status().isSeeOther());
+		assertThat(syncPermits().availablePermits()).isEqualTo(2);
+	}
+
+	@Test
+	void identicalAsyncUploadsShareOneJob() throws Exception {
+		MockMultipartFile image = png("d.png", Color.MAGENTA);
+		String first = mvc.perform(multipart("/convert").file(image).param("mode", "async"))
+				.andExpect(status().isSeeOther())
+				.andReturn().getResponse().getHeader("Location");
+
+		mvc.perform(multipart("/convert").file(image).param("mode", "async"))
+				.andExpect(status().isSeeOther())
+				.andExpect(header().string("Location", first));
+	}
+
+	@Test
+	void jobIdsThatAreNoUuidsAreNotFound() throws Exception {
+		// würde sonst im String von new EventSource('/job/%s/events') landen
+		String injected = "'-alert(1)-'";
+
+		mvc.perform(get("/job/{jobId}", injected)).andExpect(status().isNotFound());
+		mvc.perform(get("/job/{jobId}/status", injected)).andExpect(status().isNotFound());
+		mvc.perform(get("/job/{jobId}/events", injected)).andExpect(status().isNotFound());
+		mvc.perform(get("/job/{jobId}/output.pdf", "..")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void unknownUuidShowsWaitingPage() throws Exception {
+		mvc.perform(get("/job/{jobId}", UUID.randomUUID().toString())).andExpect(status().isOk());
+	}
+
+	private Semaphore syncPermits() {
+		return (Semaphore) ReflectionTestUtils.getField(controller, "syncPermits");
+	}
+
+	private static MockMultipartFile png(String name) throws Exception {
+		return png(name, Color.ORANGE);
+	}
+
+	private static MockMultipartFile png(String name, Color color) throws Exception {
+		BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(color);
+		g.fillRect(0, 0, 64, 64);
+		g.dispose();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return new MockMultipartFile("file", name, "image/png", out.toByteArray());
+	}
+}
@@ -0,0 +1,65 @@
+package de.cne.ws25.pdfservice.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientRateLimiterTest {
+
+	private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+	@Test
+	void burstThenRetryAfterUntilNextToken() {
+		// 60/min = ein Token pro Sekunde, Burst 3
+		ClientRateLimiter limiter = new ClientRateLimiter(60, 3, 100, now::get);
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(limiter.tryAcquire("ip:1.2.3.4")).isZero();
+		}
+		assertThat(limiter.tryAcquire("ip:1.2.3.4")).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+		// andere Clients haben ihr eigenes Kontingent
+		assertThat(limiter.tryAcquire("ip:5.6.7.8")).isZero();
+
+		now.addAndGet(TimeUnit.MILLISECONDS.toNanos(400));
+		assertThat(limiter.tryAcquire("ip:1.2.3.4")).isEqualTo(TimeUnit.MILLISECONDS.toNanos(600));
+		now.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+		assertThat(limiter.tryAcquire("ip:1.2.3.4")).isZero();
+	}
+
+	@Test
+	void idleClientsAreEvictedWhenFull() {
+		ClientRateLimiter limiter = new ClientRateLimiter(60, 1, 10, now::get);
+
+		for (int i = 0; i < 10; i++) {
+			limiter.tryAcquire("ip:10.0.0." + i);
+		}
+		// alle Buckets wieder voll -> verwerfbar
+		now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+		limiter.tryAcquire("ip:10.0.1.1");
+
+		assertThat(limiter.clients()).isLessThanOrEqualTo(10);
+		// der neue Client hat sein Token verbraucht
+		assertThat(limiter.tryAcquire("ip:10.0.1.1")).isPositive();
+	}
+
+	@Test
+	void throttledClientKeepsItsBucketWhenAllAreActive() {
+		ClientRateLimiter limiter = new ClientRateLimiter(60, 3, 10, now::get);
+
+		for (int i = 0; i < 3; i++) {
+			limiter.tryAcquire("ip:6.6.6.6");
+		}
+		assertThat(limiter.tryAcquire("ip:6.6.6.6")).isPositive();
+		// viele neue Clients, alle noch aktiv: keiner ist verwerfbar
+		for (int i = 0; i < 50; i++) {
+			limiter.tryAcquire("ip:10.0.0." + i);
+			now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+
+		assertThat(limiter.clients()).isLessThanOrEqualTo(10);
+		assertThat(limiter.tryAcquire("ip:6.6.6.6")).isPositive();
+	}
+}
@@ -0,0 +1,116 @@
+package de.cne.ws25.pdfservice.convert;
+
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveEncodingTest {
+
+	private final PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+	private final ImageToPdfService service = new ImageToPdfService(null, metrics,
+			new MemoryBudget(metrics, 64, 1000), 1, 1, 0, 16, "", 256, "balanced", 0.85f, 0.6f, 200, 500);
+
+	@AfterEach
+	void shutdown() {
+		service.shutdown();
+	}
+
+	@Test
+	void bilevelScanBecomesCcittWithoutInvertingColors() throws Exception {
+		BufferedImage scan = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = scan.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, 200, 100);
+		g.setColor(Color.BLACK);
+		g.fillRect(20, 20, 50, 30);
+		g.dispose();
+
+		PreparedImage prepared = service.encode(scan, EncodingProfile.ARCHIVE);
+
+		assertThat(prepared.filter()).isEqualTo(COSName.CCITTFAX_DECODE);
+		BufferedImage decoded = roundTrip(prepared);
+		assertThat(decoded.getRGB(30, 30) & 0xFFFFFF).isZero();
+		assertThat(decoded.getRGB(150, 80) & 0xFFFFFF).isEqualTo(0xFFFFFF);
+	}
+
+	@Test
+	void photoIsJpegAndGraphicStaysLossless() throws Exception {
+		BufferedImage photo = new BufferedImage(120, 80, BufferedImage.TYPE_INT_RGB);
+		Random random = new Random(1);
+		for (int y = 0; y < 80; y++) {
+			for (int x = 0; x < 120; x++) {
+				photo.setRGB(x, y, random.nextInt(0xFFFFFF));
+			}
+		}
+		assertThat(service.encode(photo, EncodingProfile.BALANCED).filter()).isEqualTo(COSName.DCT_DECODE);
+		assertThat(service.encode(photo, EncodingProfile.ARCHIVE).filter()).isEqualTo(COSName.FLATE_DECODE);
+
+		BufferedImage graphic = new BufferedImage(120, 80, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = graphic.createGraphics();
+		g.setColor(Color.ORANGE);
+		g.fillRect(10, 10, 60, 40);
+		g.dispose();
+		assertThat(service.encode(graphic, EncodingProfile.SMALL).filter()).isEqualTo(COSName.FLATE_DECODE);
+	}
+
+	@Test
+	void grayUsesOneChannelAndOpaqueAlphaHasNoSoftMask() throws Exception {
+		BufferedImage gray = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < 100; y++) {
+			for (int x = 0; x < 100; x++) {
+				int v = (x * 7 + y * 3) % 256;
+				gray.setRGB(x, y, 0xFF000000 | v << 16 | v << 8 | v);
+			}
+		}
+
+		PreparedImage prepared = service.encode(gray, EncodingProfile.ARCHIVE);
+
+		assertThat(prepared.colorSpace().getNumberOfComponents()).isEqualTo(1);
+		assertThat(prepared.softMask()).isNull();
+		assertThat(roundTrip(prepared).getRaster().getSample(10, 20, 0)).isEqualTo(130);
+	}
+
+	@Test
+	void truncatedJpegIsDecodedInsteadOfPassedThrough() throws Exception {
+		BufferedImage photo = new BufferedImage(120, 80, BufferedImage.TYPE_INT_RGB);
+		Random random = new Random(1);
+		for (int y = 0; y < 80; y++) {
+			for (int x = 0; x < 120; x++) {
+				photo.setRGB(x, y, random.nextInt(0xFFFFFF));
+			}
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(photo, "jpg", out);
+		byte[] jpeg = out.toByteArray();
+		ByteBuffer complete = ByteBuffer.wrap(jpeg);
+		// Header vollständig, Scan-Daten und EOI fehlen
+		ByteBuffer truncated = ByteBuffer.wrap(Arrays.copyOf(jpeg, jpeg.length - 200));
+
+		assertThat(service.prepare(complete, "a.jpg").data()).isSameAs(complete);
+		PreparedImage decoded = service.prepare(truncated, "b.jpg");
+		assertThat(decoded.data()).isNotSameAs(truncated);
+		assertThat(decoded.width()).isEqualTo(120);
+	}
+
+	private static BufferedImage roundTrip(PreparedImage prepared) throws Exception {
+		try (PDDocument doc = new PDDocument()) {
+			PDImageXObject image = prepared.toXObject(doc);
+			return image.getImage();
+		}
+	}
+}
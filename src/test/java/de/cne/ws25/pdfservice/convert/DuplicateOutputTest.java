@@ -0,0 +1,98 @@
+package de.cne.ws25.pdfservice.convert;
+
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import de.cne.ws25.pdfservice.storage.BlobTarget;
+import de.cne.ws25.pdfservice.storage.BlobWriter;
+import de.cne.ws25.pdfservice.storage.InMemoryBlobStore;
+import de.cne.ws25.pdfservice.storage.PreconditionFailedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Doppelte Zustellung: der zweite Schreiber auf output.pdf muss als
+ * {@link PreconditionFailedException} ankommen, damit der Worker den Job als erledigt ansieht.
+ */
+class DuplicateOutputTest {
+
+	// wie GCS ab dem ersten vollen Chunk: die Precondition schlägt schon beim Schreiben fehl
+	private boolean failWhileStreaming;
+
+	private final InMemoryBlobStore store = new InMemoryBlobStore() {
+		@Override
+		public BlobWriter openWriter(BlobTarget target, int chunkSize) {
+			BlobWriter writer = super.openWriter(target, chunkSize);
+			if (!failWhileStreaming || stat(target.bucket(), target.name()) == null) {
+				return writer;
+			}
+			return new BlobWriter() {
+				@Override
+				public OutputStream stream() {
+					return new OutputStream() {
+						@Override
+						public void write(int b) {
+							throw new PreconditionFailedException("412 beim Schreiben", null);
+						}
+					};
+				}
+
+				@Override
+				public void commit() throws IOException {
+					writer.commit();
+				}
+
+				@Override
+				public void abort() {
+					writer.abort();
+				}
+			};
+		}
+	};
+
+	private final PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+	private final ImageToPdfService service = new ImageToPdfService(store, metrics,
+			new MemoryBudget(metrics, 64, 1000), 1, 1, 0, 16, "", 256, "balanced", 0.85f, 0.6f, 200, 500);
+
+	@AfterEach
+	void shutdown() {
+		service.shutdown();
+	}
+
+	@Test
+	void secondConversionOfSameJobFailsOnCommit() throws Exception {
+		List<String> inputs = List.of(upload("a.png"));
+		service.convertImageObjectsToPdf("in", inputs, "out", "job-1");
+		long size = store.stat("out", ImageToPdfService.outputObject("job-1")).size();
+
+		assertThatThrownBy(() -> service.convertImageObjectsToPdf("in", inputs, "out", "job-1"))
+				.isInstanceOf(PreconditionFailedException.class);
+		assertThat(store.stat("out", ImageToPdfService.outputObject("job-1")).size()).isEqualTo(size);
+	}
+
+	@Test
+	void preconditionWhileStreamingIsNotWrapped() throws Exception {
+		List<String> inputs = List.of(upload("a.png"));
+		service.convertImageObjectsToPdf("in", inputs, "out", "job-2");
+		failWhileStreaming = true;
+
+		assertThatThrownBy(() -> service.convertImageObjectsToPdf("in", inputs, "out", "job-2"))
+				.isInstanceOf(PreconditionFailedException.class);
+	}
+
+	private String upload(String name) throws Exception {
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB), "png", png);
+		store.put(BlobTarget.of("in", name, "image/png"), png.toByteArray());
+		return name;
+	}
+}
@@ -0,0 +1,53 @@
+package de.cne.ws25.pdfservice.convert;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JpegHeaderTest {
+
+	@Test
+	void readsDimensionsFromBaselineJpeg() throws Exception {
+		BufferedImage img = new BufferedImage(123, 45, BufferedImage.TYPE_INT_RGB);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(img, "jpg", out);
+
+		JpegHeader header = JpegHeader.parse(out.toByteArray());
+
+		assertThat(header).isNotNull();
+		assertThat(header.width()).isEqualTo(123);
+		assertThat(header.height()).isEqualTo(45);
+		assertThat(header.components()).isEqualTo(3);
+		assertThat(header.isPassthroughCompatible()).isTrue();
+	}
+
+	@Test
+	void rejectsNonJpegData() throws Exception {
+		BufferedImage img = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(img, "png", out);
+
+		assertThat(JpegHeader.parse(out.toByteArray())).isNull();
+		assertThat(JpegHeader.parse(new byte[0])).isNull();
+	}
+
+	@Test
+	void detectsMissingEndOfImage() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB), "jpg", out);
+		byte[] jpeg = out.toByteArray();
+
+		assertThat(JpegHeader.hasEndOfImage(ByteBuffer.wrap(jpeg))).isTrue();
+		assertThat(JpegHeader.hasEndOfImage(ByteBuffer.wrap(Arrays.copyOf(jpeg, jpeg.length + 16)))).isTrue();
+		byte[] truncated = Arrays.copyOf(jpeg, jpeg.length - 10);
+		assertThat(JpegHeader.parse(truncated)).isNotNull();
+		assertThat(JpegHeader.hasEndOfImage(ByteBuffer.wrap(truncated))).isFalse();
+	}
+
+}
@@ -0,0 +1,46 @@
+package de.cne.ws25.pdfservice.convert;
+
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemoryBudgetTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final MemoryBudget budget = new MemoryBudget(new PipelineMetrics(registry), 16, 50);
+
+	@Test
+	void rejectsWhenBudgetStaysExhausted() {
+		try (MemoryBudget.Lease first = budget.newLease()) {
+			first.reserve(12L * 1024 * 1024);
+			assertThat(budget.reservedBytes()).isEqualTo(12L * 1024 * 1024);
+
+			try (MemoryBudget.Lease second = budget.newLease()) {
+				assertThatThrownBy(() -> second.reserve(8L * 1024 * 1024))
+						.isInstanceOf(MemoryBudgetExceededException.class);
+			}
+		}
+		assertThat(budget.reservedBytes()).isZero();
+	}
+
+	@Test
+	void oversizedPageGetsWholeBudget() {
+		try (MemoryBudget.Lease lease = budget.newLease()) {
+			lease.reserve(MemoryBudget.estimate(6000, 4000, 4));
+			assertThat(budget.reservedBytes()).isEqualTo(16L * 1024 * 1024);
+		}
+		assertThat(budget.reservedBytes()).isZero();
+	}
+
+	@Test
+	void gaugeShowsReservedBytesOnceRegistered() {
+		budget.registerGauge();
+		try (MemoryBudget.Lease lease = budget.newLease()) {
+			lease.reserve(4L * 1024 * 1024);
+			assertThat(registry.get("pdf.convert.memory.reserved").gauge().value()).isEqualTo(4.0 * 1024 * 1024);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package de.cne.ws25.pdfservice.convert;
+
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MultiFrameTest {
+
+	private final PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+	private final ImageToPdfService service = new ImageToPdfService(null, metrics,
+			new MemoryBudget(metrics, 64, 1000), 1, 1, 0, 16, "", 256, "balanced", 0.85f, 0.6f, 200, 5);
+
+	@AfterEach
+	void shutdown() {
+		service.shutdown();
+	}
+
+	@Test
+	void everyTiffFrameBecomesAPage() throws Exception {
+		byte[] tiff = writeSequence("tiff", List.of(solid(Color.RED), solid(Color.GREEN), solid(Color.BLUE)), null);
+
+		assertThat(service.countPages(new ByteArrayInputStream(tiff))).isEqualTo(3);
+		try (PDDocument doc = service.createDocument(List.of(new ImageInput("fax.tif", tiff)))) {
+			assertThat(doc.getNumberOfPages()).isEqualTo(3);
+		}
+	}
+
+	@Test
+	void framesCountTowardsPageLimit() throws Exception {
+		byte[] tiff = writeSequence("tiff", List.of(solid(Color.RED), solid(Color.RED), solid(Color.RED)), null);
+
+		assertThatThrownBy(() -> service.createDocument(List.of(
+				new ImageInput("a.tif", tiff), new ImageInput("b.tif", tiff))))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Seiten");
+	}
+
+	@Test
+	void partialGifFramesAreDrawnOverPreviousFrame() throws Exception {
+		BufferedImage first = solid(Color.RED);
+		BufferedImage patch = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = patch.createGraphics();
+		g.setColor(Color.BLUE);
+		g.fillRect(0, 0, 10, 10);
+		g.dispose();
+
+		byte[] gif = writeSequence("gif", List.of(first, patch), new int[]{20, 30});
+
+		try (FrameSource source = FrameSource.open(new ByteArrayInputStream(gif))) {
+			assertThat(source.frames()).isEqualTo(2);
+			source.read(0, 1000, 1000, bytes -> { });
+			BufferedImage second = source.read(1, 1000, 1000, bytes -> { });
+			assertThat(second.getWidth()).isEqualTo(64);
+			// roter Hintergrund aus Frame 0, blauer Ausschnitt an Position 20/30
+			assertThat(second.getRGB(5, 5) & 0xFFFFFF).isEqualTo(0xFF0000);
+			assertThat(second.getRGB(25, 35) & 0xFFFFFF).isEqualTo(0x0000FF);
+		}
+	}
+
+	private static BufferedImage solid(Color color) {
+		BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(color);
+		g.fillRect(0, 0, 64, 64);
+		g.dispose();
+		return image;
+	}
+
+	/**
+	 * Mehrere Bilder als eine Datei; bei GIF liegt der zweite Frame an {@code offset}.
+	 */
+	private static byte[] writeSequence(String format, List<BufferedImage> frames, int[] offset) throws Exception {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+			writer.setOutput(out);
+			writer.prepareWriteSequence(null);
+			for (int i = 0; i < frames.size(); i++) {
+				BufferedImage frame = frames.get(i);
+				IIOMetadata metadata = null;
+				if (offset != null && i > 0) {
+					metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(frame), null);
+					String formatName = metadata.getNativeMetadataFormatName();
+					IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(formatName);
+					IIOMetadataNode descriptor = (IIOMetadataNode) root.getElementsByTagName("ImageDescriptor").item(0);
+					descriptor.setAttribute("imageLeftPosition", String.valueOf(offset[0]));
+					descriptor.setAttribute("imageTopPosition", String.valueOf(offset[1]));
+					metadata.setFromTree(formatName, root);
+				}
+				writer.writeToSequence(new IIOImage(frame, null, metadata), null);
+			}
+			writer.endWriteSequence();
+		} finally {
+			writer.dispose();
+		}
+		return bytes.toByteArray();
+	}
+}
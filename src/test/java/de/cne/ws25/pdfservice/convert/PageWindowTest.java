@@ -0,0 +1,80 @@
+package de.cne.ws25.pdfservice.convert;
+
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import de.cne.ws25.pdfservice.storage.BlobTarget;
+import de.cne.ws25.pdfservice.storage.InMemoryBlobStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageWindowTest {
+
+	private final AtomicInteger reads = new AtomicInteger();
+	private final AtomicInteger pagesDone = new AtomicInteger();
+	private final AtomicInteger maxAhead = new AtomicInteger();
+
+	// zählt, wie viele Dateien beim Start eines Downloads schon geladen, aber noch nicht eingefügt sind
+	private final InMemoryBlobStore store = new InMemoryBlobStore() {
+		@Override
+		public ByteBuffer read(String bucket, String name) {
+			maxAhead.accumulateAndGet(reads.incrementAndGet() - pagesDone.get(), Math::max);
+			return super.read(bucket, name);
+		}
+	};
+
+	private final PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+	private final ImageToPdfService service = new ImageToPdfService(store, metrics,
+			new MemoryBudget(metrics, 64, 1000), 8, 2, 2, 16, "", 256, "balanced", 0.85f, 0.6f, 200, 500);
+
+	@AfterEach
+	void shutdown() {
+		service.shutdown();
+	}
+
+	@Test
+	void jobLargerThanWindowKeepsAtMostWindowSourcesLive() throws Exception {
+		List<String> objects = new ArrayList<>();
+		for (int i = 0; i < 12; i++) {
+			String name = "uploads/job/" + i + ".png";
+			byte[] png = png(new Color(i * 20, 0, 0));
+			store.put(BlobTarget.of("in", name, "image/png"), png, 0, png.length);
+			objects.add(name);
+		}
+
+		String url = service.convertImageObjectsToPdf("in", objects, EncodingProfile.BALANCED,
+				BlobTarget.of("out", "job.pdf", "application/pdf"), pagesDone::set, service.cpuLane("test", 1));
+
+		assertThat(url).isEqualTo("gs://out/job.pdf");
+		assertThat(reads).hasValue(12);
+		assertThat(maxAhead.get()).isBetween(1, 2);
+		byte[] pdf = new byte[store.read("out", "job.pdf").remaining()];
+		store.read("out", "job.pdf").get(pdf);
+		try (PDDocument doc = PDDocument.load(pdf)) {
+			assertThat(doc.getNumberOfPages()).isEqualTo(12);
+		}
+	}
+
+	private static byte[] png(Color color) throws Exception {
+		BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(color);
+		g.fillRect(0, 0, 64, 64);
+		g.dispose();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,54 @@
+package de.cne.ws25.pdfservice.convert;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResamplerTest {
+
+	@Test
+	void scalesToExactSizeAndAveragesAreas() {
+		// linke Hälfte schwarz, rechte weiß, Größe nicht ganzzahlig teilbar
+		BufferedImage source = new BufferedImage(301, 157, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < 157; y++) {
+			for (int x = 0; x < 301; x++) {
+				source.setRGB(x, y, x < 150 ? 0x000000 : 0xFFFFFF);
+			}
+		}
+
+		BufferedImage scaled = Resampler.areaAverage(source, 100, 52);
+
+		assertThat(scaled.getWidth()).isEqualTo(100);
+		assertThat(scaled.getHeight()).isEqualTo(52);
+		assertThat(scaled.getRGB(10, 51) & 0xFFFFFF).isZero();
+		assertThat(scaled.getRGB(90, 0) & 0xFFFFFF).isEqualTo(0xFFFFFF);
+		// Spalte auf der Kante ist gemischt
+		int edge = scaled.getRGB(49, 20) & 0xFF;
+		assertThat(edge).isBetween(1, 254);
+	}
+
+	@Test
+	void grayStaysGrayAndBilevelStaysBilevel() {
+		BufferedImage gray = new BufferedImage(40, 40, BufferedImage.TYPE_BYTE_GRAY);
+		gray.getRaster().setSamples(0, 0, 40, 40, 0, fill(40 * 40, 77));
+		BufferedImage scaledGray = Resampler.areaAverage(gray, 13, 13);
+		assertThat(scaledGray.getType()).isEqualTo(BufferedImage.TYPE_BYTE_GRAY);
+		assertThat(scaledGray.getRaster().getSample(12, 12, 0)).isEqualTo(77);
+
+		BufferedImage binary = new BufferedImage(40, 40, BufferedImage.TYPE_BYTE_BINARY);
+		binary.getRaster().setSamples(0, 0, 20, 40, 0, fill(20 * 40, 1));
+		BufferedImage scaledBinary = Resampler.areaAverage(binary, 15, 15);
+		assertThat(ImageClassifier.classify(scaledBinary).bilevel()).isTrue();
+		assertThat(scaledBinary.getRaster().getSample(2, 2, 0)).isEqualTo(0xFF);
+		assertThat(scaledBinary.getRaster().getSample(13, 2, 0)).isZero();
+	}
+
+	private static int[] fill(int size, int value) {
+		int[] values = new int[size];
+		Arrays.fill(values, value);
+		return values;
+	}
+}
@@ -0,0 +1,56 @@
+package de.cne.ws25.pdfservice.convert;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WeightedExecutorTest {
+
+	private final WeightedExecutor executor = new WeightedExecutor(1, "test-");
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void busyLanesShareThreadsByWeight() throws Exception {
+		Executor small = executor.lane("small", 3);
+		Executor large = executor.lane("large", 1);
+		List<String> order = new CopyOnWriteArrayList<>();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(16);
+
+		// der einzige Thread hängt, bis beide Lanes voll sind
+		small.execute(() -> { started.countDown(); await(blocked); });
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		for (int i = 0; i < 8; i++) {
+			large.execute(() -> { order.add("large"); done.countDown(); });
+		}
+		for (int i = 0; i < 8; i++) {
+			small.execute(() -> { order.add("small"); done.countDown(); });
+		}
+		blocked.countDown();
+
+		assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+		// 3:1, obwohl die großen zuerst in der Warteschlange standen
+		assertThat(order.subList(0, 8)).filteredOn("small"::equals).hasSize(6);
+		assertThat(order.subList(10, 16)).containsOnly("large");
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
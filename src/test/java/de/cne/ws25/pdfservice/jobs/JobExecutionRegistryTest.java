@@ -0,0 +1,72 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JobExecutionRegistryTest {
+
+	private final JobExecutionRegistry registry = new JobExecutionRegistry(2);
+
+	@Test
+	void duplicatesAreDetectedWhileRunningAndAfterCompletion() {
+		assertThat(registry.claim("a")).isEqualTo(JobExecutionRegistry.Claim.ACQUIRED);
+		assertThat(registry.claim("a")).isEqualTo(JobExecutionRegistry.Claim.IN_FLIGHT);
+
+		registry.complete("a");
+		assertThat(registry.claim("a")).isEqualTo(JobExecutionRegistry.Claim.COMPLETED);
+	}
+
+	@Test
+	void releasedJobCanRunAgain() {
+		assertThat(registry.claim("a")).isEqualTo(JobExecutionRegistry.Claim.ACQUIRED);
+		registry.release("a");
+		assertThat(registry.claim("a")).isEqualTo(JobExecutionRegistry.Claim.ACQUIRED);
+	}
+
+	@Test
+	void concurrentDeliveriesRunEachJobOnce() throws Exception {
+		JobExecutionRegistry shared = new JobExecutionRegistry(10_000);
+		Map<String, Integer> runs = new ConcurrentHashMap<>();
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			// vier Zustellungen je Job; wer ihn bekommt, schließt ihn sofort ab
+			List<Future<?>> deliveries = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				deliveries.add(pool.submit(() -> {
+					for (int i = 0; i < 2000; i++) {
+						String jobId = "job-" + i;
+						if (shared.claim(jobId) == JobExecutionRegistry.Claim.ACQUIRED) {
+							runs.merge(jobId, 1, Integer::sum);
+							shared.complete(jobId);
+						}
+					}
+				}));
+			}
+			for (Future<?> delivery : deliveries) {
+				delivery.get();
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		assertThat(runs).hasSize(2000);
+		assertThat(runs.values()).containsOnly(1);
+	}
+
+	@Test
+	void onlyInvalidInputIsPermanent() {
+		assertThat(PdfJobHandler.isPermanent(new CompletionException(new IllegalArgumentException("Bild zu groß")))).isTrue();
+		assertThat(PdfJobHandler.isPermanent(new IOException("timeout"))).isFalse();
+	}
+}
@@ -0,0 +1,145 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import de.cne.ws25.pdfservice.storage.BlobTarget;
+import de.cne.ws25.pdfservice.storage.InMemoryBlobStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class JobStatusRegistryTest {
+
+	private final InMemoryBlobStore store = new InMemoryBlobStore();
+	// zwei Instanzen über denselben Bucket: API und Worker
+	private final JobStatusRegistry api = registry();
+	private final JobStatusRegistry worker = registry();
+
+	@AfterEach
+	void shutdown() {
+		api.shutdown();
+		worker.shutdown();
+	}
+
+	@Test
+	void statusRoundTripsThroughStatusJson() {
+		worker.update(JobStatus.failed("job-1", 2, 5, "Bild zu groß"));
+
+		JobStatus read = api.lookup("job-1");
+		assertThat(read.state()).isEqualTo(JobStatus.State.FAILED);
+		assertThat(read.pagesDone()).isEqualTo(2);
+		assertThat(read.pagesTotal()).isEqualTo(5);
+		assertThat(read.error()).isEqualTo("Bild zu groß");
+		assertThat(read.isTerminal()).isTrue();
+	}
+
+	@Test
+	void activeStatusIsCachedUntilTtl() {
+		worker.update(JobStatus.running("job-2", 0, 3));
+		assertThat(api.lookup("job-2").state()).isEqualTo(JobStatus.State.RUNNING);
+
+		worker.update(JobStatus.done("job-2", 3, "gs://out/jobs/job-2/output.pdf"));
+		assertThat(api.lookup("job-2").state()).isEqualTo(JobStatus.State.RUNNING);
+
+		await().atMost(Duration.ofSeconds(2))
+				.until(() -> api.lookup("job-2").state() == JobStatus.State.DONE);
+	}
+
+	@Test
+	void localWorkerStatusIsNotReadBackFromStore() {
+		api.update(JobStatus.running("job-9", 1, 3));
+		// status.json wird woanders weitergeschrieben, der eigene Stand gilt aber max-active-ttl-ms
+		worker.update(JobStatus.done("job-9", 3, "gs://out/jobs/job-9/output.pdf"));
+		assertThat(api.lookup("job-9").state()).isEqualTo(JobStatus.State.RUNNING);
+
+		await().atMost(Duration.ofSeconds(2))
+				.until(() -> api.lookup("job-9").state() == JobStatus.State.DONE);
+	}
+
+	@Test
+	void outputPdfWithoutStatusJsonCountsAsDone() {
+		store.put(BlobTarget.of("out", "jobs/job-3/output.pdf", "application/pdf"), new byte[]{'%'}, 0, 1);
+
+		JobStatus status = api.lookup("job-3");
+		assertThat(status.state()).isEqualTo(JobStatus.State.DONE);
+		assertThat(status.outputPath()).isEqualTo("gs://out/jobs/job-3/output.pdf");
+	}
+
+	@Test
+	void staleRunningStatusWithOutputPdfCountsAsDone() {
+		// Worker hat das PDF geschrieben, das DONE in status.json aber nicht mehr
+		worker.update(JobStatus.running("job-8", 2, 3));
+		store.put(BlobTarget.of("out", "jobs/job-8/output.pdf", "application/pdf"), new byte[]{'%'}, 0, 1);
+
+		JobStatus status = api.lookup("job-8");
+		assertThat(status.state()).isEqualTo(JobStatus.State.DONE);
+		assertThat(status.pagesTotal()).isEqualTo(3);
+		assertThat(status.outputPath()).isEqualTo("gs://out/jobs/job-8/output.pdf");
+	}
+
+	@Test
+	void unknownJobIsQueued() {
+		assertThat(api.lookup("job-4").state()).isEqualTo(JobStatus.State.QUEUED);
+	}
+
+	@Test
+	void pollerPushesChangesToSubscribers() {
+		List<JobStatus> seen = new CopyOnWriteArrayList<>();
+		api.subscribe("job-5", seen::add);
+
+		worker.update(JobStatus.running("job-5", 1, 2));
+		worker.update(JobStatus.done("job-5", 2, "gs://out/jobs/job-5/output.pdf"));
+
+		await().atMost(Duration.ofSeconds(2))
+				.until(() -> !seen.isEmpty() && seen.getLast().state() == JobStatus.State.DONE);
+	}
+
+	@Test
+	void slowSubscriberBlocksNeitherWorkerNorOthers() throws InterruptedException {
+		CountDownLatch unblock = new CountDownLatch(1);
+		List<JobStatus> slow = new CopyOnWriteArrayList<>();
+		api.subscribe("job-10", status -> {
+			slow.add(status);
+			try {
+				unblock.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		List<JobStatus> fast = new CopyOnWriteArrayList<>();
+		api.subscribe("job-11", fast::add);
+
+		api.update(JobStatus.running("job-10", 1, 3));
+		api.update(JobStatus.running("job-10", 2, 3));
+		api.update(JobStatus.done("job-10", 3, "gs://out/jobs/job-10/output.pdf"));
+		api.update(JobStatus.running("job-11", 1, 2));
+		await().atMost(Duration.ofSeconds(2)).until(() -> !fast.isEmpty());
+
+		// Zwischenstände verworfen, der letzte kommt nach dem hängenden Senden an
+		unblock.countDown();
+		await().atMost(Duration.ofSeconds(2))
+				.until(() -> slow.getLast().state() == JobStatus.State.DONE);
+		assertThat(slow).noneMatch(status -> status.pagesDone() == 2);
+	}
+
+	@Test
+	void registerQueuedNeverDowngradesKnownStatus() {
+		// Worker auf derselben Instanz war schneller als die API nach dem Publish
+		api.update(JobStatus.running("job-6", 1, 4));
+		api.registerQueued("job-6", 4);
+		assertThat(api.lookup("job-6").state()).isEqualTo(JobStatus.State.RUNNING);
+
+		api.registerQueued("job-7", 4);
+		assertThat(api.lookup("job-7").pagesTotal()).isEqualTo(4);
+	}
+
+	private JobStatusRegistry registry() {
+		// aktive Stände 200 bis 400 ms im Cache, Poller alle 20 ms
+		return new JobStatusRegistry(store, "out", 200, 400, 600_000, 0, 100, 20);
+	}
+}
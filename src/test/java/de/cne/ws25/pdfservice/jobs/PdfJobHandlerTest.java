@@ -0,0 +1,78 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import de.cne.ws25.pdfservice.convert.ImageToPdfService;
+import de.cne.ws25.pdfservice.convert.MemoryBudget;
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import de.cne.ws25.pdfservice.storage.BlobTarget;
+import de.cne.ws25.pdfservice.storage.InMemoryBlobStore;
+import de.cne.ws25.pdfservice.tracing.JobTracing;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PdfJobHandlerTest {
+
+	private final InMemoryBlobStore store = new InMemoryBlobStore();
+	private final PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+	private final JobLanes lanes = new JobLanes("pdf-jobs", 4, 8, "", "pdf-jobs-large");
+	private final JobStatusRegistry registry = new JobStatusRegistry(store, "out", 0, 0, 600_000, 0, 100, 60_000);
+
+	@AfterEach
+	void shutdown() {
+		registry.shutdown();
+	}
+
+	@Test
+	void truncatedJpegFailsPermanently() throws Exception {
+		// größer als die Seite, also kein Passthrough: der Decoder stolpert über die fehlenden Daten
+		byte[] jpeg = truncatedJpeg();
+		store.put(BlobTarget.of("in", "uploads/a.jpg", "image/jpeg"), jpeg, 0, jpeg.length);
+
+		PdfJobHandler.Outcome outcome = handler().handle(
+				new PdfJobMessage("job-1", "in", List.of("uploads/a.jpg"), "out", "IMAGE_TO_PDF"), "msg-1", null);
+
+		// FAILED wird bestätigt statt endlos erneut zugestellt
+		assertThat(outcome).isEqualTo(PdfJobHandler.Outcome.FAILED);
+		assertThat(registry.lookup("job-1").state()).isEqualTo(JobStatus.State.FAILED);
+	}
+
+	@Test
+	void decodeErrorsArePermanentIoErrorsAreNot() {
+		assertThat(PdfJobHandler.isPermanent(new CompletionException(new IIOException("Bogus Huffman table")))).isTrue();
+		assertThat(PdfJobHandler.isPermanent(new IllegalArgumentException("Bild zu groß"))).isTrue();
+		assertThat(PdfJobHandler.isPermanent(new CompletionException(new IOException("Connection reset")))).isFalse();
+	}
+
+	private PdfJobHandler handler() {
+		ImageToPdfService service = new ImageToPdfService(store, metrics, new MemoryBudget(metrics, 64, 1000),
+				1, 1, 0, 16, "", 256, "balanced", 0.85f, 0.6f, 200, 500);
+		JobTracing tracing = new JobTracing(OpenTelemetry.noop());
+		return new PdfJobHandler(service, registry, new JobExecutionRegistry(100), new PdfJobShards(store, service),
+				lanes, new LaneScheduler(service, metrics, 4, 8, 30_000, 1, 2, 5_000), tracing, metrics);
+	}
+
+	/** JPEG mit vollständigem SOF, aber abgeschnitten vor dem Scan (SOS). */
+	private static byte[] truncatedJpeg() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(2400, 2400, BufferedImage.TYPE_INT_RGB), "jpg", out);
+		byte[] jpeg = out.toByteArray();
+		for (int i = 2; i + 1 < jpeg.length; i++) {
+			if ((jpeg[i] & 0xFF) == 0xFF && (jpeg[i + 1] & 0xFF) == 0xDA) {
+				return Arrays.copyOf(jpeg, i);
+			}
+		}
+		throw new IllegalStateException("kein SOS-Marker");
+	}
+}
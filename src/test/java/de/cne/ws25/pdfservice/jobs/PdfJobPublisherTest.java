@@ -0,0 +1,176 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.pubsub.v1.PubsubMessage;
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import de.cne.ws25.pdfservice.tracing.JobTracing;
+import io.opentelemetry.api.OpenTelemetry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class PdfJobPublisherTest {
+
+	/** In-Process-Fake statt Pub/Sub: die ersten {@code failures} Aufrufe schlagen fehl. */
+	static class FakeMessagePublisher implements MessagePublisher {
+		final List<PubsubMessage> sent = new CopyOnWriteArrayList<>();
+		final List<String> topics = new CopyOnWriteArrayList<>();
+		int failures;
+
+		FakeMessagePublisher(int failures) {
+			this.failures = failures;
+		}
+
+		@Override
+		public synchronized ApiFuture<String> publish(String topicId, PubsubMessage message) {
+			if (failures > 0) {
+				failures--;
+				return ApiFutures.immediateFailedFuture(new IllegalStateException("broker down"));
+			}
+			sent.add(message);
+			topics.add(topicId);
+			return ApiFutures.immediateFuture("msg-" + sent.size());
+		}
+	}
+
+	private final PdfJobMessage job = new PdfJobMessage(
+			"job-1", "in", List.of("uploads/a.png"), "out", "IMAGE_TO_PDF");
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final PipelineMetrics metrics = new PipelineMetrics(registry);
+	// klein: bis 4 Seiten und 8 MB, große Jobs auf eigenem Topic
+	private final JobLanes lanes = new JobLanes("pdf-jobs", 4, 8, "", "pdf-jobs-large");
+	private final JobTracing tracing = new JobTracing(OpenTelemetry.noop());
+
+	@Test
+	void publishesJobAsJson() throws Exception {
+		FakeMessagePublisher fake = new FakeMessagePublisher(0);
+		PdfJobPublisher publisher = new PdfJobPublisher(
+				fake, new PublishOutbox(fake, 3, 1, 1, 10), metrics, lanes, tracing, PdfJobPublisher.Durability.ACKED, 20);
+
+		String messageId = publisher.publish(job).get(1, TimeUnit.SECONDS);
+
+		assertThat(messageId).isEqualTo("msg-1");
+		PubsubMessage message = fake.sent.get(0);
+		assertThat(message.getAttributesMap()).containsEntry("jobId", "job-1");
+		assertThat(new ObjectMapper().readValue(message.getData().toStringUtf8(), PdfJobMessage.class))
+				.isEqualTo(job);
+		assertThat(registry.get("pdf.pubsub.publish").tag("outcome", "success").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void largeJobIsPublishedAsShards() throws Exception {
+		FakeMessagePublisher fake = new FakeMessagePublisher(0);
+		PdfJobPublisher publisher = new PdfJobPublisher(
+				fake, new PublishOutbox(fake, 3, 1, 1, 10), metrics, lanes, tracing, PdfJobPublisher.Durability.ACKED, 20);
+		List<String> objects = IntStream.range(0, 45).mapToObj(i -> "uploads/" + i + ".png").toList();
+
+		publisher.publishSharded(new PdfJobMessage("job-2", "in", objects, "out", "IMAGE_TO_PDF"))
+				.get(1, TimeUnit.SECONDS);
+
+		ObjectMapper mapper = new ObjectMapper();
+		List<PdfJobMessage> shards = new ArrayList<>();
+		for (PubsubMessage message : fake.sent) {
+			shards.add(mapper.readValue(message.getData().toStringUtf8(), PdfJobMessage.class));
+		}
+		assertThat(shards).extracting(m -> m.inputObjects().size()).containsExactly(20, 20, 5);
+		assertThat(shards).extracting(PdfJobMessage::shard).containsExactly(
+				new PdfJobMessage.Shard(0, 3, 45, 0, 0), new PdfJobMessage.Shard(1, 3, 45, 0, 0),
+				new PdfJobMessage.Shard(2, 3, 45, 0, 0));
+		assertThat(shards.get(2).inputObjects()).startsWith("uploads/40.png");
+	}
+
+	@Test
+	void jobsAreRoutedToLanesByCost() throws Exception {
+		FakeMessagePublisher fake = new FakeMessagePublisher(0);
+		PdfJobPublisher publisher = new PdfJobPublisher(
+				fake, new PublishOutbox(fake, 3, 1, 1, 10), metrics, lanes, tracing, PdfJobPublisher.Durability.ACKED, 20);
+		List<String> five = IntStream.range(0, 5).mapToObj(i -> "uploads/" + i + ".png").toList();
+
+		publisher.publishSharded(job, 100_000, () -> { }).get(1, TimeUnit.SECONDS);
+		// ein Bild, aber 20 MB
+		publisher.publishSharded(job, 20L * 1024 * 1024, () -> { }).get(1, TimeUnit.SECONDS);
+		publisher.publishSharded(new PdfJobMessage("job-3", "in", five, "out", "IMAGE_TO_PDF"), 100_000, () -> { })
+				.get(1, TimeUnit.SECONDS);
+
+		assertThat(fake.sent).extracting(m -> m.getAttributesOrThrow(JobLanes.ATTRIBUTE))
+				.containsExactly("small", "large", "large");
+		assertThat(fake.topics).containsExactly("pdf-jobs", "pdf-jobs-large", "pdf-jobs-large");
+		assertThat(registry.get("pdf.lanes.routed").tag("lane", "large").counter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void asyncFailureIsRetriedFromOutbox() {
+		FakeMessagePublisher fake = new FakeMessagePublisher(2);
+		PublishOutbox outbox = new PublishOutbox(fake, 5, 1, 5, 10);
+		PdfJobPublisher publisher = new PdfJobPublisher(
+				fake, outbox, metrics, lanes, tracing, PdfJobPublisher.Durability.ASYNC, 20);
+
+		CompletableFuture<String> result = publisher.publish(job);
+
+		assertThat(result).isCompletedExceptionally();
+		await().atMost(2, TimeUnit.SECONDS).until(() -> fake.sent.size() == 1);
+		assertThat(outbox.pending()).isZero();
+	}
+
+	@Test
+	void outboxGivesUpShardedJobOnce() {
+		// Broker bleibt unten: alle drei Shards landen in der Outbox und geben nach 2 Versuchen auf
+		FakeMessagePublisher fake = new FakeMessagePublisher(Integer.MAX_VALUE);
+		PublishOutbox outbox = new PublishOutbox(fake, 2, 1, 1, 10);
+		PdfJobPublisher publisher = new PdfJobPublisher(
+				fake, outbox, metrics, lanes, tracing, PdfJobPublisher.Durability.ASYNC, 20);
+		List<String> objects = IntStream.range(0, 45).mapToObj(i -> "uploads/" + i + ".png").toList();
+		AtomicInteger givenUp = new AtomicInteger();
+
+		publisher.publishSharded(new PdfJobMessage("job-2", "in", objects, "out", "IMAGE_TO_PDF"), 0,
+				givenUp::incrementAndGet);
+
+		await().atMost(2, TimeUnit.SECONDS).until(() -> outbox.pending() == 0);
+		await().atMost(2, TimeUnit.SECONDS).until(() -> givenUp.get() == 1);
+		assertThat(fake.sent).isEmpty();
+	}
+
+	@Test
+	void fullOutboxGivesUpImmediately() {
+		FakeMessagePublisher fake = new FakeMessagePublisher(1);
+		PublishOutbox outbox = new PublishOutbox(fake, 5, 1, 5, 0);
+		AtomicInteger givenUp = new AtomicInteger();
+
+		outbox.add("pdf-jobs", PubsubMessage.getDefaultInstance(), "job-1", new IllegalStateException("broker down"),
+				givenUp::incrementAndGet);
+
+		await().atMost(2, TimeUnit.SECONDS).until(() -> givenUp.get() == 1);
+		assertThat(outbox.pending()).isZero();
+	}
+
+	@Test
+	void shutdownGivesUpPendingJobs() {
+		FakeMessagePublisher fake = new FakeMessagePublisher(0);
+		// Backoff länger als der Test: der erste Versuch läuft nie
+		PublishOutbox outbox = new PublishOutbox(fake, 5, 60_000, 60_000, 10);
+		AtomicInteger givenUp = new AtomicInteger();
+
+		outbox.add("pdf-jobs", PubsubMessage.getDefaultInstance(), "job-1", new IllegalStateException("broker down"),
+				givenUp::incrementAndGet);
+		assertThat(outbox.pending()).isEqualTo(1);
+		outbox.shutdown();
+
+		assertThat(givenUp.get()).isEqualTo(1);
+		assertThat(outbox.pending()).isZero();
+		assertThat(fake.sent).isEmpty();
+	}
+
+}
@@ -0,0 +1,145 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import de.cne.ws25.pdfservice.convert.ImageToPdfService;
+import de.cne.ws25.pdfservice.convert.MemoryBudget;
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import de.cne.ws25.pdfservice.storage.BlobTarget;
+import de.cne.ws25.pdfservice.storage.InMemoryBlobStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PdfJobShardsTest {
+
+	private final InMemoryBlobStore store = new InMemoryBlobStore();
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final PipelineMetrics metrics = new PipelineMetrics(registry);
+	private final ImageToPdfService service = new ImageToPdfService(store, metrics, new MemoryBudget(metrics, 64, 1000),
+			1, 1, 0, 16, "", 256, "balanced", 0.85f, 0.6f, 200, 500);
+	private final PdfJobShards shards = new PdfJobShards(store, service);
+
+	@Test
+	void partsAreCountedApartFromMergedOutput() throws Exception {
+		List<String> objects = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			byte[] png = png();
+			store.put(BlobTarget.of("in", "uploads/" + i + ".png", "image/png"), png, 0, png.length);
+			objects.add("uploads/" + i + ".png");
+		}
+
+		String url = null;
+		for (PdfJobMessage shard : PdfJobShards.split(new PdfJobMessage("job-1", "in", objects, "out", "IMAGE_TO_PDF"), 2)) {
+			url = shards.convert(shard, Runnable::run, pages -> {});
+		}
+
+		assertThat(url).isEqualTo("gs://out/jobs/job-1/output.pdf");
+		double merged = registry.get("pdf.bytes.out").tag("path", "merge").counter().count();
+		assertThat(merged).isEqualTo(store.read("out", "jobs/job-1/output.pdf").remaining());
+		assertThat(registry.get("pdf.bytes.out").tag("path", "part").counter().count()).isPositive();
+		assertThat(registry.find("pdf.bytes.out").tag("path", "async").counter()).isNull();
+	}
+
+	@Test
+	void multiFrameFileIsSplitByFrameRange() {
+		// a: 1 Seite, b: 5 Frames, c: 1 Seite -> 7 Seiten in Shards zu 3
+		PdfJobMessage job = new PdfJobMessage("job-2", "in", List.of("a.png", "b.tif", "c.png"), "out", "IMAGE_TO_PDF",
+				null, 7, List.of(1, 5, 1), null);
+
+		List<PdfJobMessage> split = PdfJobShards.split(job, 3);
+
+		assertThat(split).extracting(PdfJobMessage::inputObjects).containsExactly(
+				List.of("a.png", "b.tif"), List.of("b.tif"), List.of("c.png"));
+		assertThat(split).extracting(PdfJobMessage::shard).containsExactly(
+				new PdfJobMessage.Shard(0, 3, 7, 0, 3),
+				new PdfJobMessage.Shard(1, 3, 7, 2, 3),
+				new PdfJobMessage.Shard(2, 3, 7, 0, 1));
+	}
+
+	@Test
+	void singleTiffIsConvertedAcrossShards() throws Exception {
+		byte[] tiff = tiff(5);
+		store.put(BlobTarget.of("in", "uploads/scan.tif", "image/tiff"), tiff, 0, tiff.length);
+		PdfJobMessage job = new PdfJobMessage("job-3", "in", List.of("uploads/scan.tif"), "out", "IMAGE_TO_PDF",
+				null, 5, List.of(5), null);
+
+		String url = null;
+		for (PdfJobMessage shard : PdfJobShards.split(job, 2)) {
+			url = shards.convert(shard, Runnable::run, pages -> {});
+		}
+
+		assertThat(url).isEqualTo("gs://out/jobs/job-3/output.pdf");
+		ByteBuffer pdf = store.read("out", "jobs/job-3/output.pdf");
+		byte[] bytes = new byte[pdf.remaining()];
+		pdf.get(bytes);
+		try (PDDocument doc = PDDocument.load(bytes)) {
+			assertThat(doc.getNumberOfPages()).isEqualTo(5);
+		}
+		assertThat(store.stat("out", "jobs/job-3/parts/0000.pdf")).isNull();
+	}
+
+	@Test
+	void partsOfFailedJobAreDeleted() throws Exception {
+		byte[] png = png();
+		store.put(BlobTarget.of("in", "uploads/a.png", "image/png"), png, 0, png.length);
+		List<PdfJobMessage> split = PdfJobShards.split(new PdfJobMessage("job-4", "in",
+				List.of("uploads/a.png", "uploads/missing.png"), "out", "IMAGE_TO_PDF"), 1);
+		assertThat(shards.convert(split.get(0), Runnable::run, pages -> {})).isNull();
+		assertThat(store.stat("out", "jobs/job-4/parts/0000.pdf")).isNotNull();
+
+		shards.deleteParts(split.get(1));
+
+		assertThat(store.stat("out", "jobs/job-4/parts/0000.pdf")).isNull();
+	}
+
+	@Test
+	void redeliveredShardIsNotConvertedAgain() throws Exception {
+		byte[] png = png();
+		store.put(BlobTarget.of("in", "uploads/a.png", "image/png"), png, 0, png.length);
+		List<PdfJobMessage> split = PdfJobShards.split(new PdfJobMessage("job-5", "in",
+				List.of("uploads/a.png", "uploads/b.png"), "out", "IMAGE_TO_PDF"), 1);
+		assertThat(shards.convert(split.get(0), Runnable::run, pages -> {})).isNull();
+		double partBytes = registry.get("pdf.bytes.out").tag("path", "part").counter().count();
+
+		// ohne Eingabe würde eine zweite Konvertierung scheitern
+		store.delete("in", "uploads/a.png");
+		List<Integer> progress = new ArrayList<>();
+		assertThat(shards.convert(split.get(0), Runnable::run, progress::add)).isNull();
+
+		assertThat(progress).containsExactly(1);
+		assertThat(registry.get("pdf.bytes.out").tag("path", "part").counter().count()).isEqualTo(partBytes);
+	}
+
+	private static byte[] tiff(int frames) throws Exception {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("tiff").next();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+			writer.setOutput(out);
+			writer.prepareWriteSequence(null);
+			for (int i = 0; i < frames; i++) {
+				writer.writeToSequence(new IIOImage(new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB), null, null), null);
+			}
+			writer.endWriteSequence();
+		} finally {
+			writer.dispose();
+		}
+		return bytes.toByteArray();
+	}
+
+	private static byte[] png() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB), "png", out);
+		return out.toByteArray();
+	}
+}
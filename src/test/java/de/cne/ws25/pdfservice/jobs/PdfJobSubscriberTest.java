@@ -0,0 +1,143 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController;
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class PdfJobSubscriberTest {
+
+	/** Handler ohne Abhängigkeiten, liefert immer {@code outcome} (oder wirft bei {@code null}). */
+	static class FixedOutcomeHandler extends PdfJobHandler {
+		PdfJobHandler.Outcome outcome;
+
+		FixedOutcomeHandler() {
+			super(null, null, null, null, null, null, null, null);
+		}
+
+		@Override
+		public Outcome handle(byte[] data, String messageId, Map<String, String> attributes) {
+			if (outcome == null) {
+				throw new IllegalStateException("Handler kaputt");
+			}
+			return outcome;
+		}
+	}
+
+	/** Merkt sich Ack/Nack statt sie an Pub/Sub zu schicken. */
+	static class RecordingConsumer implements AckReplyConsumer {
+		final List<String> replies = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void ack() {
+			replies.add("ack");
+		}
+
+		@Override
+		public void nack() {
+			replies.add("nack");
+		}
+	}
+
+	private final FixedOutcomeHandler handler = new FixedOutcomeHandler();
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+	// 4 Nachrichten, 1 MB, Nack frühestens nach 200 ms
+	private final PdfJobSubscriber subscriber = new PdfJobSubscriber(handler,
+			new PipelineMetrics(new SimpleMeterRegistry()), "project", "pdf-jobs-sub", "",
+			4, 1024 * 1024, 4, 60, 5, 200, 60_000);
+
+	@AfterEach
+	void shutdown() {
+		scheduler.shutdownNow();
+	}
+
+	@Test
+	void nackDelayDoublesPerAttemptUpToMax() {
+		assertThat(PdfJobSubscriber.nackDelayMs(1, 1000, 60_000)).isEqualTo(1000);
+		assertThat(PdfJobSubscriber.nackDelayMs(2, 1000, 60_000)).isEqualTo(2000);
+		assertThat(PdfJobSubscriber.nackDelayMs(4, 1000, 60_000)).isEqualTo(8000);
+		assertThat(PdfJobSubscriber.nackDelayMs(100, 1000, 60_000)).isEqualTo(60_000);
+	}
+
+	@Test
+	void withoutDeliveryAttemptMinDelayIsUsed() {
+		assertThat(PdfJobSubscriber.nackDelayMs(null, 1000, 60_000)).isEqualTo(1000);
+	}
+
+	@Test
+	void finishedAndPermanentOutcomesAreAcked() {
+		for (PdfJobHandler.Outcome outcome : List.of(PdfJobHandler.Outcome.DONE, PdfJobHandler.Outcome.IGNORED,
+				PdfJobHandler.Outcome.DUPLICATE, PdfJobHandler.Outcome.FAILED)) {
+			handler.outcome = outcome;
+			RecordingConsumer consumer = new RecordingConsumer();
+
+			subscriber.receive(message(null), consumer, scheduler);
+
+			assertThat(consumer.replies).as(outcome.name()).containsExactly("ack");
+		}
+	}
+
+	@Test
+	void retryAndErrorAreNackedAfterDelay() {
+		for (PdfJobHandler.Outcome outcome : List.of(PdfJobHandler.Outcome.RETRY, PdfJobHandler.Outcome.ERROR)) {
+			handler.outcome = outcome;
+			RecordingConsumer consumer = new RecordingConsumer();
+
+			subscriber.receive(message(null), consumer, scheduler);
+
+			// Nachricht bleibt bis zum Nack offen
+			assertThat(consumer.replies).as(outcome.name()).isEmpty();
+			await().atMost(2, TimeUnit.SECONDS).until(() -> !consumer.replies.isEmpty());
+			assertThat(consumer.replies).as(outcome.name()).containsExactly("nack");
+		}
+	}
+
+	@Test
+	void handlerExceptionIsNackedLikeError() {
+		handler.outcome = null;
+		RecordingConsumer consumer = new RecordingConsumer();
+
+		// zweiter Zustellversuch: 400 ms statt 200 ms
+		long start = System.nanoTime();
+		subscriber.receive(message("2"), consumer, scheduler);
+
+		await().atMost(2, TimeUnit.SECONDS).until(() -> !consumer.replies.isEmpty());
+		assertThat(consumer.replies).containsExactly("nack");
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(400);
+	}
+
+	@Test
+	void flowControlLimitsOutstandingMessagesAndBytes() {
+		FlowControlSettings flowControl = subscriber.flowControlSettings();
+
+		assertThat(flowControl.getMaxOutstandingElementCount()).isEqualTo(4);
+		assertThat(flowControl.getMaxOutstandingRequestBytes()).isEqualTo(1024 * 1024);
+		// volle Instanz holt nichts mehr, statt Nachrichten abzulehnen
+		assertThat(flowControl.getLimitExceededBehavior()).isEqualTo(FlowController.LimitExceededBehavior.Block);
+	}
+
+	private static PubsubMessage message(String deliveryAttempt) {
+		PubsubMessage.Builder builder = PubsubMessage.newBuilder()
+				.setMessageId("msg-1")
+				.setData(ByteString.copyFromUtf8("{}"));
+		if (deliveryAttempt != null) {
+			builder.putAttributes("googclient_deliveryattempt", deliveryAttempt);
+		}
+		return builder.build();
+	}
+}
@@ -0,0 +1,95 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import de.cne.ws25.pdfservice.convert.EncodingProfile;
+import de.cne.ws25.pdfservice.convert.ImageToPdfService;
+import de.cne.ws25.pdfservice.convert.MemoryBudget;
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import de.cne.ws25.pdfservice.storage.InMemoryBlobStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResultCacheTest {
+
+	private final InMemoryBlobStore store = new InMemoryBlobStore();
+	private final JobStatusRegistry statuses = new JobStatusRegistry(store, "out", 0, 0, 600_000, 0, 100, 60_000);
+	private final String key = ResultCache.jobKey(List.of("aa", "bb"), "IMAGE_TO_PDF:balanced");
+
+	@AfterEach
+	void shutdown() {
+		statuses.shutdown();
+	}
+
+	@Test
+	void keyDependsOnOrderAndSettings() {
+		assertThat(ResultCache.jobKey(List.of("bb", "aa"), "IMAGE_TO_PDF:balanced")).isNotEqualTo(key);
+		assertThat(ResultCache.jobKey(List.of("aa", "bb"), "IMAGE_TO_PDF:small")).isNotEqualTo(key);
+		assertThat(ResultCache.jobKey(List.of("aa", "bb"), "IMAGE_TO_PDF:balanced")).isEqualTo(key);
+	}
+
+	@Test
+	void keyDependsOnDpiAndJpegQuality() {
+		String balanced = service(0.85f, 200).settingsId(EncodingProfile.BALANCED);
+		assertThat(service(0.85f, 200).settingsId(EncodingProfile.BALANCED)).isEqualTo(balanced);
+		assertThat(service(0.85f, 300).settingsId(EncodingProfile.BALANCED)).isNotEqualTo(balanced);
+		assertThat(service(0.7f, 200).settingsId(EncodingProfile.BALANCED)).isNotEqualTo(balanced);
+		// archive kodiert nie als JPEG, die Qualität spielt keine Rolle
+		assertThat(service(0.7f, 200).settingsId(EncodingProfile.ARCHIVE))
+				.isEqualTo(service(0.85f, 200).settingsId(EncodingProfile.ARCHIVE));
+	}
+
+	@Test
+	void secondClaimGetsRunningJobAlsoOnOtherInstance() {
+		ResultCache first = cache(600_000);
+		assertThat(first.claim(key, "job-1")).isNull();
+		statuses.update(JobStatus.running("job-1", 0, 2));
+
+		assertThat(first.claim(key, "job-2")).isEqualTo("job-1");
+		// eigener LRU, aber derselbe Index im Bucket
+		assertThat(cache(600_000).claim(key, "job-3")).isEqualTo("job-1");
+	}
+
+	@Test
+	void releasedClaimIsFreeAgain() {
+		ResultCache cache = cache(600_000);
+		assertThat(cache.claim(key, "job-1")).isNull();
+		cache.release(key, "job-1");
+
+		assertThat(store.stat("out", "cache/" + key)).isNull();
+		assertThat(cache.claim(key, "job-2")).isNull();
+	}
+
+	@Test
+	void failedJobIsReplaced() {
+		ResultCache cache = cache(600_000);
+		cache.claim(key, "job-1");
+		statuses.update(JobStatus.failed("job-1", 0, 2, "kaputt"));
+
+		assertThat(cache.claim(key, "job-2")).isNull();
+		assertThat(store.stat("out", "cache/" + key).metadata()).containsEntry("jobId", "job-2");
+		assertThat(cache(600_000).claim(key, "job-3")).isEqualTo("job-2");
+	}
+
+	@Test
+	void jobStuckInQueuedIsReplaced() {
+		// Pending-Timeout 0: ein nie gestarteter Job gilt sofort als verloren
+		ResultCache cache = cache(0);
+		cache.claim(key, "job-1");
+
+		assertThat(cache.claim(key, "job-2")).isNull();
+	}
+
+	private ImageToPdfService service(float balancedQuality, int dpi) {
+		PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+		return new ImageToPdfService(store, metrics, new MemoryBudget(metrics, 64, 1000),
+				1, 1, 0, 16, "", 256, "balanced", balancedQuality, 0.6f, dpi, 500);
+	}
+
+	private ResultCache cache(long pendingTimeoutMs) {
+		return new ResultCache(store, statuses, "out", 100, pendingTimeoutMs);
+	}
+}
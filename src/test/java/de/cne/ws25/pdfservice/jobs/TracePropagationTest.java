@@ -0,0 +1,92 @@
+package de.cne.ws25.pdfservice.jobs;
+
+import com.google.pubsub.v1.PubsubMessage;
+import de.cne.ws25.pdfservice.convert.ImageToPdfService;
+import de.cne.ws25.pdfservice.convert.MemoryBudget;
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import de.cne.ws25.pdfservice.storage.BlobTarget;
+import de.cne.ws25.pdfservice.storage.InMemoryBlobStore;
+import de.cne.ws25.pdfservice.tracing.JobTracing;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TracePropagationTest {
+
+	private final InMemorySpanExporter spans = InMemorySpanExporter.create();
+	private final OpenTelemetrySdk openTelemetry = OpenTelemetrySdk.builder()
+			.setTracerProvider(SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(spans)).build())
+			.setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+			.build();
+	private final JobTracing tracing = new JobTracing(openTelemetry);
+
+	private final InMemoryBlobStore store = new InMemoryBlobStore();
+	private final PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+	private final JobLanes lanes = new JobLanes("pdf-jobs", 4, 8, "", "pdf-jobs-large");
+	private final JobStatusRegistry registry = new JobStatusRegistry(store, "out", 0, 0, 600_000, 0, 100, 60_000);
+
+	@AfterEach
+	void shutdown() {
+		registry.shutdown();
+		openTelemetry.close();
+	}
+
+	@Test
+	void workerSpanContinuesTraceOfUpload() throws Exception {
+		byte[] png = png();
+		store.put(BlobTarget.of("in", "uploads/a.png", "image/png"), png, 0, png.length);
+		PdfJobPublisherTest.FakeMessagePublisher fake = new PdfJobPublisherTest.FakeMessagePublisher(0);
+		PdfJobPublisher publisher = new PdfJobPublisher(
+				fake, new PublishOutbox(fake, 3, 1, 1, 10), metrics, lanes, tracing, PdfJobPublisher.Durability.ACKED, 20);
+
+		Span upload = tracing.startUpload(null);
+		try (Scope ignored = upload.makeCurrent()) {
+			publisher.publish(new PdfJobMessage("job-1", "in", List.of("uploads/a.png"), "out", "IMAGE_TO_PDF"))
+					.get(1, TimeUnit.SECONDS);
+		} finally {
+			upload.end();
+		}
+		PubsubMessage message = fake.sent.get(0);
+		assertThat(message.getAttributesMap()).containsKey("traceparent");
+
+		PdfJobHandler.Outcome outcome = handler().handle(
+				message.getData().toByteArray(), "msg-1", message.getAttributesMap());
+
+		assertThat(outcome).isEqualTo(PdfJobHandler.Outcome.DONE);
+		SpanData job = spans.getFinishedSpanItems().stream()
+				.filter(s -> s.getName().equals("pdf.job")).findFirst().orElseThrow();
+		assertThat(job.getTraceId()).isEqualTo(upload.getSpanContext().getTraceId());
+		assertThat(job.getParentSpanId()).isEqualTo(upload.getSpanContext().getSpanId());
+		assertThat(job.getParentSpanContext().isRemote()).isTrue();
+	}
+
+	private PdfJobHandler handler() {
+		ImageToPdfService service = new ImageToPdfService(store, metrics, new MemoryBudget(metrics, 64, 1000),
+				1, 1, 0, 16, "", 256, "balanced", 0.85f, 0.6f, 200, 500);
+		return new PdfJobHandler(service, registry, new JobExecutionRegistry(100), new PdfJobShards(store, service),
+				lanes, new LaneScheduler(service, metrics, 4, 8, 30_000, 1, 2, 5_000), tracing, metrics);
+	}
+
+	private static byte[] png() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB), "png", out);
+		return out.toByteArray();
+	}
+}
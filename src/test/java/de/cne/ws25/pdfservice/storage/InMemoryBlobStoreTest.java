@@ -0,0 +1,61 @@
+package de.cne.ws25.pdfservice.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryBlobStoreTest {
+
+	private final InMemoryBlobStore store = new InMemoryBlobStore();
+
+	@Test
+	void preconditionsBehaveLikeGcs() {
+		BlobTarget target = BlobTarget.of("out", "cache/abc", null)
+				.withMetadata(Map.of("jobId", "job-1"))
+				.doesNotExist();
+
+		store.put(target, new byte[0]);
+
+		assertThatThrownBy(() -> store.put(target, new byte[0]))
+				.isInstanceOf(PreconditionFailedException.class);
+		assertThatThrownBy(() -> store.delete("out", "cache/abc", 7L))
+				.isInstanceOf(PreconditionFailedException.class);
+		assertThat(store.delete("out", "cache/abc", 1L)).isTrue();
+		assertThat(store.delete("out", "cache/abc")).isFalse();
+	}
+
+	@Test
+	void writerIsOnlyVisibleAfterCommitAndCleanupKeepsNewerObjects() throws Exception {
+		BlobTarget target = BlobTarget.of("out", "jobs/1/output.pdf", "application/pdf");
+
+		BlobWriter writer = store.openWriter(target, 1024);
+		writer.stream().write("%PDF".getBytes(StandardCharsets.UTF_8));
+		writer.stream().close();
+		assertThat(store.stat("out", "jobs/1/output.pdf")).isNull();
+		writer.commit();
+
+		assertThat(StandardCharsets.UTF_8.decode(store.read("out", "jobs/1/output.pdf")).toString()).isEqualTo("%PDF");
+		assertThat(store.stat("out", "jobs/1/output.pdf").size()).isEqualTo(4);
+
+		store.put(BlobTarget.of("in", "uploads/a.png", "image/png"), new byte[3]);
+		assertThat(store.deleteCreatedBefore("out", System.currentTimeMillis() + 1)).isEqualTo(1);
+		assertThat(store.stat("in", "uploads/a.png")).isNotNull();
+	}
+
+	@Test
+	void secondWriterOnExistingObjectFailsWithPrecondition() throws Exception {
+		BlobTarget target = BlobTarget.of("out", "jobs/2/output.pdf", "application/pdf").doesNotExist();
+		BlobWriter first = store.openWriter(target, 1024);
+		BlobWriter second = store.openWriter(target, 1024);
+		first.stream().write(new byte[]{1});
+		second.stream().write(new byte[]{2, 2});
+
+		first.commit();
+		assertThatThrownBy(second::commit).isInstanceOf(PreconditionFailedException.class);
+		assertThat(store.stat("out", "jobs/2/output.pdf").size()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,59 @@
+package de.cne.ws25.pdfservice.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalBlobStoreTest {
+
+	@TempDir
+	Path root;
+
+	@Test
+	void doesNotExistPreconditionOnlyWinsOnce() throws Exception {
+		LocalBlobStore store = new LocalBlobStore(root.toString());
+		BlobTarget target = BlobTarget.of("out", "cache/abc", null)
+				.withMetadata(Map.of("jobId", "job-1"))
+				.doesNotExist();
+
+		store.put(target, new byte[0]);
+
+		assertThatThrownBy(() -> store.put(target.withMetadata(Map.of("jobId", "job-2")), new byte[0]))
+				.isInstanceOf(PreconditionFailedException.class);
+		BlobMeta meta = store.stat("out", "cache/abc");
+		assertThat(meta.metadata()).containsEntry("jobId", "job-1");
+
+		store.put(target.withMetadata(Map.of("jobId", "job-3")).ifGenerationMatch(meta.generation()), new byte[0]);
+		assertThat(store.stat("out", "cache/abc").metadata()).containsEntry("jobId", "job-3");
+	}
+
+	@Test
+	void writerIsOnlyVisibleAfterCommit() throws Exception {
+		LocalBlobStore store = new LocalBlobStore(root.toString());
+		BlobTarget target = BlobTarget.of("out", "jobs/1/output.pdf", "application/pdf");
+
+		BlobWriter aborted = store.openWriter(target, 1024);
+		aborted.stream().write("kaputt".getBytes(StandardCharsets.UTF_8));
+		aborted.stream().close();
+		aborted.abort();
+		assertThat(store.stat("out", "jobs/1/output.pdf")).isNull();
+
+		BlobWriter writer = store.openWriter(target, 1024);
+		writer.stream().write("%PDF".getBytes(StandardCharsets.UTF_8));
+		writer.commit();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long n = store.transferTo("out", "jobs/1/output.pdf", Channels.newChannel(out));
+		assertThat(n).isEqualTo(4);
+		assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("%PDF");
+		assertThat(store.stat("out", "jobs/1/output.pdf").contentType()).isEqualTo("application/pdf");
+	}
+}
@@ -0,0 +1,52 @@
+package de.cne.ws25.pdfservice.storage;
+
+import de.cne.ws25.pdfservice.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UploadStorageServiceTest {
+
+	private final InMemoryBlobStore store = new InMemoryBlobStore();
+	// 1 KB Chunks: die PNGs gehen über openWriter/commit, nicht über put
+	private final UploadStorageService service = new UploadStorageService(
+			store, new PipelineMetrics(new SimpleMeterRegistry()), "in", 10, 1, 2);
+
+	@Test
+	void storesAllFilesInOrder() throws Exception {
+		List<StoredFile> stored = service.storeAll(List.of(png("a.png"), png("b.png")));
+
+		assertThat(stored).extracting(StoredFile::objectName)
+				.satisfiesExactly(a -> assertThat(a).endsWith("-a.png"), b -> assertThat(b).endsWith("-b.png"));
+		assertThat(store.stat("in", stored.get(0).objectName())).isNotNull();
+	}
+
+	@Test
+	void invalidFileLeavesNoObjectsBehind() {
+		List<MultipartFile> files = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			files.add(png(i + ".png"));
+		}
+		files.add(3, new MockMultipartFile("file", "note.txt", "image/png", new byte[4096]));
+
+		assertThatThrownBy(() -> service.storeAll(files))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("note.txt");
+		assertThat(store.totalBytes()).isZero();
+	}
+
+	/** PNG-Signatur plus Füllbytes, größer als ein Chunk. */
+	private static MultipartFile png(String name) {
+		byte[] data = new byte[8 * 1024];
+		byte[] signature = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+		System.arraycopy(signature, 0, data, 0, signature.length);
+		return new MockMultipartFile("file", name, "image/png", data);
+	}
+}